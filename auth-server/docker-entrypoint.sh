@@ -0,0 +1,10 @@
+#!/bin/sh
+# Creates the signing keystore on first start so tokens survive container restarts.
+set -e
+if [ -n "$AUTH_SIGNING_KEYSTORE_FILE" ] && [ ! -f "$AUTH_SIGNING_KEYSTORE_FILE" ]; then
+  mkdir -p "$(dirname "$AUTH_SIGNING_KEYSTORE_FILE")"
+  keytool -genkeypair -alias "key-$(date +%Y%m%d%H%M%S)" -keyalg RSA -keysize 2048 -validity 3650 \
+    -dname CN=auth-server -storetype PKCS12 \
+    -keystore "$AUTH_SIGNING_KEYSTORE_FILE" -storepass "$AUTH_SIGNING_KEYSTORE_PASSWORD"
+fi
+exec java -jar app.jar
@@ -0,0 +1,36 @@
+package com.example.authserver.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Makes the JWKS cacheable: a {@code max-age} and an ETag of the key set, so resource servers revalidate
+ * with {@code If-None-Match} and get a 304 until a key is added or removed.
+ */
+public class JwkSetCacheHeadersFilter extends ShallowEtagHeaderFilter {
+
+    private final String cacheControl;
+
+    public JwkSetCacheHeadersFilter(Duration maxAge) {
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic().getHeaderValue();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (HttpMethod.GET.matches(request.getMethod())) {
+            // set ahead of the security filter chain, which only adds its no-store default when none is present
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+        super.doFilterInternal(request, response, filterChain);
+    }
+}
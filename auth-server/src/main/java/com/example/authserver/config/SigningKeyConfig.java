@@ -0,0 +1,39 @@
+package com.example.authserver.config;
+
+import com.example.authserver.services.SigningKeys;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.oauth2.server.authorization.settings.AuthorizationServerSettings;
+
+@Configuration
+public class SigningKeyConfig {
+
+    /** Served at the JWKS endpoint and used to verify tokens, so it holds every published key. */
+    @Bean
+    public JWKSource<SecurityContext> jwkSource(SigningKeys signingKeys) {
+        return (selector, context) -> selector.select(signingKeys.published());
+    }
+
+    /** Sees only the signing key, NimbusJwtEncoder refuses to choose between several matching keys. */
+    @Bean
+    public JwtEncoder jwtEncoder(SigningKeys signingKeys) {
+        return new NimbusJwtEncoder((selector, context) -> selector.select(new JWKSet(signingKeys.signingKey())));
+    }
+
+    @Bean
+    public FilterRegistrationBean<JwkSetCacheHeadersFilter> jwkSetCacheHeadersFilter(
+            AuthorizationServerSettings authorizationServerSettings, SigningKeyProperties properties) {
+        FilterRegistrationBean<JwkSetCacheHeadersFilter> registration =
+                new FilterRegistrationBean<>(new JwkSetCacheHeadersFilter(properties.getJwksMaxAge()));
+        registration.addUrlPatterns(authorizationServerSettings.getJwkSetEndpoint());
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.authserver.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "auth.signing")
+public class SigningKeyProperties {
+    /** PKCS12/JKS keystore with the RSA signing keys; without it a throwaway key is generated on every start. */
+    private Resource keystore;
+    private String keystoreType = "PKCS12";
+    private String keystorePassword = "";
+    /** Defaults to the keystore password, as keytool does for PKCS12. */
+    private String keyPassword;
+    /** Pins the signing key; otherwise the newest key published for at least {@code publish-ahead} signs. */
+    private String activeAlias;
+    /** How long a new key is served in the JWKS before tokens are signed with it. */
+    private Duration publishAhead = Duration.ofMinutes(10);
+    /** The keystore file is checked for changes at most this often. */
+    private Duration reloadInterval = Duration.ofSeconds(30);
+    /** {@code max-age} of the JWKS response. */
+    private Duration jwksMaxAge = Duration.ofMinutes(5);
+}
@@ -0,0 +1,220 @@
+package com.example.authserver.services;
+
+import com.example.authserver.config.SigningKeyProperties;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RSA keys of {@code auth.signing.keystore}. Every key in the keystore is published in the JWKS, one of them
+ * signs. To rotate, add a key to the keystore: it is published on the next reload and signs once it has been
+ * published for {@code publish-ahead}, while the previous key stays published until it is removed, so tokens
+ * issued before the switch keep verifying.
+ * <p>
+ * Publication is measured from the instant this process first saw the key id, which is remembered across
+ * reloads, not from the certificate's {@code notBefore}: a key whose certificate was issued long ago still
+ * has to be served for {@code publish-ahead} before resource servers can be expected to know it. After a
+ * restart every key counts as new, and the one with the oldest certificate signs until another is ready.
+ */
+@Slf4j
+@Component
+public class SigningKeys {
+
+    private final SigningKeyProperties properties;
+    private final Clock clock;
+
+    private volatile Snapshot snapshot;
+    private List<Entry> entries;
+    private long keystoreModified;
+    /** kid -> when a reload first found it; a key dropped from the keystore is forgotten. */
+    private Map<String, Instant> firstSeen = Map.of();
+
+    @Autowired
+    public SigningKeys(SigningKeyProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    SigningKeys(SigningKeyProperties properties, Clock clock) {
+        this.properties = properties;
+        this.clock = clock;
+        if (properties.getKeystore() == null) {
+            log.warn("auth.signing.keystore is not set, tokens are signed with a generated key that dies with this process");
+            this.entries = List.of(generate());
+        } else {
+            this.keystoreModified = lastModified();
+            this.entries = load();
+        }
+        this.snapshot = snapshot(null);
+    }
+
+    /** The signing key, keys waiting to take over and keys being retired. */
+    public JWKSet published() {
+        return current().published();
+    }
+
+    public RSAKey signingKey() {
+        return current().signing();
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (clock.instant().isBefore(current.checkAfter())) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == current) {
+                reloadIfModified();
+                snapshot = snapshot(current.signing());
+            }
+            return snapshot;
+        }
+    }
+
+    private void reloadIfModified() {
+        if (properties.getKeystore() == null) {
+            return;
+        }
+        long modified = lastModified();
+        if (modified == keystoreModified) {
+            return;
+        }
+        try {
+            entries = load();
+            keystoreModified = modified;
+            log.info("Reloaded {} signing keys from {}", entries.size(), properties.getKeystore());
+        } catch (IllegalStateException e) {
+            // a half-written keystore must not take the server down, retry on the next check
+            log.error("Keeping the current signing keys", e);
+        }
+    }
+
+    private Snapshot snapshot(RSAKey previous) {
+        Entry signing = selectSigning();
+        if (previous == null || !previous.getKeyID().equals(signing.key().getKeyID())) {
+            log.info("Signing tokens with key '{}' (kid {})", signing.alias(), signing.key().getKeyID());
+        }
+        List<JWK> published = entries.stream().<JWK>map(Entry::key).toList();
+        return new Snapshot(signing.key(), new JWKSet(published),
+                clock.instant().plus(properties.getReloadInterval()));
+    }
+
+    private Entry selectSigning() {
+        List<Entry> signable = entries.stream()
+                .filter(entry -> entry.key().isPrivate())
+                .sorted(Comparator.comparing(Entry::firstSeen).thenComparing(Entry::notBefore))
+                .toList();
+        String activeAlias = properties.getActiveAlias();
+        if (StringUtils.hasText(activeAlias)) {
+            return signable.stream()
+                    .filter(entry -> entry.alias().equalsIgnoreCase(activeAlias))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException(
+                            "auth.signing.active-alias '" + activeAlias + "' is not a private key in the keystore"));
+        }
+        Instant publishedBefore = clock.instant().minus(properties.getPublishAhead());
+        Entry newestReady = null;
+        for (Entry entry : signable) {
+            if (!entry.firstSeen().isAfter(publishedBefore)) {
+                newestReady = entry;
+            }
+        }
+        // nothing published long enough yet (a fresh start): every key is as new as the others
+        return newestReady != null ? newestReady : signable.get(0);
+    }
+
+    private List<Entry> load() {
+        Resource keystore = properties.getKeystore();
+        try (InputStream in = keystore.getInputStream()) {
+            KeyStore store = KeyStore.getInstance(properties.getKeystoreType());
+            store.load(in, properties.getKeystorePassword().toCharArray());
+            char[] keyPassword = (properties.getKeyPassword() != null
+                    ? properties.getKeyPassword() : properties.getKeystorePassword()).toCharArray();
+
+            Instant now = clock.instant();
+            Map<String, Instant> seen = new HashMap<>();
+            List<Entry> loaded = new ArrayList<>();
+            for (String alias : Collections.list(store.aliases())) {
+                Certificate certificate = store.getCertificate(alias);
+                if (!(certificate instanceof X509Certificate x509)
+                        || !(x509.getPublicKey() instanceof RSAPublicKey publicKey)) {
+                    log.warn("Skipping keystore entry '{}', it is not an RSA key with a certificate", alias);
+                    continue;
+                }
+                RSAKey.Builder key = new RSAKey.Builder(publicKey)
+                        .keyUse(KeyUse.SIGNATURE)
+                        .algorithm(JWSAlgorithm.RS256);
+                if (store.isKeyEntry(alias)) {
+                    Key privateKey = store.getKey(alias, keyPassword);
+                    if (privateKey instanceof RSAPrivateKey rsaPrivateKey) {
+                        key.privateKey(rsaPrivateKey);
+                    }
+                }
+                RSAKey rsaKey = key.keyIDFromThumbprint().build();
+                Instant keyFirstSeen = seen.computeIfAbsent(rsaKey.getKeyID(), kid -> firstSeen.getOrDefault(kid, now));
+                loaded.add(new Entry(alias, x509.getNotBefore().toInstant(), keyFirstSeen, rsaKey));
+            }
+            if (loaded.stream().noneMatch(entry -> entry.key().isPrivate())) {
+                throw new IllegalStateException("Keystore " + keystore + " holds no RSA private key");
+            }
+            firstSeen = seen;
+            return loaded;
+        } catch (IOException | GeneralSecurityException | JOSEException e) {
+            throw new IllegalStateException("Cannot load signing keys from " + keystore, e);
+        }
+    }
+
+    private long lastModified() {
+        Resource keystore = properties.getKeystore();
+        try {
+            return keystore.isFile() ? keystore.lastModified() : 0;
+        } catch (IOException e) {
+            return keystoreModified;
+        }
+    }
+
+    private Entry generate() {
+        try {
+            RSAKey key = new RSAKeyGenerator(2048)
+                    .keyUse(KeyUse.SIGNATURE)
+                    .algorithm(JWSAlgorithm.RS256)
+                    .keyIDFromThumbprint(true)
+                    .generate();
+            return new Entry("generated", clock.instant(), clock.instant(), key);
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Cannot generate a signing key", e);
+        }
+    }
+
+    private record Entry(String alias, Instant notBefore, Instant firstSeen, RSAKey key) {
+    }
+
+    private record Snapshot(RSAKey signing, JWKSet published, Instant checkAfter) {
+    }
+}
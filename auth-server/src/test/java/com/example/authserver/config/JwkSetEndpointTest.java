@@ -0,0 +1,63 @@
+package com.example.authserver.config;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "auth.signing.keystore=classpath:keys-two.p12",
+        "auth.signing.keystore-password=changeit",
+        "auth.signing.active-alias=k1",
+        "auth.signing.jwks-max-age=5m"
+})
+@AutoConfigureMockMvc
+class JwkSetEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void jwksIsCacheableAndRevalidatesWithTheEtag() throws Exception {
+        MvcResult first = mockMvc.perform(get("/oauth2/jwks"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=300, public"))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        assertEquals(2, JWKSet.parse(first.getResponse().getContentAsString()).size());
+
+        mockMvc.perform(get("/oauth2/jwks").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void tokensNameThePinnedKey() throws Exception {
+        String jwks = mockMvc.perform(get("/oauth2/jwks")).andReturn().getResponse().getContentAsString();
+
+        String body = mockMvc.perform(post("/oauth2/token")
+                        .with(httpBasic("main-shop-client", "secret"))
+                        .param("grant_type", "client_credentials")
+                        .param("scope", "payments.read"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String token = body.replaceAll(".*\"access_token\"\\s*:\\s*\"([^\"]+)\".*", "$1");
+
+        String kid = SignedJWT.parse(token).getHeader().getKeyID();
+        assertNotNull(JWKSet.parse(jwks).getKeyByKeyId(kid));
+        assertEquals(JWKSet.parse(jwks).getKeys().get(0).getKeyID(), kid);
+    }
+}
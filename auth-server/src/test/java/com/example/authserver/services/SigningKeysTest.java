@@ -0,0 +1,187 @@
+package com.example.authserver.services;
+
+import com.example.authserver.config.SigningKeyProperties;
+import com.nimbusds.jose.jwk.JWK;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SigningKeysTest {
+
+    /** keys-one.p12 holds k1 (notBefore 2024-01-01), keys-two.p12 holds the same k1 and k2 (notBefore 2025-01-01). */
+    private static final Instant K2_NOT_BEFORE = Instant.parse("2025-01-01T00:00:00Z");
+
+    @TempDir
+    Path dir;
+
+    private final TestClock clock = new TestClock(K2_NOT_BEFORE.plus(Duration.ofMinutes(1)));
+
+    private SigningKeyProperties properties(Path keystore) {
+        SigningKeyProperties properties = new SigningKeyProperties();
+        properties.setKeystore(new FileSystemResource(keystore));
+        properties.setKeystorePassword("changeit");
+        properties.setPublishAhead(Duration.ofMinutes(10));
+        properties.setReloadInterval(Duration.ofSeconds(30));
+        return properties;
+    }
+
+    private Path install(String fixture, long modifiedMillis) throws IOException {
+        Path keystore = dir.resolve("signing.p12");
+        try (InputStream in = new ClassPathResource(fixture).getInputStream()) {
+            Files.copy(in, keystore, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.setLastModifiedTime(keystore, FileTime.fromMillis(modifiedMillis));
+        return keystore;
+    }
+
+    @Test
+    void publishesANewKeyBeforeSigningWithItAndKeepsTheOldOne() throws IOException {
+        SigningKeys keys = new SigningKeys(properties(install("keys-one.p12", 1_000)), clock);
+        String k1 = keys.signingKey().getKeyID();
+        assertEquals(1, keys.published().size());
+
+        install("keys-two.p12", 2_000);
+        clock.advance(Duration.ofSeconds(30));
+        assertEquals(2, keys.published().size());
+        assertEquals(k1, keys.signingKey().getKeyID());
+
+        clock.advance(Duration.ofMinutes(10));
+        String k2 = keys.signingKey().getKeyID();
+        assertNotEquals(k1, k2);
+        assertTrue(keys.published().getKeys().stream().map(JWK::getKeyID).toList().contains(k1));
+    }
+
+    @Test
+    void readsTheKeystoreOnlyAfterTheReloadInterval() throws IOException {
+        SigningKeys keys = new SigningKeys(properties(install("keys-one.p12", 1_000)), clock);
+
+        install("keys-two.p12", 2_000);
+        clock.advance(Duration.ofSeconds(10));
+
+        assertEquals(1, keys.published().size());
+    }
+
+    @Test
+    void keepsServingKeysWhenTheKeystoreIsUnreadable() throws IOException {
+        Path keystore = install("keys-two.p12", 1_000);
+        SigningKeys keys = new SigningKeys(properties(keystore), clock);
+        String signing = keys.signingKey().getKeyID();
+
+        Files.writeString(keystore, "half written");
+        Files.setLastModifiedTime(keystore, FileTime.fromMillis(2_000));
+        clock.advance(Duration.ofMinutes(1));
+
+        assertEquals(2, keys.published().size());
+        assertEquals(signing, keys.signingKey().getKeyID());
+    }
+
+    @Test
+    void publishAheadCountsFromWhenTheKeyAppearedNotFromItsCertificate() throws IOException {
+        // k2's certificate is a year old by now, it still has to be published for publish-ahead first
+        TestClock later = new TestClock(Instant.parse("2026-01-01T00:00:00Z"));
+        SigningKeys keys = new SigningKeys(properties(install("keys-one.p12", 1_000)), later);
+        String k1 = keys.signingKey().getKeyID();
+
+        install("keys-two.p12", 2_000);
+        later.advance(Duration.ofSeconds(30));
+        assertEquals(2, keys.published().size());
+        assertEquals(k1, keys.signingKey().getKeyID());
+
+        later.advance(Duration.ofMinutes(9));
+        assertEquals(k1, keys.signingKey().getKeyID());
+
+        later.advance(Duration.ofMinutes(1));
+        assertNotEquals(k1, keys.signingKey().getKeyID());
+    }
+
+    @Test
+    void afterARestartTheOldestKeySignsUntilTheNewestHasBeenPublished() throws IOException {
+        TestClock later = new TestClock(Instant.parse("2026-01-01T00:00:00Z"));
+        SigningKeys keys = new SigningKeys(properties(install("keys-two.p12", 1_000)), later);
+        String oldest = keys.signingKey().getKeyID();
+
+        later.advance(Duration.ofMinutes(10));
+
+        assertNotEquals(oldest, keys.signingKey().getKeyID());
+    }
+
+    @Test
+    void activeAliasPinsTheSigningKey() throws IOException {
+        Path keystore = install("keys-two.p12", 1_000);
+        TestClock later = new TestClock(Instant.parse("2026-01-01T00:00:00Z"));
+        SigningKeys newest = new SigningKeys(properties(keystore), later);
+        SigningKeyProperties properties = properties(keystore);
+        properties.setActiveAlias("k1");
+        SigningKeys pinned = new SigningKeys(properties, later);
+        later.advance(Duration.ofMinutes(10));
+
+        assertNotEquals(newest.signingKey().getKeyID(), pinned.signingKey().getKeyID());
+
+        properties.setActiveAlias("missing");
+        assertThrows(IllegalStateException.class, () -> new SigningKeys(properties, clock));
+    }
+
+    @Test
+    void publishesOnlyPublicHalvesThroughTheJwkSet() throws IOException {
+        SigningKeys keys = new SigningKeys(properties(install("keys-two.p12", 1_000)), clock);
+
+        assertTrue(keys.signingKey().isPrivate());
+        assertTrue(keys.published().toPublicJWKSet().getKeys().stream().noneMatch(JWK::isPrivate));
+    }
+
+    @Test
+    void generatesAThrowawayKeyWithoutAKeystore() {
+        SigningKeys keys = new SigningKeys(new SigningKeyProperties(), clock);
+
+        assertTrue(keys.signingKey().isPrivate());
+        assertEquals(keys.signingKey().getKeyID(), keys.published().getKeys().get(0).getKeyID());
+        assertFalse(keys.published().getKeys().isEmpty());
+    }
+
+    private static final class TestClock extends Clock {
+
+        private Instant now;
+
+        TestClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
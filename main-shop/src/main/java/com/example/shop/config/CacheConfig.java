@@ -0,0 +1,34 @@
+package com.example.shop.config;
+
+import com.example.shop.services.CacheInvalidationBus;
+import com.example.shop.services.NearCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+@Configuration
+public class CacheConfig {
+
+    /**
+     * Part of every catalog cache key. Bump it whenever a cached DTO changes shape, so a deploy starts on
+     * fresh keys instead of reading entries the new classes cannot deserialize; the old ones expire or get evicted.
+     */
+    public static final String KEY_VERSION = "v2";
+
+    @Bean
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                     NearCacheProperties nearCacheProperties,
+                                     CacheInvalidationBus invalidationBus,
+                                     MeterRegistry meterRegistry) {
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(RedisCacheConfiguration.defaultCacheConfig(getClass().getClassLoader())
+                        .computePrefixWith(name -> name + ":" + KEY_VERSION + "::"))
+                .build();
+        redisCacheManager.initializeCaches();
+        return new NearCacheManager(redisCacheManager, nearCacheProperties, invalidationBus, meterRegistry);
+    }
+}
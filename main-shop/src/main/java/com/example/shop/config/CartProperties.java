@@ -0,0 +1,30 @@
+package com.example.shop.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "shop.cart")
+public class CartProperties {
+
+    private Store store = Store.JDBC;
+
+    private WriteBehind writeBehind = new WriteBehind();
+
+    public enum Store {
+        JDBC, REDIS
+    }
+
+    @Getter
+    @Setter
+    public static class WriteBehind {
+        private Duration interval = Duration.ofSeconds(1);
+        private int batchSize = 100;
+    }
+}
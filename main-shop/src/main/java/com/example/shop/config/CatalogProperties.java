@@ -0,0 +1,25 @@
+package com.example.shop.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "shop.catalog")
+public class CatalogProperties {
+
+    private PageCache pageCache = new PageCache();
+
+    @Getter
+    @Setter
+    public static class PageCache {
+        private int segmentSize = 50;
+        private Duration ttl = Duration.ofMinutes(10);
+        private long maxSegments = 10_000;
+    }
+}
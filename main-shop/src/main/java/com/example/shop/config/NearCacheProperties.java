@@ -0,0 +1,21 @@
+package com.example.shop.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "shop.cache.near")
+public class NearCacheProperties {
+
+    private Set<String> cacheNames = Set.of("itemCard", "itemListPages");
+    private long maxSize = 10_000;
+    private Duration ttl = Duration.ofSeconds(30);
+    private String invalidationChannel = "shop:cache-invalidation";
+}
@@ -1,21 +1,27 @@
 package com.example.shop.config;
 
+import com.example.shop.services.PaymentAccessTokens;
+import com.example.shop.services.PaymentCallInstrumentation;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.security.oauth2.client.*;
 import org.springframework.security.oauth2.client.registration.*;
-import org.springframework.security.oauth2.client.web.reactive.function.client.ServerOAuth2AuthorizedClientExchangeFilterFunction;
 import org.springframework.security.oauth2.core.AuthorizationGrantType;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
 
 @Configuration
 public class OAuth2ClientConfig {
 
+    /** Client registration used for calls to payments; payments keys balances by this client. */
+    public static final String PAYMENTS_REGISTRATION_ID = "main-shop-client";
+
     @Bean
     public ReactiveClientRegistrationRepository reactiveClientRegistrationRepository
             (@Value("${spring.security.oauth2.client.provider.auth-server.token-uri}") String tokenUri) {
-        ClientRegistration reg = ClientRegistration.withRegistrationId("main-shop-client")
+        ClientRegistration reg = ClientRegistration.withRegistrationId(PAYMENTS_REGISTRATION_ID)
                 .clientId("main-shop-client")
                 .clientSecret("secret")
                 .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
@@ -32,13 +38,18 @@ public class OAuth2ClientConfig {
         return new InMemoryReactiveOAuth2AuthorizedClientService(registrations);
     }
 
+    /**
+     * A stored token is replaced once it expires within {@code payment.client.token.refresh-ahead};
+     * {@link PaymentAccessTokens} calls this in the background, ahead of the requests.
+     */
     @Bean
     public ReactiveOAuth2AuthorizedClientManager reactiveAuthorizedClientManager(
             ReactiveClientRegistrationRepository registrations,
-            ReactiveOAuth2AuthorizedClientService clientService
+            ReactiveOAuth2AuthorizedClientService clientService,
+            PaymentClientProperties properties
     ) {
         var provider = ReactiveOAuth2AuthorizedClientProviderBuilder.builder()
-                .clientCredentials()
+                .clientCredentials(credentials -> credentials.clockSkew(properties.getToken().getRefreshAhead()))
                 .build();
 
         var manager = new AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager(registrations, clientService);
@@ -47,18 +58,14 @@ public class OAuth2ClientConfig {
     }
 
     @Bean
-    public WebClient oauth2WebClient(ReactiveOAuth2AuthorizedClientManager manager) {
-        var oauth2 = new ServerOAuth2AuthorizedClientExchangeFilterFunction(manager);
-        oauth2.setDefaultClientRegistrationId("main-shop-client");
-
+    public WebClient oauth2WebClient(PaymentAccessTokens accessTokens,
+                                     PaymentCallInstrumentation instrumentation,
+                                     HttpClient paymentsHttpClient) {
         return WebClient.builder()
-                .filter(oauth2)
-                .filter((request, next) -> {
-                    String auth = request.headers().getFirst("Authorization");
-                    System.out.println(">>> Outgoing Authorization: " +
-                            (auth == null ? "null" : "Bearer " + auth.substring(7, Math.min(auth.length(), 27)) + "..."));
-                    return next.exchange(request);
-                })
+                .clientConnector(new ReactorClientHttpConnector(paymentsHttpClient))
+                .filter(instrumentation.start())
+                .filter(accessTokens.bearer())
+                .filter(instrumentation.record())
                 .build();
     }
 }
@@ -2,14 +2,30 @@ package com.example.shop.config;
 
 import com.example.payments.client.api.PaymentsApi;
 import com.example.payments.client.invoker.ApiClient;
+import com.example.shop.services.PaymentServiceClient;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
 public class PaymentClientConfig {
 
+    static final String PAYMENTS = "payments";
+
     @Bean
     public PaymentsApi paymentsApi(
             @Value("${payment.service.base-url}") String baseUrl,
@@ -19,4 +35,65 @@ public class PaymentClientConfig {
         apiClient.setBasePath(baseUrl);
         return new PaymentsApi(apiClient);
     }
-}
\ No newline at end of file
+
+    /**
+     * Dedicated pool for payments. Pool gauges are published as {@code reactor.netty.connection.provider.*}
+     * with {@code name=payments}; with h2c the stream gauges ({@code active.streams}, {@code pending.streams})
+     * come from the HTTP/2 pool on top of it and carry {@code name=http2.payments}.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider paymentsConnectionProvider(PaymentClientProperties properties) {
+        PaymentClientProperties.Pool pool = properties.getPool();
+        return ConnectionProvider.builder(PAYMENTS)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictInBackground())
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public HttpClient paymentsHttpClient(ConnectionProvider paymentsConnectionProvider, PaymentClientProperties properties) {
+        HttpClient client = HttpClient.create(paymentsConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true);
+        return properties.isH2c()
+                ? client.protocol(HttpProtocol.H2C)
+                : client;
+    }
+
+    /**
+     * Opens on failed or slow calls to payments; only failures that say nothing about the request itself
+     * (timeouts, connection errors, 5xx) count, so declined payments never trip it.
+     */
+    @Bean
+    public CircuitBreaker paymentsCircuitBreaker(PaymentClientProperties properties, MeterRegistry meterRegistry) {
+        PaymentClientProperties.CircuitBreaker cb = properties.getCircuitBreaker();
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(cb.getFailureRateThreshold())
+                .slowCallRateThreshold(cb.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(cb.getSlowCallDuration())
+                .slidingWindowSize(cb.getSlidingWindowSize())
+                .minimumNumberOfCalls(cb.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(cb.getWaitInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(cb.getPermittedCallsInHalfOpenState())
+                .recordException(PaymentServiceClient::isTransient)
+                .build());
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry.circuitBreaker(PAYMENTS);
+    }
+
+    @Bean
+    public Bulkhead paymentsBulkhead(PaymentClientProperties properties, MeterRegistry meterRegistry) {
+        BulkheadRegistry registry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(properties.getBulkhead().getMaxConcurrentCalls())
+                .maxWaitDuration(properties.getBulkhead().getMaxWait())
+                .build());
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry.bulkhead(PAYMENTS);
+    }
+}
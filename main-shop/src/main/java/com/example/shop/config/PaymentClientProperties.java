@@ -0,0 +1,92 @@
+package com.example.shop.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "payment.client")
+public class PaymentClientProperties {
+
+    private Duration balanceTimeout = Duration.ofSeconds(2);
+    private Duration payTimeout = Duration.ofSeconds(5);
+
+    /** How long a fetched balance is reused; it is dropped as soon as a payment is made. */
+    private Duration balanceTtl = Duration.ofSeconds(5);
+
+    /** Share of outbound calls logged at debug level (0..1). */
+    private double logSampleRate = 0.01;
+
+    private Pool pool = new Pool();
+
+    /**
+     * Talk HTTP/2 over cleartext (prior knowledge) to payments, multiplexing calls over few connections.
+     * Payments must run with {@code server.http2.enabled}; there is no HTTP/1.1 fallback.
+     */
+    private boolean h2c = false;
+
+    private Duration connectTimeout = Duration.ofSeconds(1);
+
+    private Bulkhead bulkhead = new Bulkhead();
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private Retry payRetry = new Retry();
+    private Token token = new Token();
+
+    public enum TokenStore {
+        MEMORY, REDIS
+    }
+
+    @Getter
+    @Setter
+    public static class Pool {
+        private int maxConnections = 50;
+        private int pendingAcquireMaxCount = 200;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictInBackground = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Bulkhead {
+        private int maxConcurrentCalls = 20;
+        private Duration maxWait = Duration.ZERO;
+    }
+
+    @Getter
+    @Setter
+    public static class CircuitBreaker {
+        private float failureRateThreshold = 50;
+        private float slowCallRateThreshold = 100;
+        private Duration slowCallDuration = Duration.ofSeconds(2);
+        private int slidingWindowSize = 20;
+        private int minimumNumberOfCalls = 10;
+        private Duration waitInOpenState = Duration.ofSeconds(10);
+        private int permittedCallsInHalfOpenState = 3;
+    }
+
+    @Getter
+    @Setter
+    public static class Retry {
+        private int maxAttempts = 2;
+        private Duration backoff = Duration.ofMillis(200);
+    }
+
+    @Getter
+    @Setter
+    public static class Token {
+        /** {@code redis} shares one access token between all shop nodes. */
+        private TokenStore store = TokenStore.MEMORY;
+        /** The token is replaced in the background once it expires within this window. */
+        private Duration refreshAhead = Duration.ofMinutes(2);
+        private Duration checkInterval = Duration.ofSeconds(10);
+        private Duration fetchTimeout = Duration.ofSeconds(5);
+        private String redisKeyPrefix = "shop:oauth2:authorized-client:";
+    }
+}
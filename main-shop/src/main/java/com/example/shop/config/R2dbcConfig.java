@@ -0,0 +1,43 @@
+package com.example.shop.config;
+
+import com.example.shop.models.Money;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Configuration
+public class R2dbcConfig {
+
+    /**
+     * Maps {@code DECIMAL(10,2)} price and total columns to {@link Money} for entities and query projections.
+     */
+    @Bean
+    public R2dbcCustomConversions r2dbcCustomConversions(DatabaseClient databaseClient) {
+        return R2dbcCustomConversions.of(DialectResolver.getDialect(databaseClient.getConnectionFactory()),
+                List.of(new DecimalToMoney(), new MoneyToDecimal()));
+    }
+
+    @ReadingConverter
+    static class DecimalToMoney implements Converter<BigDecimal, Money> {
+        @Override
+        public Money convert(BigDecimal source) {
+            return Money.of(source);
+        }
+    }
+
+    @WritingConverter
+    static class MoneyToDecimal implements Converter<Money, BigDecimal> {
+        @Override
+        public BigDecimal convert(Money source) {
+            return source.toBigDecimal();
+        }
+    }
+}
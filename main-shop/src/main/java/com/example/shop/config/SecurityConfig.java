@@ -34,6 +34,7 @@ public class SecurityConfig {
                 .authorizeExchange(exchange -> exchange
                         .pathMatchers("/images/**", "/css/**").permitAll()
                         .pathMatchers(HttpMethod.GET, "/", "/main/items", "/items/**").permitAll()
+                        .pathMatchers(HttpMethod.POST, "/items/*/edit").hasRole("ADMIN")
                         .anyExchange().authenticated()
                 )
                 .anonymous(Customizer.withDefaults())
@@ -36,9 +36,9 @@ public class CartController {
             @RequestParam String action
     ) {
         Mono<Void> op = switch (action) {
-            case "plus"   -> cartService.add(id, userDetails).then();
-            case "minus"  -> cartService.remove(id, userDetails).then();
-            case "delete" -> cartService.delete(id, userDetails).then();
+            case "plus"   -> cartService.add(id, userDetails);
+            case "minus"  -> cartService.remove(id, userDetails);
+            case "delete" -> cartService.delete(id, userDetails);
             default       -> Mono.empty();
         };
 
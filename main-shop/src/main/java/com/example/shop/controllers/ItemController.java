@@ -1,8 +1,10 @@
 package com.example.shop.controllers;
 
+import com.example.shop.dtos.ItemForm;
 import com.example.shop.models.CartItem;
 import com.example.shop.models.Item;
 import com.example.shop.models.ItemSort;
+import com.example.shop.models.Money;
 import com.example.shop.services.CartService;
 import com.example.shop.services.ItemService;
 import lombok.RequiredArgsConstructor;
@@ -41,9 +43,8 @@ public class ItemController {
             @RequestParam(defaultValue = "10") int pageSize,
             @RequestParam(defaultValue = "1") int pageNumber
     ) {
-        return Mono.fromCallable(() -> itemService.getItemsPageSync(search, sort, pageNumber, pageSize))
-                .subscribeOn(Schedulers.boundedElastic())
-                .zipWith(cartService.getOrCreateCart(userDetails))
+        return itemService.getItemsPage(search, sort, pageNumber, pageSize)
+                .zipWith(cartService.getCart(userDetails))
                 .map(tuple -> {
                     var page = tuple.getT1();
                     var cart = tuple.getT2();
@@ -102,8 +103,8 @@ public class ItemController {
             @RequestParam(defaultValue = "1") int pageNumber
     ) {
         Mono<Void> op = "plus".equals(action)
-                ? cartService.add(id, userDetails).then()
-                : cartService.remove(id, userDetails).then();
+                ? cartService.add(id, userDetails)
+                : cartService.remove(id, userDetails);
 
         return op.thenReturn(
                 String.format("redirect:/main/items?search=%s&sort=%s&pageSize=%d&pageNumber=%d",
@@ -118,7 +119,7 @@ public class ItemController {
     ) {
         return Mono.fromCallable(() -> itemService.getItemCardSync(id))
                 .subscribeOn(Schedulers.boundedElastic())
-                .zipWith(cartService.getOrCreateCart(userDetails))
+                .zipWith(cartService.getCart(userDetails))
                 .map(tuple -> {
                     var dto  = tuple.getT1();
                     var cart = tuple.getT2();
@@ -139,6 +140,7 @@ public class ItemController {
 
                     return Rendering.view("item")
                             .modelAttribute("item", vm)
+                            .modelAttribute("canEdit", isAdmin(userDetails))
                             .build();
                 });
     }
@@ -150,9 +152,23 @@ public class ItemController {
             @RequestParam String action
     ) {
         Mono<Void> op = "plus".equals(action)
-                ? cartService.add(id, userDetails).then()
-                : cartService.remove(id, userDetails).then();
+                ? cartService.add(id, userDetails)
+                : cartService.remove(id, userDetails);
 
         return op.thenReturn("redirect:/items/" + id);
     }
-}
\ No newline at end of file
+
+    @PostMapping("/items/{id}/edit")
+    public Mono<String> editItem(
+            @PathVariable Long id,
+            @ModelAttribute ItemForm form
+    ) {
+        return itemService.update(id, form.title(), form.description(), Money.of(form.price()))
+                .thenReturn("redirect:/items/" + id);
+    }
+
+    private static boolean isAdmin(UserDetails userDetails) {
+        return userDetails != null && userDetails.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+    }
+}
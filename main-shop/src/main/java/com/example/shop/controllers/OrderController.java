@@ -24,12 +24,16 @@ public class OrderController {
     }
 
     @GetMapping("/orders")
-    public Mono<Rendering> listOrders(@AuthenticationPrincipal UserDetails userDetails) {
-        return orderService.findAllForUser(userDetails)
-                .collectList()
-                .map(orders ->
+    public Mono<Rendering> listOrders(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return orderService.findPageForUser(userDetails, before, Math.max(1, Math.min(size, 100)))
+                .map(page ->
                         Rendering.view("orders")
-                                .modelAttribute("orders", orders)
+                                .modelAttribute("orders", page.orders())
+                                .modelAttribute("page", page)
                                 .build()
                 );
     }
@@ -0,0 +1,17 @@
+package com.example.shop.dtos;
+
+/**
+ * One row of the cart join: the user's cart (if any) with one of its lines and the line's item.
+ * Cart and line columns are {@code null} when the user has no cart or the cart has no lines.
+ */
+public record CartLine(
+        Long userId,
+        Long cartId,
+        Long cartItemId,
+        Integer count,
+        Long itemId,
+        String title,
+        String description,
+        String imgPath,
+        com.example.shop.models.Money price
+) {}
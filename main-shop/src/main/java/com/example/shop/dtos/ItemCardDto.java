@@ -1,5 +1,5 @@
 package com.example.shop.dtos;
 
 public record ItemCardDto(
-        Long id, String imgPath, String title, String description, java.math.BigDecimal price
-) implements java.io.Serializable { private static final long serialVersionUID = 1L; }
\ No newline at end of file
+        Long id, String imgPath, String title, String description, com.example.shop.models.Money price
+) implements java.io.Serializable { private static final long serialVersionUID = 2L; }
\ No newline at end of file
@@ -0,0 +1,6 @@
+package com.example.shop.dtos;
+
+import java.math.BigDecimal;
+
+public record ItemForm(String title, String description, BigDecimal price) {
+}
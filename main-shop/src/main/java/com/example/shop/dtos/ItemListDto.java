@@ -4,6 +4,6 @@ public record ItemListDto(
         Long id,
         String title,
         String description,
-        java.math.BigDecimal price,
+        com.example.shop.models.Money price,
         String imgPath
-) implements java.io.Serializable { private static final long serialVersionUID = 1L; }
+) implements java.io.Serializable { private static final long serialVersionUID = 2L; }
@@ -0,0 +1,17 @@
+package com.example.shop.dtos;
+
+/**
+ * One row of the order detail read: the order columns repeated on each of its lines.
+ * Line columns are {@code null} for an order without lines.
+ */
+public record OrderLine(
+        Long orderId,
+        Long userId,
+        com.example.shop.models.Money total,
+        Long lineId,
+        Long itemId,
+        Integer count,
+        String title,
+        com.example.shop.models.Money price,
+        String imgPath
+) {}
@@ -0,0 +1,7 @@
+package com.example.shop.dtos;
+
+public record OrderSummary(
+        Long id,
+        com.example.shop.models.Money total,
+        int lineCount
+) {}
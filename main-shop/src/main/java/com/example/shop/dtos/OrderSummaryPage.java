@@ -0,0 +1,11 @@
+package com.example.shop.dtos;
+
+/**
+ * One window of a user's order history, newest first; {@code nextBefore} is the cursor
+ * for the following window, or {@code null} on the last one.
+ */
+public record OrderSummaryPage(
+        java.util.List<OrderSummary> orders,
+        Long nextBefore,
+        int size
+) {}
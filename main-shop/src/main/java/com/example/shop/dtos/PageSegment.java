@@ -0,0 +1,5 @@
+package com.example.shop.dtos;
+
+public record PageSegment(
+        java.util.List<ItemListDto> items, long total
+) implements java.io.Serializable { private static final long serialVersionUID = 1L; }
@@ -0,0 +1,16 @@
+package com.example.shop.events;
+
+/**
+ * Raised after an item row changed, so caches, the catalog snapshot and the search index follow. Published by
+ * {@link com.example.shop.services.ItemService#update} when an admin edits an item; publish it off the event
+ * loop, since listeners evict through the blocking Redis cache API.
+ *
+ * @param remote the item was changed on another shop node and the change relayed here by
+ *               {@link com.example.shop.services.ItemChangeBroadcaster}
+ */
+public record ItemChangedEvent(Long itemId, boolean remote) {
+
+    public ItemChangedEvent(Long itemId) {
+        this(itemId, false);
+    }
+}
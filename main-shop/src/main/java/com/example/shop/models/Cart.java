@@ -7,7 +7,6 @@ import lombok.Setter;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Transient;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,11 +24,12 @@ public class Cart {
     @Transient
     private List<CartItem> items = new ArrayList<>();
 
-    public BigDecimal getTotal() {
-        return items.stream()
-                .map(ci -> ci.getItem().getPrice()
-                        .multiply(BigDecimal.valueOf(ci.getCount())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public Money getTotal() {
+        long total = 0;
+        for (CartItem ci : items) {
+            total = Math.addExact(total, Math.multiplyExact(ci.getItem().getPrice().minorUnits(), ci.getCount()));
+        }
+        return Money.ofMinor(total);
     }
 
     public boolean isEmpty() {
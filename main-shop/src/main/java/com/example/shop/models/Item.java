@@ -8,9 +8,6 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.relational.core.mapping.Table;
 import org.springframework.data.annotation.Transient;
 
-import java.math.BigDecimal;
-
-
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
@@ -26,7 +23,7 @@ public class Item {
 
     private String imgPath;
 
-    private BigDecimal price;
+    private Money price;
 
     @Transient
     private int count = 0;
@@ -1,5 +1,16 @@
 package com.example.shop.models;
 
+import org.springframework.data.domain.Sort;
+
 public enum ItemSort {
-    NO, ALPHA, PRICE
+    NO, ALPHA, PRICE, RELEVANCE;
+
+    public Sort toSort() {
+        Sort byId = Sort.by("id").ascending();
+        return switch (this) {
+            case ALPHA -> Sort.by(Sort.Order.asc("title").nullsLast()).and(byId);
+            case PRICE -> Sort.by(Sort.Order.asc("price").nullsLast()).and(byId);
+            case NO, RELEVANCE -> byId;
+        };
+    }
 }
@@ -0,0 +1,63 @@
+package com.example.shop.models;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * An amount in roubles held as a count of kopecks. Prices, totals and payments are computed in {@code long}
+ * arithmetic; {@link BigDecimal} only appears where a {@code DECIMAL(10,2)} column is read or written.
+ */
+public record Money(long minorUnits) implements Comparable<Money>, Serializable {
+
+    public static final Money ZERO = new Money(0);
+
+    private static final int SCALE = 2;
+
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the amount has fractions of a kopeck
+     */
+    public static Money of(BigDecimal amount) {
+        try {
+            return ofMinor(amount.movePointRight(SCALE).longValueExact());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount must have at most " + SCALE + " decimal places: " + amount);
+        }
+    }
+
+    public static Money of(String amount) {
+        return of(new BigDecimal(amount));
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money times(long count) {
+        return ofMinor(Math.multiplyExact(minorUnits, count));
+    }
+
+    public boolean isLessThan(Money other) {
+        return minorUnits < other.minorUnits;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    /** Same text as the {@code DECIMAL(10,2)} value, e.g. {@code 1234.50}. */
+    @Override
+    public String toString() {
+        long kopecks = Math.abs(minorUnits % 100);
+        String roubles = Long.toString(minorUnits / 100);
+        return (minorUnits < 0 && minorUnits > -100 ? "-" : "") + roubles + (kopecks < 10 ? ".0" : ".") + kopecks;
+    }
+}
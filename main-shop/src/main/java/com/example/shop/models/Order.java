@@ -8,7 +8,6 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Transient;
 import org.springframework.data.relational.core.mapping.Table;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -27,16 +26,17 @@ public class Order {
     @Transient
     private List<OrderItem> items = new ArrayList<>();
 
-    private BigDecimal total;
+    private Money total;
 
     public void computeTotal() {
-        this.total = items.stream()
-                .map(oi -> oi.getItem().getPrice()
-                        .multiply(BigDecimal.valueOf(oi.getCount())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long sum = 0;
+        for (OrderItem oi : items) {
+            sum = Math.addExact(sum, Math.multiplyExact(oi.getPrice().minorUnits(), oi.getCount()));
+        }
+        this.total = Money.ofMinor(sum);
     }
 
     public Long id() { return id; }
     public List<OrderItem> items() { return items; }
-    public BigDecimal totalSum() { return total; }
+    public Money totalSum() { return total; }
 }
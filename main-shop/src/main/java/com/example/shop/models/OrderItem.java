@@ -7,8 +7,6 @@ import lombok.Setter;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Transient;
 
-import java.math.BigDecimal;
-
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
@@ -23,15 +21,14 @@ public class OrderItem {
 
     private int count;
 
+    // snapshot of the item at checkout, so the order stays correct after the item changes
+    private String title;
+    private Money price;
+    private String imgPath;
+
     @Transient
     private Item item;
 
     @Transient
     private Order order;
-
-    public Long getId()          { return item.getId();          }
-    public String getTitle()     { return item.getTitle();       }
-    public String getDescription(){ return item.getDescription(); }
-    public String getImgPath()   { return item.getImgPath();     }
-    public BigDecimal getPrice() { return item.getPrice();       }
 }
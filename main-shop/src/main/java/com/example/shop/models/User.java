@@ -15,4 +15,5 @@ public class User {
     private String name;
     private String email;
     private String password;
+    private String role;
 }
\ No newline at end of file
@@ -1,11 +1,38 @@
 package com.example.shop.repositories;
 
-import com.example.shop.models.Cart;
 import com.example.shop.models.CartItem;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface CartItemRepository  extends R2dbcRepository<CartItem, Long> {
     Flux<CartItem> findByCartId(Long cartId);
-}
\ No newline at end of file
+
+    @Modifying
+    @Query("""
+            MERGE INTO cart_item t
+            USING (VALUES (CAST(:cartId AS BIGINT), CAST(:itemId AS BIGINT))) AS s (cart_id, item_id)
+            ON t.cart_id = s.cart_id AND t.item_id = s.item_id
+            WHEN MATCHED THEN UPDATE SET count = t.count + 1
+            WHEN NOT MATCHED THEN INSERT (cart_id, item_id, count) VALUES (s.cart_id, s.item_id, 1)
+            """)
+    Mono<Integer> increment(Long cartId, Long itemId);
+
+    @Modifying
+    @Query("UPDATE cart_item SET count = count - 1 WHERE cart_id = :cartId AND item_id = :itemId AND count > 1")
+    Mono<Integer> decrementAboveOne(Long cartId, Long itemId);
+
+    @Modifying
+    @Query("DELETE FROM cart_item WHERE cart_id = :cartId AND item_id = :itemId AND count <= 1")
+    Mono<Integer> deleteIfSingle(Long cartId, Long itemId);
+
+    @Modifying
+    @Query("DELETE FROM cart_item WHERE cart_id = :cartId AND item_id = :itemId")
+    Mono<Integer> deleteByCartIdAndItemId(Long cartId, Long itemId);
+
+    @Modifying
+    @Query("DELETE FROM cart_item WHERE cart_id = :cartId")
+    Mono<Integer> deleteByCartId(Long cartId);
+}
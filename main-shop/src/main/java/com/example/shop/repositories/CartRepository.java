@@ -1,9 +1,36 @@
 package com.example.shop.repositories;
 
+import com.example.shop.dtos.CartLine;
 import com.example.shop.models.Cart;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface CartRepository extends R2dbcRepository<Cart, Long> {
     Mono<Cart> findByUserId(Long userId);
-}
\ No newline at end of file
+
+    @Query("SELECT c.id FROM cart c JOIN users u ON u.id = c.user_id WHERE u.email = :email")
+    Mono<Long> findIdByUserEmail(String email);
+
+    @Query("SELECT c.flushed_version FROM cart c JOIN users u ON u.id = c.user_id WHERE u.email = :email")
+    Mono<Long> findFlushedVersionByEmail(String email);
+
+    @Modifying
+    @Query("UPDATE cart SET flushed_version = :version WHERE id = :cartId AND flushed_version < :version")
+    Mono<Integer> advanceFlushedVersion(Long cartId, long version);
+
+    @Query("""
+            SELECT u.id AS user_id, c.id AS cart_id, ci.id AS cart_item_id, ci.count AS count,
+                   i.id AS item_id, i.title AS title, i.description AS description,
+                   i.img_path AS img_path, i.price AS price
+            FROM users u
+            LEFT JOIN cart c ON c.user_id = u.id
+            LEFT JOIN cart_item ci ON ci.cart_id = c.id
+            LEFT JOIN item i ON i.id = ci.item_id
+            WHERE u.email = :email
+            ORDER BY ci.id
+            """)
+    Flux<CartLine> findCartLinesByEmail(String email);
+}
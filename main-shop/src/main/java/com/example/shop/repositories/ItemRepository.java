@@ -1,12 +1,16 @@
 package com.example.shop.repositories;
 
 import com.example.shop.models.Item;
+import com.example.shop.models.ItemSort;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.math.BigDecimal;
+
 public interface ItemRepository extends R2dbcRepository<Item, Long> {
     Flux<Item> findByTitleContainingIgnoreCaseOrDescriptionContainingIgnoreCase(
             String title,
@@ -19,10 +23,62 @@ public interface ItemRepository extends R2dbcRepository<Item, Long> {
             String description
     );
 
+    Flux<Item> findAllBy(Pageable pageable);
+
+    @Query("SELECT * FROM item WHERE id > :afterId ORDER BY id LIMIT :limit")
+    Flux<Item> findAfterId(long afterId, int limit);
+
+    // NULL titles and prices sort last, as in ItemSort.toSort; a comparison with NULL is never true,
+    // so rows past a NULL boundary are matched by the IS NULL branches
+
+    @Query("""
+            SELECT * FROM item
+            WHERE title > :title OR (title = :title AND id > :afterId) OR title IS NULL
+            ORDER BY title NULLS LAST, id
+            LIMIT :limit
+            """)
+    Flux<Item> findAfterTitle(String title, long afterId, int limit);
+
+    @Query("""
+            SELECT * FROM item
+            WHERE title IS NULL AND id > :afterId
+            ORDER BY id
+            LIMIT :limit
+            """)
+    Flux<Item> findAfterNullTitle(long afterId, int limit);
+
+    @Query("""
+            SELECT * FROM item
+            WHERE price > :price OR (price = :price AND id > :afterId) OR price IS NULL
+            ORDER BY price NULLS LAST, id
+            LIMIT :limit
+            """)
+    Flux<Item> findAfterPrice(BigDecimal price, long afterId, int limit);
+
+    @Query("""
+            SELECT * FROM item
+            WHERE price IS NULL AND id > :afterId
+            ORDER BY id
+            LIMIT :limit
+            """)
+    Flux<Item> findAfterNullPrice(long afterId, int limit);
+
     default Flux<Item> findAll(Pageable pageable) {
-        Sort sort = pageable.getSort();
-        return this.findAll(sort)
-                .skip(pageable.getOffset())
-                .take(pageable.getPageSize());
+        return findAllBy(pageable);
+    }
+
+    default Flux<Item> findPageAfter(ItemSort sort, Item last, int limit) {
+        if (last == null) {
+            return findAllBy(PageRequest.of(0, limit, sort.toSort()));
+        }
+        return switch (sort) {
+            case ALPHA -> last.getTitle() == null
+                    ? findAfterNullTitle(last.getId(), limit)
+                    : findAfterTitle(last.getTitle(), last.getId(), limit);
+            case PRICE -> last.getPrice() == null
+                    ? findAfterNullPrice(last.getId(), limit)
+                    : findAfterPrice(last.getPrice().toBigDecimal(), last.getId(), limit);
+            case NO, RELEVANCE -> findAfterId(last.getId(), limit);
+        };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,14 @@
+package com.example.shop.repositories;
+
+import com.example.shop.models.OrderItem;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface OrderItemBatchRepository {
+
+    /**
+     * Inserts all lines of an order with one batched statement.
+     */
+    Mono<Void> insertAll(Long orderId, List<OrderItem> items);
+}
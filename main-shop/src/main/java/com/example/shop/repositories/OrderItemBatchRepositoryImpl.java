@@ -0,0 +1,52 @@
+package com.example.shop.repositories;
+
+import com.example.shop.models.OrderItem;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@RequiredArgsConstructor
+class OrderItemBatchRepositoryImpl implements OrderItemBatchRepository {
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Mono<Void> insertAll(Long orderId, List<OrderItem> items) {
+        if (items.isEmpty()) {
+            return Mono.empty();
+        }
+        return databaseClient.inConnectionMany(connection -> {
+                    Statement statement = connection.createStatement(
+                            """
+                            INSERT INTO order_item (order_id, item_id, count, title, price, img_path)
+                            VALUES ($1, $2, $3, $4, $5, $6)
+                            """);
+                    for (int i = 0; i < items.size(); i++) {
+                        if (i > 0) {
+                            statement.add();
+                        }
+                        OrderItem item = items.get(i);
+                        statement.bind(0, orderId).bind(1, item.getItemId()).bind(2, item.getCount());
+                        bindNullable(statement, 3, item.getTitle(), String.class);
+                        bindNullable(statement, 4, item.getPrice() == null ? null : item.getPrice().toBigDecimal(), BigDecimal.class);
+                        bindNullable(statement, 5, item.getImgPath(), String.class);
+                    }
+                    return Flux.from(statement.execute()).flatMap(Result::getRowsUpdated);
+                })
+                .then();
+    }
+
+    private static <T> void bindNullable(Statement statement, int index, T value, Class<T> type) {
+        if (value == null) {
+            statement.bindNull(index, type);
+        } else {
+            statement.bind(index, value);
+        }
+    }
+}
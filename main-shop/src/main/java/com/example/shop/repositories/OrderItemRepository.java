@@ -4,6 +4,6 @@ import com.example.shop.models.OrderItem;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
 import reactor.core.publisher.Flux;
 
-public interface OrderItemRepository extends R2dbcRepository<OrderItem, Long> {
+public interface OrderItemRepository extends R2dbcRepository<OrderItem, Long>, OrderItemBatchRepository {
     Flux<OrderItem> findByOrderId(Long orderId);
-}
\ No newline at end of file
+}
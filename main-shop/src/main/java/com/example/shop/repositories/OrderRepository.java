@@ -1,9 +1,34 @@
 package com.example.shop.repositories;
 
+import com.example.shop.dtos.OrderLine;
+import com.example.shop.dtos.OrderSummary;
 import com.example.shop.models.Order;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
 import reactor.core.publisher.Flux;
 
 public interface OrderRepository extends R2dbcRepository<Order, Long> {
     Flux<Order> findByUserId(Long userId);
+
+    @Query("""
+            SELECT o.id AS id, o.total AS total,
+                   (SELECT COUNT(*) FROM order_item oi WHERE oi.order_id = o.id) AS line_count
+            FROM orders o
+            WHERE o.user_id = :userId AND o.id < :beforeId
+            ORDER BY o.id DESC
+            LIMIT :limit
+            """)
+    Flux<OrderSummary> findSummariesBefore(Long userId, long beforeId, int limit);
+
+    @Query("""
+            SELECT o.id AS order_id, o.user_id AS user_id, o.total AS total,
+                   oi.id AS line_id, oi.item_id AS item_id, oi.count AS count,
+                   oi.title AS title, oi.price AS price, oi.img_path AS img_path
+            FROM orders o
+            JOIN users u ON u.id = o.user_id
+            LEFT JOIN order_item oi ON oi.order_id = o.id
+            WHERE o.id = :orderId AND u.email = :email
+            ORDER BY oi.id
+            """)
+    Flux<OrderLine> findLinesByIdAndUserEmail(Long orderId, String email);
 }
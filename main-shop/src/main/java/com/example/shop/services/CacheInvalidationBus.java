@@ -0,0 +1,84 @@
+package com.example.shop.services;
+
+import com.example.shop.config.NearCacheProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts near-cache invalidations, and item changes for {@link ItemChangeBroadcaster}, to every shop node
+ * over a Redis channel.
+ * Messages have the form {@code nodeId|cacheName|key}; the key {@code *} clears the whole cache.
+ * A node ignores its own messages, since it has already invalidated locally.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CacheInvalidationBus implements SmartLifecycle {
+
+    public static final String ALL_KEYS = "*";
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, Consumer<String>> localInvalidators = new ConcurrentHashMap<>();
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ReactiveRedisMessageListenerContainer listenerContainer;
+    private final NearCacheProperties properties;
+
+    private volatile Disposable subscription;
+
+    public void register(String cacheName, Consumer<String> invalidator) {
+        localInvalidators.put(cacheName, invalidator);
+    }
+
+    public Mono<Void> publish(String cacheName, String key) {
+        return redisTemplate.convertAndSend(properties.getInvalidationChannel(), nodeId + "|" + cacheName + "|" + key)
+                .doOnError(e -> log.warn("Failed to broadcast invalidation of {}::{}", cacheName, key, e))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    void onMessage(String message) {
+        String[] parts = message.split("\\|", 3);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        Consumer<String> invalidator = localInvalidators.get(parts[1]);
+        if (invalidator != null) {
+            invalidator.accept(parts[2]);
+        }
+    }
+
+    @Override
+    public void start() {
+        subscription = listenerContainer.receive(ChannelTopic.of(properties.getInvalidationChannel()))
+                .map(message -> message.getMessage())
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe(this::onMessage);
+    }
+
+    @Override
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return subscription != null && !subscription.isDisposed();
+    }
+}
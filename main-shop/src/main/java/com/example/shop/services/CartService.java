@@ -1,58 +1,44 @@
 package com.example.shop.services;
 
 import com.example.shop.models.Cart;
-import com.example.shop.models.CartItem;
 import com.example.shop.models.Item;
-import com.example.shop.models.User;
-import com.example.shop.repositories.CartItemRepository;
-import com.example.shop.repositories.CartRepository;
-import com.example.shop.repositories.ItemRepository;
-import com.example.shop.repositories.UserRepository;
+import com.example.shop.models.Money;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Mono;
 
-import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class CartService {
 
-    private final CartRepository cartRepo;
-    private final CartItemRepository cartItemRepo;
-    private final ItemRepository itemRepo;
-    private final UserRepository userRepo;
+    private final CartStore cartStore;
     private final PaymentServiceClient paymentClient;
 
-    private Mono<User> getCurrentUser(UserDetails userDetails) {
-        if (userDetails == null) {
-            return Mono.empty();
-        }
-        return userRepo.findByEmail(userDetails.getUsername());
-    }
-
     private Cart createEmptyCart() {
         Cart empty = new Cart();
         empty.setItems(List.of());
         return empty;
     }
 
-    public Mono<Cart> getOrCreateCart(UserDetails userDetails) {
-        return getCurrentUser(userDetails)
-                .flatMap(user -> cartRepo.findByUserId(user.getId())
-                        .switchIfEmpty(Mono.defer(() -> {
-                            Cart newCart = new Cart();
-                            newCart.setUserId(user.getId());
-                            return cartRepo.save(newCart);
-                        }))
-                        .flatMap(cart -> loadCart(cart.getId()))
-                )
-                .switchIfEmpty(Mono.just(createEmptyCart()));
+    /**
+     * Read-only: never creates a cart.
+     */
+    public Mono<Cart> getCart(UserDetails userDetails) {
+        return findCart(userDetails)
+                .switchIfEmpty(Mono.fromSupplier(this::createEmptyCart));
+    }
+
+    private Mono<Cart> findCart(UserDetails userDetails) {
+        if (userDetails == null) {
+            return Mono.empty();
+        }
+        return cartStore.find(userDetails.getUsername());
     }
 
     private <T> Mono<T> denyIfAnonymous(UserDetails userDetails) {
@@ -62,130 +48,62 @@ public class CartService {
         return Mono.empty();
     }
 
-    @Transactional
-    public Mono<Cart> add(Long itemId, UserDetails userDetails) {
+    public Mono<Void> add(Long itemId, UserDetails userDetails) {
         return denyIfAnonymous(userDetails)
-                .then(getOrCreateCart(userDetails))
-                .flatMap(cart -> {
-                    Long cid = cart.getId();
-                    if (cid == null) {
-                        return Mono.error(new IllegalStateException("Cart not persisted for authenticated user."));
-                    }
-                    return itemRepo.findById(itemId)
-                            .switchIfEmpty(Mono.error(new IllegalArgumentException("No item " + itemId)))
-                            .flatMap(item ->
-                                    cartItemRepo.findByCartId(cid)
-                                            .filter(ci -> ci.getItemId().equals(itemId))
-                                            .next()
-                                            .flatMap(existing -> {
-                                                existing.setCount(existing.getCount() + 1);
-                                                return cartItemRepo.save(existing);
-                                            })
-                                            .switchIfEmpty(Mono.defer(() -> {
-                                                CartItem ci = new CartItem();
-                                                ci.setCartId(cid);
-                                                ci.setItemId(itemId);
-                                                ci.setCount(1);
-                                                return cartItemRepo.save(ci);
-                                            }))
-                            )
-                            .thenReturn(cid);
-                })
-                .flatMap(this::loadCart);
+                .then(Mono.defer(() -> cartStore.increment(userDetails.getUsername(), itemId)));
     }
 
-    @Transactional
-    public Mono<Cart> remove(Long itemId, UserDetails userDetails) {
+    public Mono<Void> remove(Long itemId, UserDetails userDetails) {
         return denyIfAnonymous(userDetails)
-                .then(getOrCreateCart(userDetails))
-                .flatMap(cart -> {
-                    Long cid = cart.getId();
-                    if (cid == null) {
-                        return Mono.error(new IllegalStateException("Cart not persisted for authenticated user."));
-                    }
-                    return cartItemRepo.findByCartId(cid)
-                            .filter(ci -> ci.getItemId().equals(itemId))
-                            .next()
-                            .flatMap(ci -> {
-                                if (ci.getCount() > 1) {
-                                    ci.setCount(ci.getCount() - 1);
-                                    return cartItemRepo.save(ci).thenReturn(cid);
-                                } else {
-                                    return cartItemRepo.delete(ci).thenReturn(cid);
-                                }
-                            });
-                })
-                .flatMap(this::loadCart);
+                .then(Mono.defer(() -> cartStore.decrement(userDetails.getUsername(), itemId)));
     }
 
-    @Transactional
-    public Mono<Cart> delete(Long itemId, UserDetails userDetails) {
+    public Mono<Void> delete(Long itemId, UserDetails userDetails) {
         return denyIfAnonymous(userDetails)
-                .then(getOrCreateCart(userDetails))
-                .flatMap(cart -> {
-                    Long cid = cart.getId();
-                    if (cid == null) {
-                        return Mono.error(new IllegalStateException("Cart not persisted for authenticated user."));
-                    }
-                    return cartItemRepo.findByCartId(cid)
-                            .filter(ci -> ci.getItemId().equals(itemId))
-                            .next()
-                            .flatMap(ci -> cartItemRepo.delete(ci).thenReturn(cid));
-                })
-                .flatMap(this::loadCart);
+                .then(Mono.defer(() -> cartStore.remove(userDetails.getUsername(), itemId)));
     }
 
-    private Mono<Cart> loadCart(Long cartId) {
-        return cartRepo.findById(cartId)
-                .switchIfEmpty(Mono.error(new IllegalStateException("Cart not found: " + cartId)))
-                .flatMap(cart ->
-                        cartItemRepo.findByCartId(cartId)
-                                .flatMap(ci ->
-                                        itemRepo.findById(ci.getItemId())
-                                                .doOnNext(ci::setItem)
-                                                .thenReturn(ci)
-                                )
-                                .collectList()
-                                .doOnNext(cart::setItems)
-                                .thenReturn(cart)
-                );
+    public Mono<Void> clear(UserDetails userDetails) {
+        return denyIfAnonymous(userDetails)
+                .then(Mono.defer(() -> cartStore.clear(userDetails.getUsername())));
     }
 
+    /**
+     * The cart and the balance are fetched in parallel.
+     */
     public Mono<CartPageData> buildCartPageData(UserDetails userDetails) {
-        return getCurrentUser(userDetails)
-                .flatMap(u ->
-                        getOrCreateCart(userDetails)
-                                .flatMap(cart ->
-                                        paymentClient.getBalance().map(balance -> {
-                                            List<Item> items = cart.getItems().stream()
-                                                    .map(ci -> {
-                                                        Item i = ci.getItem();
-                                                        i.setCount(ci.getCount());
-                                                        return i;
-                                                    })
-                                                    .collect(Collectors.toList());
-
-                                            BigDecimal total = cart.getTotal();
-                                            boolean disableBuy = balance.compareTo(total) < 0;
-
-                                            return new CartPageData(items, total, cart.isEmpty(), balance, disableBuy);
-                                        })
-                                )
-                )
-                .switchIfEmpty(Mono.just(new CartPageData(
-                        List.of(),
-                        BigDecimal.ZERO,
-                        true,
-                        BigDecimal.ZERO,
-                        true
-                )));
+        CartPageData empty = new CartPageData(List.of(), Money.ZERO, true, Money.ZERO, true);
+        if (userDetails == null) {
+            return Mono.just(empty);
+        }
+        // payments unavailable: still render the cart, without a balance and with buying disabled
+        Mono<Optional<Money>> balance = paymentClient.getBalance()
+                .map(Optional::of)
+                .onErrorReturn(Optional.empty());
+
+        return findCart(userDetails)
+                .zipWith(balance, (cart, maybeBalance) -> {
+                    List<Item> items = cart.getItems().stream()
+                            .map(ci -> {
+                                Item i = ci.getItem();
+                                i.setCount(ci.getCount());
+                                return i;
+                            })
+                            .collect(Collectors.toList());
+                    Money total = cart.getTotal();
+
+                    return maybeBalance
+                            .map(b -> new CartPageData(items, total, cart.isEmpty(), b, b.isLessThan(total)))
+                            .orElseGet(() -> new CartPageData(items, total, cart.isEmpty(), null, true));
+                })
+                .defaultIfEmpty(empty);
     }
 
     public record CartPageData(
             List<Item> items,
-            BigDecimal total,
+            Money total,
             boolean empty,
-            BigDecimal balance,
+            Money balance,
             boolean disableBuy
     ) {}
 }
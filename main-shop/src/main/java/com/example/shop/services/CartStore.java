@@ -0,0 +1,26 @@
+package com.example.shop.services;
+
+import com.example.shop.models.Cart;
+import reactor.core.publisher.Mono;
+
+/**
+ * Storage of the per-user cart, keyed by the user's login email. Mutations are single atomic operations.
+ */
+public interface CartStore {
+
+    /**
+     * @return the cart with hydrated items, or empty when the user is unknown
+     */
+    Mono<Cart> find(String email);
+
+    Mono<Void> increment(String email, Long itemId);
+
+    /**
+     * Decrements the count of an item, removing the line when it reaches zero.
+     */
+    Mono<Void> decrement(String email, Long itemId);
+
+    Mono<Void> remove(String email, Long itemId);
+
+    Mono<Void> clear(String email);
+}
@@ -0,0 +1,85 @@
+package com.example.shop.services;
+
+import com.example.shop.config.CartProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Periodically copies carts marked dirty by {@link RedisCartStore} into the {@code cart_item} table,
+ * up to {@code batch-size} carts per tick. A cart that fails to flush is marked dirty again. Each snapshot
+ * carries the cart's version, so when two nodes flush the same cart the older snapshot never wins.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "shop.cart.store", havingValue = "redis")
+@RequiredArgsConstructor
+public class CartWriteBehindFlusher implements SmartLifecycle {
+
+    private static final Duration SHUTDOWN_FLUSH_TIMEOUT = Duration.ofSeconds(10);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final RedisCartStore redisCartStore;
+    private final JdbcCartStore jdbcCartStore;
+    private final CartProperties properties;
+
+    private volatile Disposable subscription;
+
+    Mono<Long> flushBatch() {
+        return redisTemplate.opsForSet().pop(RedisCartStore.DIRTY_KEY, properties.getWriteBehind().getBatchSize())
+                .concatMap(this::flushCart)
+                .count();
+    }
+
+    private Mono<String> flushCart(String email) {
+        // no counts: Redis lost the cart, and the database copy is all that is left of it
+        return redisCartStore.snapshot(email)
+                .flatMap(snapshot -> jdbcCartStore.replace(email, snapshot.counts(), snapshot.version()))
+                .thenReturn(email)
+                .onErrorResume(e -> {
+                    log.warn("Failed to flush cart of {}, will retry", email, e);
+                    return redisTemplate.opsForSet().add(RedisCartStore.DIRTY_KEY, email).thenReturn(email);
+                });
+    }
+
+    @Override
+    public void start() {
+        subscription = Flux.interval(properties.getWriteBehind().getInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> flushBatch()
+                        .onErrorResume(e -> {
+                            log.warn("Cart write-behind tick failed", e);
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+
+    @Override
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        try {
+            flushBatch()
+                    .repeat()
+                    .takeUntil(flushed -> flushed == 0)
+                    .then()
+                    .block(SHUTDOWN_FLUSH_TIMEOUT);
+        } catch (RuntimeException e) {
+            log.warn("Final cart flush did not complete; dirty carts stay marked in Redis", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return subscription != null && !subscription.isDisposed();
+    }
+}
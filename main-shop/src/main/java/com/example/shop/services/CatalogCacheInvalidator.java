@@ -0,0 +1,36 @@
+package com.example.shop.services;
+
+import com.example.shop.events.ItemChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CatalogCacheInvalidator {
+
+    private final CacheManager cacheManager;
+    private final ItemPageCache itemPageCache;
+
+    @EventListener
+    public void onItemChanged(ItemChangedEvent event) {
+        if (event.remote()) {
+            // the node that changed the item has already invalidated the near and shared caches everywhere
+            return;
+        }
+        Cache itemCard = cacheManager.getCache("itemCard");
+        if (itemCard != null) {
+            itemCard.evict(event.itemId());
+        }
+        itemPageCache.clear()
+                .doOnError(e -> log.warn("Failed to clear the item page cache after item {} changed, "
+                        + "listings may show the old item until the pages expire", event.itemId(), e))
+                .onErrorResume(e -> Mono.empty())
+                .subscribe();
+    }
+}
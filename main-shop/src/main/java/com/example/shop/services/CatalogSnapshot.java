@@ -0,0 +1,200 @@
+package com.example.shop.services;
+
+import com.example.shop.dtos.ItemListDto;
+import com.example.shop.models.ItemSort;
+import com.example.shop.models.Money;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable view of the whole catalog for browsing without a search term.
+ * Rows are kept in id order in parallel arrays; title and price orders are precomputed permutations
+ * of those positions, so any page for any sort is an array slice. Changes produce a new snapshot
+ * in O(n) array copies without re-sorting.
+ */
+public final class CatalogSnapshot {
+
+    private static final long NULL_PRICE = Long.MAX_VALUE;
+    private static final Comparator<String> TITLE_ORDER = Comparator.nullsLast(Comparator.naturalOrder());
+
+    private final long version;
+    private final long[] ids;
+    private final long[] prices;
+    private final ItemListDto[] rows;
+    private final int[] byTitle;
+    private final int[] byPrice;
+
+    private CatalogSnapshot(long version, long[] ids, long[] prices, ItemListDto[] rows, int[] byTitle, int[] byPrice) {
+        this.version = version;
+        this.ids = ids;
+        this.prices = prices;
+        this.rows = rows;
+        this.byTitle = byTitle;
+        this.byPrice = byPrice;
+    }
+
+    public static CatalogSnapshot of(long version, Collection<ItemListDto> items) {
+        ItemListDto[] rows = items.stream()
+                .sorted(Comparator.comparing(ItemListDto::id))
+                .toArray(ItemListDto[]::new);
+        long[] ids = Arrays.stream(rows).mapToLong(ItemListDto::id).toArray();
+        long[] prices = Arrays.stream(rows).mapToLong(row -> minorUnits(row.price())).toArray();
+
+        CatalogSnapshot unsorted = new CatalogSnapshot(version, ids, prices, rows, null, null);
+        return new CatalogSnapshot(version, ids, prices, rows,
+                unsorted.sortedPositions(unsorted::compareTitle),
+                unsorted.sortedPositions(unsorted::comparePrice));
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public List<ItemListDto> slice(ItemSort sort, long offset, int limit) {
+        int from = (int) Math.min(offset, ids.length);
+        int to = (int) Math.min(offset + limit, ids.length);
+        int[] order = switch (sort) {
+            case ALPHA -> byTitle;
+            case PRICE -> byPrice;
+            case NO, RELEVANCE -> null;
+        };
+
+        List<ItemListDto> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            page.add(rows[order == null ? i : order[i]]);
+        }
+        return page;
+    }
+
+    public CatalogSnapshot upsert(ItemListDto row) {
+        int pos = Arrays.binarySearch(ids, row.id());
+        if (pos >= 0) {
+            ItemListDto[] newRows = rows.clone();
+            long[] newPrices = prices.clone();
+            newRows[pos] = row;
+            newPrices[pos] = minorUnits(row.price());
+
+            CatalogSnapshot next = new CatalogSnapshot(version + 1, ids, newPrices, newRows, null, null);
+            return new CatalogSnapshot(version + 1, ids, newPrices, newRows,
+                    insertSorted(withoutPosition(byTitle, pos, false), pos, next::compareTitle),
+                    insertSorted(withoutPosition(byPrice, pos, false), pos, next::comparePrice));
+        }
+
+        int at = -pos - 1;
+        long[] newIds = insertAt(ids, at, row.id());
+        long[] newPrices = insertAt(prices, at, minorUnits(row.price()));
+        ItemListDto[] newRows = new ItemListDto[rows.length + 1];
+        System.arraycopy(rows, 0, newRows, 0, at);
+        newRows[at] = row;
+        System.arraycopy(rows, at, newRows, at + 1, rows.length - at);
+
+        CatalogSnapshot next = new CatalogSnapshot(version + 1, newIds, newPrices, newRows, null, null);
+        return new CatalogSnapshot(version + 1, newIds, newPrices, newRows,
+                insertSorted(shiftFrom(byTitle, at), at, next::compareTitle),
+                insertSorted(shiftFrom(byPrice, at), at, next::comparePrice));
+    }
+
+    public CatalogSnapshot remove(long id) {
+        int pos = Arrays.binarySearch(ids, id);
+        if (pos < 0) {
+            return this;
+        }
+        long[] newIds = removeAt(ids, pos);
+        long[] newPrices = removeAt(prices, pos);
+        ItemListDto[] newRows = new ItemListDto[rows.length - 1];
+        System.arraycopy(rows, 0, newRows, 0, pos);
+        System.arraycopy(rows, pos + 1, newRows, pos, rows.length - pos - 1);
+
+        return new CatalogSnapshot(version + 1, newIds, newPrices, newRows,
+                withoutPosition(byTitle, pos, true),
+                withoutPosition(byPrice, pos, true));
+    }
+
+    private int compareTitle(int a, int b) {
+        int byTitle = TITLE_ORDER.compare(rows[a].title(), rows[b].title());
+        return byTitle != 0 ? byTitle : Long.compare(ids[a], ids[b]);
+    }
+
+    private int comparePrice(int a, int b) {
+        int byPrice = Long.compare(prices[a], prices[b]);
+        return byPrice != 0 ? byPrice : Long.compare(ids[a], ids[b]);
+    }
+
+    private int[] sortedPositions(IntBinaryOperator comparator) {
+        return IntStream.range(0, ids.length)
+                .boxed()
+                .sorted(comparator::applyAsInt)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * Drops {@code pos} from a permutation; when {@code shift} is set, positions after it move down by one
+     * to follow the row removal.
+     */
+    private static int[] withoutPosition(int[] order, int pos, boolean shift) {
+        int[] result = new int[order.length - 1];
+        int j = 0;
+        for (int p : order) {
+            if (p != pos) {
+                result[j++] = shift && p > pos ? p - 1 : p;
+            }
+        }
+        return result;
+    }
+
+    private static int[] shiftFrom(int[] order, int at) {
+        int[] result = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = order[i] >= at ? order[i] + 1 : order[i];
+        }
+        return result;
+    }
+
+    private static int[] insertSorted(int[] order, int pos, IntBinaryOperator comparator) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparator.applyAsInt(order[mid], pos) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int[] result = new int[order.length + 1];
+        System.arraycopy(order, 0, result, 0, low);
+        result[low] = pos;
+        System.arraycopy(order, low, result, low + 1, order.length - low);
+        return result;
+    }
+
+    private static long[] insertAt(long[] values, int at, long value) {
+        long[] result = new long[values.length + 1];
+        System.arraycopy(values, 0, result, 0, at);
+        result[at] = value;
+        System.arraycopy(values, at, result, at + 1, values.length - at);
+        return result;
+    }
+
+    private static long[] removeAt(long[] values, int at) {
+        long[] result = new long[values.length - 1];
+        System.arraycopy(values, 0, result, 0, at);
+        System.arraycopy(values, at + 1, result, at, values.length - at - 1);
+        return result;
+    }
+
+    private static long minorUnits(Money price) {
+        return price == null ? NULL_PRICE : price.minorUnits();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.shop.services;
+
+import com.example.shop.dtos.ItemListDto;
+import com.example.shop.events.ItemChangedEvent;
+import com.example.shop.models.Item;
+import com.example.shop.repositories.ItemRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link CatalogSnapshot}. Readers take the reference without locking;
+ * item changes are applied copy-on-write and swapped in atomically.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CatalogSnapshotHolder {
+
+    private final ItemRepository itemRepository;
+
+    private final AtomicReference<CatalogSnapshot> current = new AtomicReference<>();
+    private final Set<Long> changedBeforeReady = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @return the current snapshot, or {@code null} while the initial load has not completed yet
+     */
+    public CatalogSnapshot current() {
+        return current.get();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        itemRepository.findAll()
+                .collectList()
+                .subscribe(this::install, e -> log.error("Failed to build catalog snapshot", e));
+    }
+
+    @EventListener
+    public void onItemChanged(ItemChangedEvent event) {
+        if (current.get() == null) {
+            changedBeforeReady.add(event.itemId());
+            // the initial load may have completed in between; whoever removes the id refreshes it
+            if (current.get() == null || !changedBeforeReady.remove(event.itemId())) {
+                return;
+            }
+        }
+        refresh(event.itemId());
+    }
+
+    void install(Collection<Item> items) {
+        current.set(CatalogSnapshot.of(0, items.stream().map(CatalogSnapshotHolder::toListDto).toList()));
+        log.info("Catalog snapshot built: {} items", items.size());
+        for (Long itemId : changedBeforeReady) {
+            if (changedBeforeReady.remove(itemId)) {
+                refresh(itemId);
+            }
+        }
+    }
+
+    private void refresh(Long itemId) {
+        itemRepository.findById(itemId)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .subscribe(
+                        item -> current.updateAndGet(snapshot -> item
+                                .map(it -> snapshot.upsert(toListDto(it)))
+                                .orElseGet(() -> snapshot.remove(itemId))),
+                        e -> log.warn("Failed to refresh item {} in catalog snapshot", itemId, e)
+                );
+    }
+
+    private static ItemListDto toListDto(Item item) {
+        return new ItemListDto(item.getId(), item.getTitle(), item.getDescription(), item.getPrice(), item.getImgPath());
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.shop.services;
+
+import com.example.shop.events.ItemChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Relays item changes between shop nodes over the {@link CacheInvalidationBus}: a local change is broadcast,
+ * and a change broadcast by another node is republished here as a remote {@link ItemChangedEvent}, so the
+ * search index and the catalog snapshot of every node follow it. Remote events are not broadcast again.
+ */
+@Component
+public class ItemChangeBroadcaster {
+
+    static final String TOPIC = "itemChanged";
+
+    private final CacheInvalidationBus invalidationBus;
+
+    public ItemChangeBroadcaster(CacheInvalidationBus invalidationBus, ApplicationEventPublisher eventPublisher) {
+        this.invalidationBus = invalidationBus;
+        invalidationBus.register(TOPIC, itemId -> eventPublisher.publishEvent(new ItemChangedEvent(Long.valueOf(itemId), true)));
+    }
+
+    @EventListener
+    public void onItemChanged(ItemChangedEvent event) {
+        if (!event.remote()) {
+            invalidationBus.publish(TOPIC, event.itemId().toString()).subscribe();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.shop.services;
+
+import com.example.shop.config.CacheConfig;
+import com.example.shop.config.CatalogProperties;
+import com.example.shop.config.NearCacheProperties;
+import com.example.shop.dtos.PageSegment;
+import com.example.shop.models.ItemSort;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.core.ReactiveRedisOperations;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Fixed-size catalog page segments in Redis, keyed by {@code query|sort|segment}.
+ * Every segment expires on its own TTL; a sorted-set index of segment keys (scored by write time)
+ * caps the total number of segments and evicts the oldest ones once the cap is exceeded.
+ * When {@code itemListPages} is a near cache, segments are also kept in a size-bounded in-process L1.
+ */
+@Slf4j
+@Component
+public class ItemPageCache {
+
+    static final String CACHE_NAME = "itemListPages";
+    static final String KEY_PREFIX = CACHE_NAME + ":" + CacheConfig.KEY_VERSION;
+    static final String INDEX_KEY = KEY_PREFIX + ":index";
+
+    private final ReactiveRedisOperations<String, Object> catalogRedisTemplate;
+    private final CatalogProperties catalogProperties;
+    private final CacheInvalidationBus invalidationBus;
+    private final Cache<String, PageSegment> l1;
+
+    private final Counter l1Hits;
+    private final Counter l1Misses;
+    private final Counter l2Hits;
+    private final Counter l2Misses;
+
+    public ItemPageCache(ReactiveRedisOperations<String, Object> catalogRedisTemplate,
+                         CatalogProperties catalogProperties,
+                         NearCacheProperties nearCacheProperties,
+                         CacheInvalidationBus invalidationBus,
+                         MeterRegistry meterRegistry) {
+        this.catalogRedisTemplate = catalogRedisTemplate;
+        this.catalogProperties = catalogProperties;
+        this.invalidationBus = invalidationBus;
+        this.l1 = Caffeine.newBuilder()
+                .maximumSize(nearCacheProperties.getCacheNames().contains(CACHE_NAME) ? nearCacheProperties.getMaxSize() : 0)
+                .expireAfterWrite(nearCacheProperties.getTtl())
+                .build();
+        this.l1Hits = NearCacheMetrics.counter(meterRegistry, CACHE_NAME, "l1", "hit");
+        this.l1Misses = NearCacheMetrics.counter(meterRegistry, CACHE_NAME, "l1", "miss");
+        this.l2Hits = NearCacheMetrics.counter(meterRegistry, CACHE_NAME, "l2", "hit");
+        this.l2Misses = NearCacheMetrics.counter(meterRegistry, CACHE_NAME, "l2", "miss");
+        invalidationBus.register(CACHE_NAME, key -> l1.invalidateAll());
+    }
+
+    public int segmentSize() {
+        return catalogProperties.getPageCache().getSegmentSize();
+    }
+
+    public Mono<PageSegment> get(String query, ItemSort sort, long segment) {
+        String key = key(query, sort, segment);
+        PageSegment local = l1.getIfPresent(key);
+        if (local != null) {
+            l1Hits.increment();
+            return Mono.just(local);
+        }
+        l1Misses.increment();
+
+        return catalogRedisTemplate.opsForValue().get(key)
+                .cast(PageSegment.class)
+                // an entry this build cannot read is a miss, the caller recomputes and overwrites it
+                .onErrorResume(SerializationException.class, e -> {
+                    log.warn("Unreadable page segment {}, treating it as a miss", key, e);
+                    return Mono.empty();
+                })
+                .doOnNext(remote -> {
+                    l2Hits.increment();
+                    l1.put(key, remote);
+                })
+                .switchIfEmpty(Mono.fromRunnable(l2Misses::increment));
+    }
+
+    public Mono<PageSegment> put(String query, ItemSort sort, long segment, PageSegment value) {
+        String key = key(query, sort, segment);
+        Duration ttl = catalogProperties.getPageCache().getTtl();
+        long now = System.currentTimeMillis();
+
+        return catalogRedisTemplate.opsForValue().set(key, value, ttl)
+                .then(catalogRedisTemplate.opsForZSet().add(INDEX_KEY, key, now))
+                .then(catalogRedisTemplate.opsForZSet()
+                        .removeRangeByScore(INDEX_KEY, Range.closed(0d, (double) (now - ttl.toMillis()))))
+                .then(catalogRedisTemplate.opsForZSet().size(INDEX_KEY))
+                .flatMap(this::evictOverflow)
+                .then(Mono.fromRunnable(() -> l1.put(key, value)))
+                .thenReturn(value);
+    }
+
+    public Mono<Void> clear() {
+        return catalogRedisTemplate.opsForZSet().range(INDEX_KEY, Range.unbounded())
+                .map(member -> (String) member)
+                .collectList()
+                .flatMap(keys -> {
+                    keys.add(INDEX_KEY);
+                    return catalogRedisTemplate.delete(keys.toArray(String[]::new));
+                })
+                .then(Mono.fromRunnable(l1::invalidateAll))
+                .then(invalidationBus.publish(CACHE_NAME, CacheInvalidationBus.ALL_KEYS));
+    }
+
+    private Mono<Void> evictOverflow(long size) {
+        long overflow = size - catalogProperties.getPageCache().getMaxSegments();
+        if (overflow <= 0) {
+            return Mono.empty();
+        }
+        return catalogRedisTemplate.opsForZSet().popMin(INDEX_KEY, overflow)
+                .map(tuple -> (String) tuple.getValue())
+                .doOnNext(l1::invalidate)
+                .collectList()
+                .filter(keys -> !keys.isEmpty())
+                .flatMap(keys -> catalogRedisTemplate.delete(keys.toArray(String[]::new)))
+                .then();
+    }
+
+    static String key(String query, ItemSort sort, long segment) {
+        return KEY_PREFIX + "::" + query + "|" + sort.name() + "|" + segment;
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.shop.services;
+
+import com.example.shop.events.ItemChangedEvent;
+import com.example.shop.models.Item;
+import com.example.shop.models.ItemSort;
+import com.example.shop.models.Money;
+import com.example.shop.repositories.ItemRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process trigram index over item title and description. Answers "contains, ignoring case" searches
+ * with the same matches as the {@code LIKE '%x%'} repository queries, but without touching the database:
+ * trigram posting lists narrow down the candidates, which are then verified against the lowercased text.
+ * Queries shorter than three characters fall back to a scan of the in-memory documents.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemSearchIndex {
+
+    private static final int GRAM = 3;
+
+    private final ItemRepository itemRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Doc> docs = new HashMap<>();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private final Set<Long> changedBeforeReady = new LinkedHashSet<>();
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        itemRepository.findAll()
+                .collectList()
+                .subscribe(this::rebuild, e -> log.error("Failed to build item search index", e));
+    }
+
+    @EventListener
+    public void onItemChanged(ItemChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                changedBeforeReady.add(event.itemId());
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        refresh(event.itemId());
+    }
+
+    void rebuild(Collection<Item> items) {
+        List<Long> replay;
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            postings.clear();
+            items.forEach(this::index);
+            ready = true;
+            replay = new ArrayList<>(changedBeforeReady);
+            changedBeforeReady.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Item search index built: {} items, {} trigrams", items.size(), postings.size());
+        replay.forEach(this::refresh);
+    }
+
+    private void refresh(Long itemId) {
+        itemRepository.findById(itemId)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .subscribe(
+                        item -> item.ifPresentOrElse(this::upsert, () -> remove(itemId)),
+                        e -> log.warn("Failed to refresh item {} in search index", itemId, e)
+                );
+    }
+
+    public void upsert(Item item) {
+        lock.writeLock().lock();
+        try {
+            unindex(item.getId());
+            index(item);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long itemId) {
+        lock.writeLock().lock();
+        try {
+            unindex(itemId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Result search(String query, ItemSort sort, long offset, int limit) {
+        String needle = query.trim().toLowerCase(Locale.ROOT);
+
+        lock.readLock().lock();
+        try {
+            List<Match> matches = new ArrayList<>();
+            for (Long id : candidates(needle)) {
+                Doc doc = docs.get(id);
+                int score = doc.score(needle);
+                if (score > 0) {
+                    matches.add(new Match(doc, score));
+                }
+            }
+            matches.sort(comparator(sort));
+
+            int from = (int) Math.min(offset, matches.size());
+            int to = (int) Math.min(offset + limit, matches.size());
+            List<Long> ids = matches.subList(from, to).stream().map(m -> m.doc().id()).toList();
+            return new Result(ids, matches.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Collection<Long> candidates(String needle) {
+        if (needle.length() < GRAM) {
+            return docs.keySet();
+        }
+        List<Set<Long>> lists = new ArrayList<>();
+        for (String gram : grams(needle)) {
+            Set<Long> posting = postings.get(gram);
+            if (posting == null) {
+                return List.of();
+            }
+            lists.add(posting);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+
+        Set<Long> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    private void index(Item item) {
+        Doc doc = Doc.of(item);
+        docs.put(doc.id(), doc);
+        for (String gram : doc.grams()) {
+            postings.computeIfAbsent(gram, g -> new HashSet<>()).add(doc.id());
+        }
+    }
+
+    private void unindex(Long itemId) {
+        Doc old = docs.remove(itemId);
+        if (old == null) {
+            return;
+        }
+        for (String gram : old.grams()) {
+            Set<Long> posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(itemId);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static Comparator<Match> comparator(ItemSort sort) {
+        Comparator<Match> byId = Comparator.comparing(m -> m.doc().id());
+        return switch (sort) {
+            case ALPHA -> Comparator.comparing((Match m) -> m.doc().title(),
+                    Comparator.nullsLast(Comparator.<String>naturalOrder())).thenComparing(byId);
+            case PRICE -> Comparator.comparing((Match m) -> m.doc().price(),
+                    Comparator.nullsLast(Comparator.<Money>naturalOrder())).thenComparing(byId);
+            case RELEVANCE -> Comparator.comparingInt(Match::score).reversed().thenComparing(byId);
+            case NO -> byId;
+        };
+    }
+
+    public record Result(List<Long> ids, long total) {
+    }
+
+    private record Match(Doc doc, int score) {
+    }
+
+    private record Doc(Long id, String title, Money price, String titleLower, String descriptionLower) {
+
+        static Doc of(Item item) {
+            String title = item.getTitle() == null ? "" : item.getTitle();
+            String description = item.getDescription() == null ? "" : item.getDescription();
+            return new Doc(item.getId(), item.getTitle(), item.getPrice(),
+                    title.toLowerCase(Locale.ROOT), description.toLowerCase(Locale.ROOT));
+        }
+
+        Set<String> grams() {
+            Set<String> grams = ItemSearchIndex.grams(titleLower);
+            grams.addAll(ItemSearchIndex.grams(descriptionLower));
+            return grams;
+        }
+
+        /**
+         * 0 when the needle occurs in neither field. Title matches always outrank description-only matches;
+         * within a field an exact match beats a prefix match, which beats an earlier occurrence.
+         */
+        int score(String needle) {
+            int inTitle = titleLower.indexOf(needle);
+            if (inTitle >= 0) {
+                if (titleLower.length() == needle.length()) return 3000;
+                if (inTitle == 0) return 2000;
+                return 1000 - Math.min(inTitle, 999);
+            }
+            int inDescription = descriptionLower.indexOf(needle);
+            if (inDescription >= 0) {
+                return 500 - Math.min(inDescription, 499);
+            }
+            return 0;
+        }
+    }
+}
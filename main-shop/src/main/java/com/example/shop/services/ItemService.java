@@ -2,41 +2,48 @@ package com.example.shop.services;
 
 import com.example.shop.dtos.ItemCardDto;
 import com.example.shop.dtos.ItemListDto;
+import com.example.shop.dtos.PageSegment;
 import com.example.shop.dtos.SimplePage;
+import com.example.shop.events.ItemChangedEvent;
 import com.example.shop.models.Item;
 import com.example.shop.models.ItemSort;
+import com.example.shop.models.Money;
 import com.example.shop.repositories.ItemRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.LongStream;
 
 @Service
 @RequiredArgsConstructor
 public class ItemService {
 
     private final ItemRepository itemRepository;
-    private final CacheManager cacheManager;
+    private final ItemPageCache itemPageCache;
+    private final ItemSearchIndex itemSearchIndex;
+    private final CatalogSnapshotHolder catalogSnapshotHolder;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Mono<Page<Item>> getItems(String search,
                                      ItemSort sort,
                                      int pageNumber,
                                      int pageSize) {
 
-        Pageable pageable = PageRequest.of(pageNumber - 1, pageSize, resolveSort(sort));
+        Pageable pageable = PageRequest.of(pageNumber - 1, pageSize, sort.toSort());
 
         if (search == null || search.isBlank()) {
             Mono<Long> total = itemRepository.count();
@@ -65,6 +72,19 @@ public class ItemService {
         }
     }
 
+    public Mono<Item> update(Long id, String title, String description, Money price) {
+        return getById(id)
+                .flatMap(item -> {
+                    item.setTitle(title);
+                    item.setDescription(description);
+                    item.setPrice(price);
+                    return itemRepository.save(item);
+                })
+                // listeners evict through the blocking Redis cache API, so publish off the event loop
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(saved -> eventPublisher.publishEvent(new ItemChangedEvent(saved.getId())));
+    }
+
     public Mono<Item> getById(Long id) {
         return itemRepository.findById(id)
                 .switchIfEmpty(Mono.error(new NoSuchElementException("Item not found: " + id)));
@@ -78,80 +98,117 @@ public class ItemService {
         return new ItemCardDto(item.getId(), item.getImgPath(), item.getTitle(), item.getDescription(), item.getPrice());
     }
 
-    public SimplePage<ItemListDto> getItemsPageSync(String search, ItemSort sort, int pageNumber, int pageSize) {
-        String normalizedSearch = (search == null ? "" : search.trim().toLowerCase());
-        String key = normalizedSearch + "|" + sort.name();
-
-        Cache cache = Objects.requireNonNull(cacheManager.getCache("itemListPages"));
-        CachedItems cached = cache.get(key, CachedItems.class);
-        if (cached == null) {
-            cached = new CachedItems();
-        }
-
-        if (cached.total < 0) {
-            cached.total = normalizedSearch.isEmpty()
-                    ? itemRepository.count().block()
-                    : itemRepository.countByTitleContainingIgnoreCaseOrDescriptionContainingIgnoreCase(
-                    normalizedSearch, normalizedSearch
-            ).block();
-        }
-
+    public Mono<SimplePage<ItemListDto>> getItemsPage(String search, ItemSort sort, int pageNumber, int pageSize) {
+        String normalizedSearch = normalizeSearch(search);
+        int segmentSize = itemPageCache.segmentSize();
         long startIndex = (long) (pageNumber - 1) * pageSize;
-        long needUpTo = Math.min(startIndex + pageSize, cached.total);
+        long firstSegment = startIndex / segmentSize;
+        long lastSegment = (startIndex + pageSize - 1) / segmentSize;
+
+        CatalogSnapshot snapshot = catalogSnapshotHolder.current();
+        if (normalizedSearch.isEmpty() && snapshot != null) {
+            return Mono.just(new SimplePage<>(
+                    snapshot.slice(sort, startIndex, pageSize), pageNumber, pageSize, snapshot.size()
+            ));
+        }
 
-        while (cached.items.size() < needUpTo) {
-            int offset = cached.items.size();
-            int limit = (int) (needUpTo - offset);
+        return getSegment(normalizedSearch, sort, firstSegment)
+                .flatMap(first -> {
+                    long lastExisting = Math.max(first.total() - 1, 0) / segmentSize;
+                    return Flux.fromStream(LongStream.rangeClosed(firstSegment + 1, Math.min(lastSegment, lastExisting)).boxed())
+                            .concatMap(segment -> getSegment(normalizedSearch, sort, segment))
+                            .collectList()
+                            .map(rest -> {
+                                List<ItemListDto> items = new ArrayList<>(first.items());
+                                rest.forEach(segment -> items.addAll(segment.items()));
+
+                                int from = (int) Math.min(startIndex - firstSegment * segmentSize, items.size());
+                                int to = Math.min(from + pageSize, items.size());
+
+                                return new SimplePage<>(
+                                        new ArrayList<>(items.subList(from, to)), pageNumber, pageSize, first.total()
+                                );
+                            });
+                });
+    }
 
-            Pageable pageable = PageRequest.of(
-                    limit == 0 ? 0 : offset / limit,
-                    Math.max(limit, 1),
-                    resolveSort(sort)
-            );
+    private Mono<PageSegment> getSegment(String normalizedSearch, ItemSort sort, long segment) {
+        return itemPageCache.get(normalizedSearch, sort, segment)
+                .switchIfEmpty(Mono.defer(() -> loadSegment(normalizedSearch, sort, segment)
+                        .flatMap(loaded -> loaded.items().isEmpty() && segment > 0
+                                ? Mono.just(loaded)
+                                : itemPageCache.put(normalizedSearch, sort, segment, loaded))));
+    }
 
-            List<Item> fetched = normalizedSearch.isEmpty()
-                    ? itemRepository.findAll(pageable).collectList().block()
-                    : itemRepository
-                    .findByTitleContainingIgnoreCaseOrDescriptionContainingIgnoreCase(
-                            normalizedSearch, normalizedSearch, pageable
-                    )
-                    .collectList().block();
+    private Mono<PageSegment> loadSegment(String normalizedSearch, ItemSort sort, long segment) {
+        if (!normalizedSearch.isEmpty() && itemSearchIndex.isReady()) {
+            int segmentSize = itemPageCache.segmentSize();
+            ItemSearchIndex.Result found = itemSearchIndex.search(normalizedSearch, sort, segment * segmentSize, segmentSize);
+            return findAllInOrder(found.ids())
+                    .map(items -> new PageSegment(toListDtos(items), found.total()));
+        }
+        return Mono.zip(fetchSegment(normalizedSearch, sort, segment).collectList(), countItems(normalizedSearch))
+                .map(tuple -> new PageSegment(toListDtos(tuple.getT1()), tuple.getT2()));
+    }
 
-            if (fetched == null || fetched.isEmpty()) break;
+    private Mono<List<Item>> findAllInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return itemRepository.findAllById(ids)
+                .collectMap(Item::getId)
+                .map(byId -> ids.stream().map(byId::get).filter(Objects::nonNull).toList());
+    }
 
-            for (Item it : fetched) {
-                cached.items.add(new ItemListDto(
+    private List<ItemListDto> toListDtos(List<Item> items) {
+        return items.stream()
+                .map(it -> new ItemListDto(
                         it.getId(),
                         it.getTitle(),
                         it.getDescription(),
                         it.getPrice(),
                         it.getImgPath()
-                ));
-                if (cached.items.size() >= cached.total) break;
-                if (cached.items.size() >= needUpTo) break;
-            }
-        }
+                ))
+                .toList();
+    }
 
-        cache.put(key, cached);
+    private Flux<Item> fetchSegment(String normalizedSearch, ItemSort sort, long segment) {
+        int segmentSize = itemPageCache.segmentSize();
+        Pageable pageable = PageRequest.of((int) segment, segmentSize, sort.toSort());
 
-        int from = (int) startIndex;
-        int to = (int) Math.min(startIndex + pageSize, cached.items.size());
-        List<ItemListDto> slice = from < cached.items.size() ? cached.items.subList(from, to) : List.of();
+        if (!normalizedSearch.isEmpty()) {
+            return itemRepository.findByTitleContainingIgnoreCaseOrDescriptionContainingIgnoreCase(
+                    normalizedSearch, normalizedSearch, pageable
+            );
+        }
+        if (segment == 0) {
+            return itemRepository.findPageAfter(sort, null, segmentSize);
+        }
+        return itemPageCache.get(normalizedSearch, sort, segment - 1)
+                .map(previous -> Optional.ofNullable(lastOf(previous.items())))
+                .defaultIfEmpty(Optional.empty())
+                .flatMapMany(last -> last
+                        .map(item -> itemRepository.findPageAfter(sort, item, segmentSize))
+                        .orElseGet(() -> itemRepository.findAll(pageable)));
+    }
 
-        return new SimplePage<>(new ArrayList<>(slice), pageNumber, pageSize, cached.total);
+    private Mono<Long> countItems(String normalizedSearch) {
+        return normalizedSearch.isEmpty()
+                ? itemRepository.count()
+                : itemRepository.countByTitleContainingIgnoreCaseOrDescriptionContainingIgnoreCase(
+                normalizedSearch, normalizedSearch
+        );
     }
 
-    private Sort resolveSort(ItemSort sort) {
-        return switch (sort) {
-            case ALPHA -> Sort.by("title").ascending();
-            case PRICE -> Sort.by("price").ascending();
-            case NO -> Sort.unsorted();
-        };
+    private Item lastOf(List<ItemListDto> items) {
+        if (items.isEmpty()) {
+            return null;
+        }
+        ItemListDto last = items.get(items.size() - 1);
+        return new Item(last.id(), last.title(), last.description(), last.imgPath(), last.price(), 0);
     }
 
-    static final class CachedItems implements Serializable {
-        private static final long serialVersionUID = 1L;
-        List<ItemListDto> items = new ArrayList<>();
-        long total = -1;
+    private String normalizeSearch(String search) {
+        return search == null ? "" : search.trim().toLowerCase();
     }
-}
\ No newline at end of file
+}
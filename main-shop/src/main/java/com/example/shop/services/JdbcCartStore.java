@@ -0,0 +1,153 @@
+package com.example.shop.services;
+
+import com.example.shop.dtos.CartLine;
+import com.example.shop.models.Cart;
+import com.example.shop.models.CartItem;
+import com.example.shop.models.Item;
+import com.example.shop.repositories.CartItemRepository;
+import com.example.shop.repositories.CartRepository;
+import com.example.shop.repositories.UserRepository;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Cart kept in the {@code cart}/{@code cart_item} tables. The cart row is created on the first increment.
+ * Always present: it is the store in jdbc mode and the write-behind target in redis mode.
+ */
+@Component
+@RequiredArgsConstructor
+public class JdbcCartStore implements CartStore {
+
+    private final CartRepository cartRepo;
+    private final CartItemRepository cartItemRepo;
+    private final UserRepository userRepo;
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Mono<Cart> find(String email) {
+        return cartRepo.findCartLinesByEmail(email)
+                .collectList()
+                .filter(lines -> !lines.isEmpty())
+                .map(this::toCart);
+    }
+
+    @Override
+    public Mono<Void> increment(String email, Long itemId) {
+        return getOrCreateCartId(email)
+                .flatMap(cid -> cartItemRepo.increment(cid, itemId)
+                        // a concurrent MERGE inserted the line first, this time it matches and updates
+                        .onErrorResume(DuplicateKeyException.class, e -> cartItemRepo.increment(cid, itemId))
+                        .onErrorMap(e -> e instanceof DataIntegrityViolationException && !(e instanceof DuplicateKeyException),
+                                e -> new IllegalArgumentException("No item " + itemId, e)))
+                .then();
+    }
+
+    @Override
+    @Transactional
+    public Mono<Void> decrement(String email, Long itemId) {
+        return cartRepo.findIdByUserEmail(email)
+                .flatMap(cid -> cartItemRepo.decrementAboveOne(cid, itemId)
+                        .filter(updated -> updated == 0)
+                        // not unconditional: a concurrent increment may have raised the count in between
+                        .flatMap(none -> cartItemRepo.deleteIfSingle(cid, itemId)))
+                .then();
+    }
+
+    @Override
+    public Mono<Void> remove(String email, Long itemId) {
+        return cartRepo.findIdByUserEmail(email)
+                .flatMap(cid -> cartItemRepo.deleteByCartIdAndItemId(cid, itemId))
+                .then();
+    }
+
+    @Override
+    public Mono<Void> clear(String email) {
+        return cartRepo.findIdByUserEmail(email)
+                .flatMap(cartItemRepo::deleteByCartId)
+                .then();
+    }
+
+    /**
+     * Replaces all lines of the user's cart with {@code counts} in one transaction; lines are written
+     * as one batched statement, and item ids that no longer exist are skipped.
+     * <p>
+     * Nothing is written unless {@code version} is newer than the last one written: nodes flush the same cart
+     * independently, and a stale snapshot that happens to commit last must not overwrite a newer one.
+     */
+    @Transactional
+    public Mono<Void> replace(String email, Map<Long, Integer> counts, long version) {
+        Mono<Long> cartId = counts.isEmpty() ? cartRepo.findIdByUserEmail(email) : getOrCreateCartId(email);
+        return cartId
+                // the row lock also holds back a concurrent flush of the same cart until this one commits
+                .filterWhen(cid -> cartRepo.advanceFlushedVersion(cid, version).map(updated -> updated > 0))
+                .flatMap(cid -> cartItemRepo.deleteByCartId(cid)
+                        .then(counts.isEmpty() ? Mono.empty() : insertLines(cid, counts)))
+                .then();
+    }
+
+    private Mono<Void> insertLines(Long cartId, Map<Long, Integer> counts) {
+        return databaseClient.inConnectionMany(connection -> {
+                    Statement statement = connection.createStatement("""
+                            INSERT INTO cart_item (cart_id, item_id, count)
+                            SELECT CAST($1 AS BIGINT), id, CAST($2 AS INT) FROM item WHERE id = $3
+                            """);
+                    Iterator<Map.Entry<Long, Integer>> lines = counts.entrySet().iterator();
+                    while (true) {
+                        Map.Entry<Long, Integer> line = lines.next();
+                        statement.bind(0, cartId).bind(1, line.getValue()).bind(2, line.getKey());
+                        if (!lines.hasNext()) {
+                            break;
+                        }
+                        statement.add();
+                    }
+                    return Flux.from(statement.execute()).flatMap(Result::getRowsUpdated);
+                })
+                .then();
+    }
+
+    Mono<Long> getOrCreateCartId(String email) {
+        return cartRepo.findIdByUserEmail(email)
+                .switchIfEmpty(Mono.defer(() -> userRepo.findByEmail(email)
+                        .switchIfEmpty(Mono.error(() -> new IllegalStateException("User not found: " + email)))
+                        .flatMap(user -> {
+                            Cart newCart = new Cart();
+                            newCart.setUserId(user.getId());
+                            return cartRepo.save(newCart)
+                                    // a concurrent first mutation created it in between
+                                    .onErrorResume(DuplicateKeyException.class, e -> cartRepo.findByUserId(user.getId()));
+                        })
+                        .map(Cart::getId)));
+    }
+
+    private Cart toCart(List<CartLine> lines) {
+        CartLine head = lines.get(0);
+        Cart cart = new Cart();
+        cart.setId(head.cartId());
+        cart.setUserId(head.userId());
+        cart.setItems(lines.stream()
+                .filter(line -> line.cartItemId() != null)
+                .map(line -> new CartItem(
+                        line.cartItemId(),
+                        line.itemId(),
+                        line.cartId(),
+                        line.count() == null ? 0 : line.count(),
+                        new Item(line.itemId(), line.title(), line.description(), line.imgPath(), line.price(), 0),
+                        null
+                ))
+                .collect(Collectors.toList()));
+        return cart;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.shop.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Two-level {@link org.springframework.cache.Cache}: a size-bounded in-process L1 in front of a shared L2
+ * (Redis). Evictions are applied to both levels and broadcast so other nodes drop their L1 copy.
+ */
+public class NearCache implements org.springframework.cache.Cache {
+
+    private final org.springframework.cache.Cache l2;
+    private final Cache<String, ValueWrapper> l1;
+    private final CacheInvalidationBus invalidationBus;
+
+    private final Counter l1Hits;
+    private final Counter l1Misses;
+    private final Counter l2Hits;
+    private final Counter l2Misses;
+
+    public NearCache(org.springframework.cache.Cache l2,
+                     Cache<String, ValueWrapper> l1,
+                     CacheInvalidationBus invalidationBus,
+                     MeterRegistry meterRegistry) {
+        this.l2 = l2;
+        this.l1 = l1;
+        this.invalidationBus = invalidationBus;
+        this.l1Hits = NearCacheMetrics.counter(meterRegistry, l2.getName(), "l1", "hit");
+        this.l1Misses = NearCacheMetrics.counter(meterRegistry, l2.getName(), "l1", "miss");
+        this.l2Hits = NearCacheMetrics.counter(meterRegistry, l2.getName(), "l2", "hit");
+        this.l2Misses = NearCacheMetrics.counter(meterRegistry, l2.getName(), "l2", "miss");
+        invalidationBus.register(l2.getName(), this::invalidateLocal);
+    }
+
+    @Override
+    public String getName() {
+        return l2.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return l2.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = String.valueOf(key);
+        ValueWrapper local = l1.getIfPresent(localKey);
+        if (local != null) {
+            l1Hits.increment();
+            return local;
+        }
+        l1Misses.increment();
+
+        ValueWrapper remote = l2.get(key);
+        if (remote == null) {
+            l2Misses.increment();
+            return null;
+        }
+        l2Hits.increment();
+        l1.put(localKey, new SimpleValueWrapper(remote.get()));
+        return remote;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper == null ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        l2.put(key, value);
+        l1.put(String.valueOf(key), new SimpleValueWrapper(value));
+    }
+
+    @Override
+    public void evict(Object key) {
+        l2.evict(key);
+        invalidateLocal(String.valueOf(key));
+        invalidationBus.publish(getName(), String.valueOf(key)).subscribe();
+    }
+
+    @Override
+    public void clear() {
+        l2.clear();
+        invalidateLocal(CacheInvalidationBus.ALL_KEYS);
+        invalidationBus.publish(getName(), CacheInvalidationBus.ALL_KEYS).subscribe();
+    }
+
+    void invalidateLocal(String key) {
+        if (CacheInvalidationBus.ALL_KEYS.equals(key)) {
+            l1.invalidateAll();
+        } else {
+            l1.invalidate(key);
+        }
+    }
+}
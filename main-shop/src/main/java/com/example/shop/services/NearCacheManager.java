@@ -0,0 +1,53 @@
+package com.example.shop.services;
+
+import com.example.shop.config.NearCacheProperties;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wraps the Redis {@link CacheManager} and puts a {@link NearCache} in front of the caches listed in
+ * {@code shop.cache.near.cache-names}; all other caches are returned as is.
+ */
+public class NearCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+    private final NearCacheProperties properties;
+    private final CacheInvalidationBus invalidationBus;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Cache> nearCaches = new ConcurrentHashMap<>();
+
+    public NearCacheManager(CacheManager delegate,
+                            NearCacheProperties properties,
+                            CacheInvalidationBus invalidationBus,
+                            MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.properties = properties;
+        this.invalidationBus = invalidationBus;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        if (!properties.getCacheNames().contains(name)) {
+            return delegate.getCache(name);
+        }
+        return nearCaches.computeIfAbsent(name, n -> {
+            Cache l2 = delegate.getCache(n);
+            return l2 == null ? null : new NearCache(l2, Caffeine.newBuilder()
+                    .maximumSize(properties.getMaxSize())
+                    .expireAfterWrite(properties.getTtl())
+                    .build(), invalidationBus, meterRegistry);
+        });
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+}
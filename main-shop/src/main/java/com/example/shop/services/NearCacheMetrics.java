@@ -0,0 +1,19 @@
+package com.example.shop.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+final class NearCacheMetrics {
+
+    private NearCacheMetrics() {
+    }
+
+    static Counter counter(MeterRegistry registry, String cacheName, String level, String result) {
+        return Counter.builder("shop.cache.near.gets")
+                .description("Near cache lookups by level and outcome")
+                .tag("cache", cacheName)
+                .tag("level", level)
+                .tag("result", result)
+                .register(registry);
+    }
+}
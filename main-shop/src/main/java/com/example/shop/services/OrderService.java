@@ -1,14 +1,16 @@
 package com.example.shop.services;
 
+import com.example.shop.dtos.OrderLine;
+import com.example.shop.dtos.OrderSummaryPage;
 import com.example.shop.models.*;
 import com.example.shop.repositories.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import reactor.core.publisher.Flux;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
 import java.util.NoSuchElementException;
 
 @Service
@@ -18,18 +20,21 @@ public class OrderService {
     private final OrderRepository orderRepo;
     private final OrderItemRepository orderItemRepo;
     private final CartService cartService;
-    private final CartItemRepository cartItemRepo;
     private final UserRepository userRepo;
     private final PaymentServiceClient paymentServiceClient;
+    private final TransactionalOperator transactionalOperator;
 
     private Mono<User> getCurrentUser(UserDetails userDetails) {
         return userRepo.findByEmail(userDetails.getUsername());
     }
 
-    @Transactional
+    /**
+     * Pays first, then writes the order, its lines and the cart clean-up in one transaction,
+     * so no connection is held while waiting for the payment service.
+     */
     public Mono<Order> buyCart(UserDetails userDetails) {
         Mono<User> userMono = getCurrentUser(userDetails);
-        Mono<Cart> cartMono = cartService.getOrCreateCart(userDetails);
+        Mono<Cart> cartMono = cartService.getCart(userDetails);
 
         return Mono.zip(userMono, cartMono)
                 .flatMap(tuple -> {
@@ -43,34 +48,65 @@ public class OrderService {
                         oi.setItemId(ci.getItemId());
                         oi.setItem(ci.getItem());
                         oi.setCount(ci.getCount());
+                        oi.setTitle(ci.getItem().getTitle());
+                        oi.setPrice(ci.getItem().getPrice());
+                        oi.setImgPath(ci.getItem().getImgPath());
                         order.getItems().add(oi);
                     }
                     order.computeTotal();
 
                     return paymentServiceClient.pay(order.getTotal())
                             .flatMap(paymentResponse -> orderRepo.save(order)
-                                    .flatMap(savedOrder ->
-                                            Flux.fromIterable(order.getItems())
-                                                    .doOnNext(oi -> oi.setOrderId(savedOrder.getId()))
-                                                    .flatMap(orderItemRepo::save)
-                                                    .then(cartItemRepo.deleteAll(cart.getItems()))
-                                                    .thenReturn(savedOrder)
-                                    ))
+                                    .flatMap(savedOrder -> orderItemRepo.insertAll(savedOrder.getId(), order.getItems())
+                                            .then(cartService.clear(userDetails))
+                                            .thenReturn(savedOrder))
+                                    .as(transactionalOperator::transactional))
                             .onErrorResume(e -> Mono.error(new IllegalStateException(
                                     "Payment declined. Reason: " + e.getMessage())));
                 });
     }
 
-    public Flux<Order> findAllForUser(UserDetails userDetails) {
+    public Mono<OrderSummaryPage> findPageForUser(UserDetails userDetails, Long before, int size) {
+        long beforeId = before == null ? Long.MAX_VALUE : before;
         return getCurrentUser(userDetails)
-                .flatMapMany(user -> orderRepo.findByUserId(user.getId()));
+                .flatMap(user -> orderRepo.findSummariesBefore(user.getId(), beforeId, size + 1).collectList())
+                .map(rows -> rows.size() > size
+                        ? new OrderSummaryPage(rows.subList(0, size), rows.get(size - 1).id(), size)
+                        : new OrderSummaryPage(rows, null, size))
+                .defaultIfEmpty(new OrderSummaryPage(List.of(), null, size));
     }
 
+    /**
+     * Reads the order and its snapshotted lines in one query, without touching the item table.
+     */
     public Mono<Order> findByIdForUser(Long id, UserDetails userDetails) {
-        return getCurrentUser(userDetails)
-                .flatMap(user -> orderRepo.findById(id)
-                        .filter(order -> order.getUserId().equals(user.getId()))
-                )
+        return orderRepo.findLinesByIdAndUserEmail(id, userDetails.getUsername())
+                .collectList()
+                .filter(lines -> !lines.isEmpty())
+                .map(this::toOrder)
                 .switchIfEmpty(Mono.error(new NoSuchElementException("Order not found or access denied: " + id)));
     }
-}
\ No newline at end of file
+
+    private Order toOrder(List<OrderLine> lines) {
+        OrderLine head = lines.get(0);
+        Order order = new Order();
+        order.setId(head.orderId());
+        order.setUserId(head.userId());
+        order.setTotal(head.total());
+        lines.stream()
+                .filter(line -> line.lineId() != null)
+                .map(line -> new OrderItem(
+                        line.lineId(),
+                        line.itemId(),
+                        line.orderId(),
+                        line.count() == null ? 0 : line.count(),
+                        line.title(),
+                        line.price(),
+                        line.imgPath(),
+                        null,
+                        order
+                ))
+                .forEach(order.getItems()::add);
+        return order;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.shop.services;
+
+import com.example.shop.config.OAuth2ClientConfig;
+import com.example.shop.config.PaymentClientProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * The client-credentials token for calls to payments, kept fresh off the request path: a background tick
+ * replaces it once it expires within {@code refresh-ahead}, and {@link #bearer()} only reads it. A request
+ * fetches a token itself only when none is usable (startup, or auth-server down for the whole window);
+ * concurrent requests then share that fetch.
+ * <p>
+ * The token belongs to the shop, not to the shopper: it is authorized for the client id as principal
+ * whichever user is logged in, so with the Redis authorized-client store every node reuses the same token.
+ */
+@Slf4j
+@Component
+public class PaymentAccessTokens implements SmartLifecycle {
+
+    /** A token closer than this to its expiry could lapse while the call is in flight. */
+    private static final Duration IN_FLIGHT_MARGIN = Duration.ofSeconds(5);
+
+    private final ReactiveOAuth2AuthorizedClientManager authorizedClientManager;
+    private final ReactiveOAuth2AuthorizedClientService authorizedClientService;
+    private final PaymentClientProperties.Token properties;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+
+    private volatile OAuth2AccessToken current;
+    private Mono<OAuth2AccessToken> authorizing;
+    private volatile Disposable refresher;
+
+    @Autowired
+    public PaymentAccessTokens(ReactiveOAuth2AuthorizedClientManager authorizedClientManager,
+                               ReactiveOAuth2AuthorizedClientService authorizedClientService,
+                               PaymentClientProperties properties,
+                               MeterRegistry meterRegistry) {
+        this(authorizedClientManager, authorizedClientService, properties, meterRegistry, Clock.systemUTC());
+    }
+
+    PaymentAccessTokens(ReactiveOAuth2AuthorizedClientManager authorizedClientManager,
+                        ReactiveOAuth2AuthorizedClientService authorizedClientService,
+                        PaymentClientProperties properties,
+                        MeterRegistry meterRegistry,
+                        Clock clock) {
+        this.authorizedClientManager = authorizedClientManager;
+        this.authorizedClientService = authorizedClientService;
+        this.properties = properties.getToken();
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    /**
+     * Sets the bearer token on calls to payments. A 401 drops the token, so the next call gets a new one.
+     */
+    public ExchangeFilterFunction bearer() {
+        return (request, next) -> token().flatMap(token -> next
+                .exchange(ClientRequest.from(request)
+                        .headers(headers -> headers.setBearerAuth(token.getTokenValue()))
+                        .build())
+                .flatMap(response -> response.statusCode().isSameCodeAs(HttpStatus.UNAUTHORIZED)
+                        ? discard(token).thenReturn(response)
+                        : Mono.just(response)));
+    }
+
+    Mono<OAuth2AccessToken> token() {
+        OAuth2AccessToken token = current;
+        if (token != null && !expiresWithin(token, IN_FLIGHT_MARGIN)) {
+            return Mono.just(token);
+        }
+        return authorize("request");
+    }
+
+    /** One background tick: replaces the token if it is missing or about to expire. */
+    Mono<Void> refreshIfDue() {
+        OAuth2AccessToken token = current;
+        if (token != null && !expiresWithin(token, properties.getRefreshAhead())) {
+            return Mono.empty();
+        }
+        return authorize("background").then();
+    }
+
+    private synchronized Mono<OAuth2AccessToken> authorize(String trigger) {
+        if (authorizing == null) {
+            OAuth2AuthorizeRequest request = OAuth2AuthorizeRequest
+                    .withClientRegistrationId(OAuth2ClientConfig.PAYMENTS_REGISTRATION_ID)
+                    .principal(OAuth2ClientConfig.PAYMENTS_REGISTRATION_ID)
+                    .build();
+            // the manager reuses a stored token younger than refresh-ahead, possibly fetched by another node
+            authorizing = authorizedClientManager.authorize(request)
+                    .timeout(properties.getFetchTimeout())
+                    .map(OAuth2AuthorizedClient::getAccessToken)
+                    .switchIfEmpty(Mono.error(() -> new IllegalStateException("No access token for payments")))
+                    .doOnNext(token -> current = token)
+                    .doOnEach(signal -> {
+                        if (signal.isOnNext() || signal.isOnError()) {
+                            refreshes(trigger, signal.isOnNext() ? "success" : "error").increment();
+                        }
+                    })
+                    .doFinally(signal -> authorized())
+                    .cache();
+        }
+        return authorizing;
+    }
+
+    private synchronized void authorized() {
+        authorizing = null;
+    }
+
+    private Mono<Void> discard(OAuth2AccessToken token) {
+        synchronized (this) {
+            if (current != token) {
+                return Mono.empty();
+            }
+            current = null;
+        }
+        log.warn("Payments rejected the access token expiring at {}, dropping it", token.getExpiresAt());
+        return authorizedClientService.removeAuthorizedClient(
+                OAuth2ClientConfig.PAYMENTS_REGISTRATION_ID, OAuth2ClientConfig.PAYMENTS_REGISTRATION_ID);
+    }
+
+    private boolean expiresWithin(OAuth2AccessToken token, Duration window) {
+        Instant expiresAt = token.getExpiresAt();
+        return expiresAt != null && !clock.instant().plus(window).isBefore(expiresAt);
+    }
+
+    private Counter refreshes(String trigger, String outcome) {
+        return Counter.builder("shop.payments.client.token.refreshes")
+                .tag("trigger", trigger)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        refresher = Flux.interval(Duration.ZERO, properties.getCheckInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> refreshIfDue()
+                        .onErrorResume(e -> {
+                            log.warn("Background refresh of the payments access token failed", e);
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+
+    @Override
+    public void stop() {
+        if (refresher != null) {
+            refresher.dispose();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return refresher != null && !refresher.isDisposed();
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.shop.services;
+
+import com.example.shop.config.PaymentClientProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instruments outbound calls to payments with two filters around the OAuth2 filter:
+ * {@link #start()} goes before it and stamps the request, {@link #record()} goes after it,
+ * so the gap between them is the time spent obtaining the access token.
+ * <p>
+ * Records {@code shop.payments.client.requests} (latency histogram per operation and status) and
+ * {@code shop.payments.client.token} (token acquisition time per operation). A sample of calls is
+ * logged at debug level from a worker thread, never from the event loop.
+ */
+@Slf4j
+@Component
+public class PaymentCallInstrumentation {
+
+    static final String STARTED_AT = PaymentCallInstrumentation.class.getName() + ".startedAt";
+
+    private static final Map<String, String> OPERATIONS = Map.of(
+            "/payments/balance", "getBalance",
+            "/payments/pay", "processPayment"
+    );
+
+    private final MeterRegistry meterRegistry;
+    private final double logSampleRate;
+    private final Scheduler logScheduler = Schedulers.boundedElastic();
+
+    public PaymentCallInstrumentation(MeterRegistry meterRegistry, PaymentClientProperties properties) {
+        this.meterRegistry = meterRegistry;
+        this.logSampleRate = properties.getLogSampleRate();
+    }
+
+    public ExchangeFilterFunction start() {
+        return (request, next) -> next.exchange(ClientRequest.from(request)
+                .attribute(STARTED_AT, System.nanoTime())
+                .build());
+    }
+
+    public ExchangeFilterFunction record() {
+        return (request, next) -> Mono.defer(() -> {
+            long sent = System.nanoTime();
+            String operation = operation(request);
+            request.attribute(STARTED_AT).ifPresent(startedAt -> Timer.builder("shop.payments.client.token")
+                    .description("Time spent obtaining the access token before a payments call")
+                    .tag("operation", operation)
+                    .register(meterRegistry)
+                    .record(sent - (long) startedAt, TimeUnit.NANOSECONDS));
+
+            return next.exchange(request)
+                    .doOnNext(response -> finish(request, operation, String.valueOf(response.statusCode().value()), sent))
+                    .doOnError(e -> finish(request, operation, "IO_ERROR", sent))
+                    .doOnCancel(() -> finish(request, operation, "CANCELLED", sent));
+        });
+    }
+
+    private void finish(ClientRequest request, String operation, String status, long sent) {
+        long elapsed = System.nanoTime() - sent;
+        Timer.builder("shop.payments.client.requests")
+                .description("Outbound calls to payments")
+                .tag("operation", operation)
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+
+        if (log.isDebugEnabled() && ThreadLocalRandom.current().nextDouble() < logSampleRate) {
+            boolean authorized = request.headers().containsKey("Authorization");
+            logScheduler.schedule(() -> log.debug("{} {} {} -> {} in {} ms (authorized: {})",
+                    operation, request.method(), request.url(), status,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), authorized));
+        }
+    }
+
+    static String operation(ClientRequest request) {
+        return OPERATIONS.getOrDefault(request.url().getPath(), "other");
+    }
+}
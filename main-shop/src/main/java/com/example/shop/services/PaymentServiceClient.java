@@ -3,25 +3,117 @@ package com.example.shop.services;
 import com.example.payments.client.api.PaymentsApi;
 import com.example.payments.client.model.PaymentRequest;
 import com.example.payments.client.model.PaymentResponse;
-import lombok.RequiredArgsConstructor;
+import com.example.shop.config.OAuth2ClientConfig;
+import com.example.shop.config.PaymentClientProperties;
+import com.example.shop.models.Money;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
-import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Calls to the payments service, each bounded by a deadline, the shared bulkhead and circuit breaker.
+ * A payment carries an idempotency key generated once per {@link #pay} call, so transient failures
+ * can be retried without charging twice.
+ * <p>
+ * Balances are cached per payments principal (the OAuth client) for a short TTL and dropped whenever
+ * a payment is made; concurrent lookups share a single in-flight upstream call.
+ */
 @Service
-@RequiredArgsConstructor
 public class PaymentServiceClient {
 
     private final PaymentsApi paymentsApi;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final PaymentClientProperties properties;
+    private final AsyncCache<String, Money> balances;
 
-    public Mono<BigDecimal> getBalance() {
-        return paymentsApi.getBalance();
+    private final Counter balanceTimeouts;
+    private final Counter payTimeouts;
+    private final Counter payRetries;
+
+    public PaymentServiceClient(PaymentsApi paymentsApi,
+                                CircuitBreaker paymentsCircuitBreaker,
+                                Bulkhead paymentsBulkhead,
+                                PaymentClientProperties properties,
+                                MeterRegistry meterRegistry) {
+        this.paymentsApi = paymentsApi;
+        this.circuitBreaker = paymentsCircuitBreaker;
+        this.bulkhead = paymentsBulkhead;
+        this.properties = properties;
+        this.balances = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getBalanceTtl())
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, balances, "paymentBalance");
+        this.balanceTimeouts = timeouts(meterRegistry, "balance");
+        this.payTimeouts = timeouts(meterRegistry, "pay");
+        this.payRetries = Counter.builder("shop.payments.client.retries")
+                .tag("operation", "pay")
+                .register(meterRegistry);
+    }
+
+    public Mono<Money> getBalance() {
+        // each subscriber gets its own copy, so one going away does not cancel the shared lookup
+        return Mono.fromFuture(() -> balances.get(OAuth2ClientConfig.PAYMENTS_REGISTRATION_ID,
+                (principal, executor) -> fetchBalance().toFuture()).copy());
+    }
+
+    private Mono<Money> fetchBalance() {
+        return guard(Mono.defer(paymentsApi::getBalance), properties.getBalanceTimeout(), balanceTimeouts)
+                .map(balance -> Money.ofMinor(balance.getAmountMinor()));
+    }
+
+    public Mono<String> pay(Money amount) {
+        PaymentClientProperties.Retry retry = properties.getPayRetry();
+        return Mono.fromSupplier(() -> UUID.randomUUID().toString())
+                .flatMap(idempotencyKey -> guard(
+                        Mono.defer(() -> paymentsApi.processPayment(new PaymentRequest().amountMinor(amount.minorUnits()), idempotencyKey)),
+                        properties.getPayTimeout(), payTimeouts)
+                        .retryWhen(Retry.backoff(retry.getMaxAttempts(), retry.getBackoff())
+                                .filter(PaymentServiceClient::isTransient)
+                                .doBeforeRetry(signal -> payRetries.increment())
+                                .onRetryExhaustedThrow((spec, signal) -> signal.failure())))
+                .map(PaymentResponse::getMessage)
+                // also on failure: a timed-out payment may still have been charged
+                .doFinally(signal -> balances.synchronous().invalidate(OAuth2ClientConfig.PAYMENTS_REGISTRATION_ID));
+    }
+
+    /**
+     * Failures that say nothing about the request itself and may go away on their own.
+     * Rejections by the breaker or bulkhead are not transient: they are meant to fail fast.
+     */
+    public static boolean isTransient(Throwable e) {
+        return e instanceof TimeoutException
+                || e instanceof WebClientRequestException
+                || e instanceof WebClientResponseException r && r.getStatusCode().is5xxServerError();
+    }
+
+    private <T> Mono<T> guard(Mono<T> call, Duration timeout, Counter timeouts) {
+        return call
+                .timeout(timeout)
+                .doOnError(TimeoutException.class, e -> timeouts.increment())
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
     }
 
-    public Mono<String> pay(BigDecimal amount) {
-        return paymentsApi
-                .processPayment(new PaymentRequest().amount(amount))
-                .map(PaymentResponse::getMessage);
+    private static Counter timeouts(MeterRegistry meterRegistry, String operation) {
+        return Counter.builder("shop.payments.client.timeouts")
+                .tag("operation", operation)
+                .register(meterRegistry);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,94 @@
+package com.example.shop.services;
+
+import com.example.shop.config.PaymentClientProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ReactiveClientRegistrationRepository;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Authorized clients kept as a Redis hash that expires with the access token, so every shop node reuses
+ * the token one of them obtained. Only client-credentials tokens are stored here; there is no refresh token.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "payment.client.token.store", havingValue = "redis")
+public class RedisAuthorizedClientService implements ReactiveOAuth2AuthorizedClientService {
+
+    private static final RedisScript<Long> SAVE = RedisScript.of("""
+            redis.call('DEL', KEYS[1])
+            redis.call('HSET', KEYS[1], 'token', ARGV[1], 'issuedAt', ARGV[2], 'expiresAt', ARGV[3], 'scope', ARGV[4])
+            redis.call('PEXPIREAT', KEYS[1], ARGV[3])
+            return 1
+            """, Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ReactiveClientRegistrationRepository registrations;
+    private final String keyPrefix;
+
+    public RedisAuthorizedClientService(ReactiveStringRedisTemplate redisTemplate,
+                                        ReactiveClientRegistrationRepository registrations,
+                                        PaymentClientProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.registrations = registrations;
+        this.keyPrefix = properties.getToken().getRedisKeyPrefix();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends OAuth2AuthorizedClient> Mono<T> loadAuthorizedClient(String clientRegistrationId, String principalName) {
+        return redisTemplate.<String, String>opsForHash().entries(key(clientRegistrationId, principalName))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .filter(fields -> fields.containsKey("token"))
+                .zipWith(registrations.findByRegistrationId(clientRegistrationId))
+                .map(stored -> (T) new OAuth2AuthorizedClient(stored.getT2(), principalName, accessToken(stored.getT1())));
+    }
+
+    @Override
+    public Mono<Void> saveAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Authentication principal) {
+        OAuth2AccessToken token = authorizedClient.getAccessToken();
+        if (token.getExpiresAt() == null) {
+            // other nodes could not tell when it goes stale
+            return Mono.empty();
+        }
+        String key = key(authorizedClient.getClientRegistration().getRegistrationId(), principal.getName());
+        return redisTemplate.execute(SAVE, List.of(key), List.of(
+                        token.getTokenValue(),
+                        String.valueOf(token.getIssuedAt() != null ? token.getIssuedAt().toEpochMilli() : 0),
+                        String.valueOf(token.getExpiresAt().toEpochMilli()),
+                        String.join(" ", token.getScopes())))
+                .then();
+    }
+
+    @Override
+    public Mono<Void> removeAuthorizedClient(String clientRegistrationId, String principalName) {
+        return redisTemplate.delete(key(clientRegistrationId, principalName)).then();
+    }
+
+    private String key(String clientRegistrationId, String principalName) {
+        return keyPrefix + clientRegistrationId + ":" + principalName;
+    }
+
+    private static OAuth2AccessToken accessToken(Map<String, String> fields) {
+        long issuedAt = Long.parseLong(fields.getOrDefault("issuedAt", "0"));
+        String scope = fields.getOrDefault("scope", "");
+        return new OAuth2AccessToken(
+                OAuth2AccessToken.TokenType.BEARER,
+                fields.get("token"),
+                issuedAt > 0 ? Instant.ofEpochMilli(issuedAt) : null,
+                Instant.ofEpochMilli(Long.parseLong(fields.get("expiresAt"))),
+                scope.isEmpty() ? Set.of() : Set.of(scope.split(" ")));
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.shop.services;
+
+import com.example.shop.dtos.CartLine;
+import com.example.shop.models.Cart;
+import com.example.shop.models.CartItem;
+import com.example.shop.models.Item;
+import com.example.shop.repositories.CartRepository;
+import com.example.shop.repositories.ItemRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Cart kept as a Redis hash {@code itemId -> count} per user; this is the authoritative state in redis mode.
+ * Every mutation is one script call that also marks the cart dirty, and {@link CartWriteBehindFlusher}
+ * copies dirty carts to the {@code cart_item} table in the background.
+ * <p>
+ * A hash carries a {@value #LOADED_FIELD} marker once it holds the whole cart. A cart without one (redis mode
+ * just switched on, or Redis lost the key) is first seeded from {@code cart_item} inside the mutation script,
+ * so neither the mutation nor the following flush can overwrite lines that only the database knows about.
+ * <p>
+ * Every mutation also bumps a {@value #VERSION_FIELD} counter, seeded from the version last flushed to
+ * {@code cart}, so that the flusher only lets a newer snapshot replace the database lines.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "shop.cart.store", havingValue = "redis")
+@RequiredArgsConstructor
+public class RedisCartStore implements CartStore {
+
+    static final String KEY_PREFIX = "cart:";
+    static final String DIRTY_KEY = "cart:dirty";
+
+    static final String LOADED_FIELD = "loaded";
+    static final String VERSION_FIELD = "version";
+
+    /**
+     * Returns -1 without touching anything when the cart is not in Redis and the caller sent no database lines.
+     * A seeding call sends the flushed version and then the lines as {@code itemId, count} pairs.
+     */
+    private static final RedisScript<Long> MUTATE = RedisScript.of("""
+            local field, email, op, seeded = ARGV[1], ARGV[2], ARGV[3], ARGV[4]
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                if seeded ~= '1' then
+                    return -1
+                end
+                redis.call('HSET', KEYS[1], 'loaded', '1', 'version', ARGV[5])
+                for i = 6, #ARGV, 2 do
+                    redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])
+                end
+            end
+            if op == 'load' then
+                return 1
+            elseif op == 'clear' then
+                local version = redis.call('HGET', KEYS[1], 'version') or '0'
+                redis.call('DEL', KEYS[1])
+                redis.call('HSET', KEYS[1], 'loaded', '1', 'version', version)
+            elseif op == 'remove' then
+                redis.call('HDEL', KEYS[1], field)
+            else
+                local n = redis.call('HINCRBY', KEYS[1], field, tonumber(op))
+                if n <= 0 then
+                    redis.call('HDEL', KEYS[1], field)
+                end
+            end
+            redis.call('HINCRBY', KEYS[1], 'version', 1)
+            redis.call('SADD', KEYS[2], email)
+            return 1
+            """, Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ItemRepository itemRepository;
+    private final CartRepository cartRepository;
+
+    @Override
+    public Mono<Cart> find(String email) {
+        return counts(email)
+                .switchIfEmpty(Mono.defer(() -> mutate(email, "", "load").then(counts(email))))
+                .flatMap(counts -> counts.isEmpty()
+                        ? Mono.just(toCart(List.of(), counts))
+                        : itemRepository.findAllById(counts.keySet()).collectList().map(items -> toCart(items, counts)));
+    }
+
+    @Override
+    public Mono<Void> increment(String email, Long itemId) {
+        // the hash has no foreign key, an unknown id would only vanish silently on the next flush
+        return itemRepository.existsById(itemId)
+                .flatMap(exists -> exists
+                        ? mutate(email, itemId.toString(), "1")
+                        : Mono.error(new IllegalArgumentException("No item " + itemId)));
+    }
+
+    @Override
+    public Mono<Void> decrement(String email, Long itemId) {
+        return mutate(email, itemId.toString(), "-1");
+    }
+
+    @Override
+    public Mono<Void> remove(String email, Long itemId) {
+        return mutate(email, itemId.toString(), "remove");
+    }
+
+    @Override
+    public Mono<Void> clear(String email) {
+        return mutate(email, "", "clear");
+    }
+
+    /**
+     * @return the counts of a cart held in Redis, or empty when Redis does not hold the whole cart
+     */
+    Mono<Map<Long, Integer>> counts(String email) {
+        return snapshot(email).map(Snapshot::counts);
+    }
+
+    /**
+     * @return the counts of a cart held in Redis with the version they were read at, or empty when Redis
+     * does not hold the whole cart
+     */
+    Mono<Snapshot> snapshot(String email) {
+        return redisTemplate.<String, String>opsForHash().entries(KEY_PREFIX + email)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .filter(fields -> fields.containsKey(LOADED_FIELD))
+                .map(fields -> new Snapshot(
+                        Long.parseLong(fields.getOrDefault(VERSION_FIELD, "0")),
+                        fields.entrySet().stream()
+                                .filter(field -> !field.getKey().equals(LOADED_FIELD) && !field.getKey().equals(VERSION_FIELD))
+                                .collect(Collectors.toMap(field -> Long.valueOf(field.getKey()), field -> Integer.valueOf(field.getValue())))));
+    }
+
+    private Cart toCart(List<Item> items, Map<Long, Integer> counts) {
+        Cart cart = new Cart();
+        cart.setItems(items.stream()
+                .filter(item -> counts.containsKey(item.getId()))
+                .sorted(Comparator.comparing(Item::getId))
+                .map(item -> new CartItem(null, item.getId(), null, counts.get(item.getId()), item, null))
+                .collect(Collectors.toList()));
+        return cart;
+    }
+
+    private Mono<Void> mutate(String email, String field, String op) {
+        return run(email, field, op, null)
+                .filter(result -> result < 0)
+                .flatMap(notLoaded -> Mono.zip(
+                        cartRepository.findCartLinesByEmail(email)
+                                .filter(line -> line.cartItemId() != null)
+                                .collectList(),
+                        cartRepository.findFlushedVersionByEmail(email).defaultIfEmpty(0L)))
+                .flatMap(seed -> run(email, field, op, new Seed(seed.getT2(), seed.getT1())))
+                .then();
+    }
+
+    /**
+     * @param seed the user's {@code cart_item} lines to seed a missing hash with, {@code null} to ask first
+     */
+    private Mono<Long> run(String email, String field, String op, Seed seed) {
+        List<String> args = new ArrayList<>(List.of(field, email, op, seed == null ? "0" : "1"));
+        if (seed != null) {
+            args.add(Long.toString(seed.version()));
+            for (CartLine line : seed.lines()) {
+                args.add(line.itemId().toString());
+                args.add(line.count().toString());
+            }
+        }
+        return redisTemplate.execute(MUTATE, List.of(KEY_PREFIX + email, DIRTY_KEY), args).next();
+    }
+
+    record Snapshot(long version, Map<Long, Integer> counts) {
+    }
+
+    private record Seed(long version, List<CartLine> lines) {
+    }
+}
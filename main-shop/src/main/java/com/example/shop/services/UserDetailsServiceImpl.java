@@ -20,7 +20,7 @@ public class UserDetailsServiceImpl implements ReactiveUserDetailsService {
                 .map(user -> User.builder()
                         .username(user.getEmail())
                         .password(user.getPassword())
-                        .roles("USER")
+                        .roles(user.getRole())
                         .build());
     }
 }
@@ -10,7 +10,8 @@ CREATE TABLE users (
                        id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
                        name VARCHAR(255) NOT NULL,
                        email VARCHAR(255) NOT NULL UNIQUE,
-                       password VARCHAR(255) NOT NULL
+                       password VARCHAR(255) NOT NULL,
+                       role VARCHAR(32) NOT NULL DEFAULT 'USER'
 );
 
 
@@ -22,9 +23,13 @@ CREATE TABLE item (
                       price DECIMAL(10,2)
 );
 
+CREATE INDEX idx_item_title_id ON item (title, id);
+CREATE INDEX idx_item_price_id ON item (price, id);
+
 CREATE TABLE cart (
                       id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
                       user_id BIGINT NOT NULL UNIQUE,
+                      flushed_version BIGINT NOT NULL DEFAULT 0,
                       CONSTRAINT fk_cart_user FOREIGN KEY(user_id) REFERENCES users(id)
 );
 
@@ -34,7 +39,8 @@ CREATE TABLE cart_item (
                            count INT,
                            cart_id BIGINT,
                            CONSTRAINT fk_cart_item_item FOREIGN KEY(item_id) REFERENCES item(id),
-                           CONSTRAINT fk_cart_item_cart FOREIGN KEY(cart_id) REFERENCES cart(id)
+                           CONSTRAINT fk_cart_item_cart FOREIGN KEY(cart_id) REFERENCES cart(id),
+                           CONSTRAINT uq_cart_item_cart_item UNIQUE (cart_id, item_id)
 );
 
 CREATE TABLE orders (
@@ -49,6 +55,12 @@ CREATE TABLE order_item (
                             item_id BIGINT NOT NULL,
                             count INT,
                             order_id BIGINT,
+                            title VARCHAR(255),
+                            price DECIMAL(10,2),
+                            img_path VARCHAR(255),
                             CONSTRAINT fk_order_item_item FOREIGN KEY(item_id) REFERENCES item(id),
                             CONSTRAINT fk_order_item_order FOREIGN KEY(order_id) REFERENCES orders(id)
-);
\ No newline at end of file
+);
+
+CREATE INDEX idx_orders_user_id_id ON orders (user_id, id);
+CREATE INDEX idx_order_item_order_id ON order_item (order_id);
\ No newline at end of file
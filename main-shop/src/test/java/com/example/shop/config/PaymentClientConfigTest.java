@@ -0,0 +1,94 @@
+package com.example.shop.config;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.server.reactive.AbstractServerHttpRequest;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+
+class PaymentClientConfigTest {
+
+    private final PaymentClientConfig config = new PaymentClientConfig();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private DisposableServer server;
+    private ConnectionProvider connectionProvider;
+
+    @BeforeEach
+    void setUp() {
+        // reactor-netty publishes pool metrics to the global registry, which Boot bridges to its own
+        Metrics.addRegistry(meterRegistry);
+        // a WebFlux handler on the transport payments gets from server.http2.enabled without TLS
+        server = HttpServer.create()
+                .port(0)
+                .protocol(HttpProtocol.H2C, HttpProtocol.HTTP11)
+                .handle(new ReactorHttpHandlerAdapter(RouterFunctions.toHttpHandler(RouterFunctions.route(
+                        GET("/protocol"),
+                        request -> ServerResponse.ok().bodyValue(((AbstractServerHttpRequest) request.exchange().getRequest())
+                                .<HttpServerRequest>getNativeRequest().version().text())))))
+                .bindNow();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.disposeNow();
+        if (connectionProvider != null) {
+            connectionProvider.disposeLater().block(Duration.ofSeconds(5));
+        }
+        Metrics.removeRegistry(meterRegistry);
+        meterRegistry.close();
+    }
+
+    private WebClient paymentsWebClient(boolean h2c) {
+        PaymentClientProperties properties = new PaymentClientProperties();
+        properties.setH2c(h2c);
+        connectionProvider = config.paymentsConnectionProvider(properties);
+        return WebClient.builder()
+                .baseUrl("http://localhost:" + server.port())
+                .clientConnector(new ReactorClientHttpConnector(config.paymentsHttpClient(connectionProvider, properties)))
+                .build();
+    }
+
+    private static String protocol(WebClient client) {
+        return client.get().uri("/protocol").retrieve().bodyToMono(String.class).block(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void h2cClientTalksHttp2ToTheServer() {
+        assertThat(protocol(paymentsWebClient(true))).isEqualTo("HTTP/2.0");
+    }
+
+    @Test
+    void withoutH2cTheClientStaysOnHttp11() {
+        assertThat(protocol(paymentsWebClient(false))).isEqualTo("HTTP/1.1");
+    }
+
+    @Test
+    void namedPoolPublishesConnectionAndStreamMetrics() {
+        protocol(paymentsWebClient(true));
+
+        assertThat(meterRegistry.find("reactor.netty.connection.provider.total.connections")
+                .tag("name", PaymentClientConfig.PAYMENTS).gauge()).isNotNull();
+        assertThat(meterRegistry.find("reactor.netty.connection.provider.max.connections")
+                .tag("name", PaymentClientConfig.PAYMENTS).gauge().value()).isEqualTo(50);
+        // h2c streams are multiplexed by a pool of their own, named after the connection pool
+        assertThat(meterRegistry.find("reactor.netty.connection.provider.active.streams")
+                .tag("name", "http2." + PaymentClientConfig.PAYMENTS).gauge()).isNotNull();
+    }
+}
@@ -8,6 +8,7 @@ import com.example.shop.models.Cart;
 import com.example.shop.models.CartItem;
 import com.example.shop.models.Item;
 import com.example.shop.models.ItemSort;
+import com.example.shop.models.Money;
 import com.example.shop.services.CartService;
 import com.example.shop.services.ItemService;
 import org.junit.jupiter.api.BeforeEach;
@@ -23,7 +24,6 @@ import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Mono;
 
-import java.math.BigDecimal;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -31,6 +31,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers.mockUser;
 
@@ -56,12 +57,12 @@ class ItemControllerTest {
 
     @BeforeEach
     void setUp() {
-        ItemListDto it1 = new ItemListDto(1L, "A", "desc A", BigDecimal.valueOf(5), "/img/a.png");
-        ItemListDto it2 = new ItemListDto(2L, "B", "desc B", BigDecimal.valueOf(10), "/img/b.png");
+        ItemListDto it1 = new ItemListDto(1L, "A", "desc A", Money.of("5"), "/img/a.png");
+        ItemListDto it2 = new ItemListDto(2L, "B", "desc B", Money.of("10"), "/img/b.png");
 
         pageDto = new SimplePage<>(List.of(it1, it2), 1, 10, 2);
 
-        Item fullItem1 = new Item(1L, "A", "desc A", "/img/a.png", BigDecimal.valueOf(5), 0);
+        Item fullItem1 = new Item(1L, "A", "desc A", "/img/a.png", Money.of("5"), 0);
         CartItem cartItem = new CartItem();
         cartItem.setItemId(1L);
         cartItem.setItem(fullItem1);
@@ -85,8 +86,8 @@ class ItemControllerTest {
 
     @Test
     void whenShowItems_withUnauthenticatedUser_thenCountsAreZero() {
-        when(itemService.getItemsPageSync(any(), any(), any(Integer.class), any(Integer.class))).thenReturn(pageDto);
-        when(cartService.getOrCreateCart(isNull())).thenReturn(Mono.just(emptyCart));
+        when(itemService.getItemsPage(any(), any(), any(Integer.class), any(Integer.class))).thenReturn(Mono.just(pageDto));
+        when(cartService.getCart(isNull())).thenReturn(Mono.just(emptyCart));
 
         webTestClient.get().uri("/main/items")
                 .accept(MediaType.TEXT_HTML)
@@ -99,13 +100,13 @@ class ItemControllerTest {
                     assertThat(html).doesNotContain(">3<");
                 });
 
-        verify(cartService).getOrCreateCart(isNull());
+        verify(cartService).getCart(isNull());
     }
 
     @Test
     void whenShowItems_withAuthenticatedUser_thenPagedAndCountsRendered() {
-        when(itemService.getItemsPageSync(eq(""), eq(ItemSort.NO), eq(1), eq(10))).thenReturn(pageDto);
-        when(cartService.getOrCreateCart(any(UserDetails.class))).thenReturn(Mono.just(cartWithItems));
+        when(itemService.getItemsPage(eq(""), eq(ItemSort.NO), eq(1), eq(10))).thenReturn(Mono.just(pageDto));
+        when(cartService.getCart(any(UserDetails.class))).thenReturn(Mono.just(cartWithItems));
 
         webTestClient.mutateWith(mockUser("user"))
                 .get().uri("/main/items")
@@ -119,15 +120,15 @@ class ItemControllerTest {
                     assertThat(html).contains(">3<");
                 });
 
-        verify(itemService).getItemsPageSync("", ItemSort.NO, 1, 10);
-        verify(cartService).getOrCreateCart(any(UserDetails.class));
+        verify(itemService).getItemsPage("", ItemSort.NO, 1, 10);
+        verify(cartService).getCart(any(UserDetails.class));
     }
 
     @Test
     void whenGetShowItem_withAuthenticatedUser_thenModelHasItemWithCount() {
-        ItemCardDto dto = new ItemCardDto(1L, "/img/a.png", "A", "desc A", BigDecimal.valueOf(5));
+        ItemCardDto dto = new ItemCardDto(1L, "/img/a.png", "A", "desc A", Money.of("5"));
         when(itemService.getItemCardSync(1L)).thenReturn(dto);
-        when(cartService.getOrCreateCart(any(UserDetails.class))).thenReturn(Mono.just(cartWithItems));
+        when(cartService.getCart(any(UserDetails.class))).thenReturn(Mono.just(cartWithItems));
 
         webTestClient.mutateWith(mockUser("user"))
                 .get().uri("/items/1")
@@ -138,10 +139,26 @@ class ItemControllerTest {
                 .value(html -> {
                     assertThat(html).contains("A");
                     assertThat(html).contains(">3<");
+                    assertThat(html).doesNotContain("/items/1/edit");
                 });
 
         verify(itemService).getItemCardSync(1L);
-        verify(cartService).getOrCreateCart(any(UserDetails.class));
+        verify(cartService).getCart(any(UserDetails.class));
+    }
+
+    @Test
+    void whenGetShowItem_asAdmin_thenEditFormRendered() {
+        ItemCardDto dto = new ItemCardDto(1L, "/img/a.png", "A", "desc A", Money.of("5"));
+        when(itemService.getItemCardSync(1L)).thenReturn(dto);
+        when(cartService.getCart(any(UserDetails.class))).thenReturn(Mono.just(emptyCart));
+
+        webTestClient.mutateWith(mockUser("admin").roles("ADMIN"))
+                .get().uri("/items/1")
+                .accept(MediaType.TEXT_HTML)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .value(html -> assertThat(html).contains("/items/1/edit"));
     }
 
     @Test
@@ -174,5 +191,34 @@ class ItemControllerTest {
         verify(cartService).add(eq(1L), any(UserDetails.class));
     }
 
-}
+    @Test
+    void whenEditItem_asAdmin_updatesAndRedirects() {
+        Item saved = new Item(1L, "New", "desc", "/img/a.png", Money.of("7.50"), 0);
+        when(itemService.update(1L, "New", "desc", Money.of("7.50"))).thenReturn(Mono.just(saved));
+
+        webTestClient.mutateWith(mockUser("admin").roles("ADMIN"))
+                .post()
+                .uri("/items/1/edit")
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .bodyValue("title=New&description=desc&price=7.50")
+                .exchange()
+                .expectStatus().is3xxRedirection()
+                .expectHeader().valueEquals("Location", "/items/1");
+
+        verify(itemService).update(1L, "New", "desc", Money.of("7.50"));
+    }
+
+    @Test
+    void whenEditItem_asUser_isForbidden() {
+        webTestClient.mutateWith(mockUser("user"))
+                .post()
+                .uri("/items/1/edit")
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .bodyValue("title=New&description=desc&price=7.50")
+                .exchange()
+                .expectStatus().isForbidden();
 
+        verifyNoInteractions(itemService);
+    }
+
+}
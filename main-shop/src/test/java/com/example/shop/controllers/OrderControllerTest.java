@@ -1,6 +1,9 @@
 package com.example.shop.controllers;
 
 import com.example.shop.config.SecurityConfig;
+import com.example.shop.dtos.OrderSummary;
+import com.example.shop.dtos.OrderSummaryPage;
+import com.example.shop.models.Money;
 import com.example.shop.models.Order;
 import com.example.shop.services.OrderService;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,12 +16,14 @@ import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.WebTestClient;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers.mockUser;
@@ -80,7 +85,12 @@ class OrderControllerTest {
 
     @Test
     void whenListOrders_withAuthenticatedUser_rendersOrdersPage() {
-        when(orderService.findAllForUser(any(UserDetails.class))).thenReturn(Flux.just(order1, order2));
+        when(orderService.findPageForUser(any(UserDetails.class), isNull(), eq(20))).thenReturn(Mono.just(
+                new OrderSummaryPage(List.of(
+                        new OrderSummary(20L, Money.of("10"), 2),
+                        new OrderSummary(10L, Money.of("1"), 1)
+                ), 10L, 20)
+        ));
 
         webTestClient.mutateWith(mockUser("user"))
                 .get().uri("/orders")
@@ -91,9 +101,10 @@ class OrderControllerTest {
                 .value(html -> {
                     assertThat(html).contains("10");
                     assertThat(html).contains("20");
+                    assertThat(html).contains("/orders?before=10&amp;size=20");
                 });
 
-        verify(orderService).findAllForUser(any(UserDetails.class));
+        verify(orderService).findPageForUser(any(UserDetails.class), isNull(), eq(20));
     }
 
     @Test
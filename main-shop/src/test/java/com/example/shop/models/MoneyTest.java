@@ -0,0 +1,43 @@
+package com.example.shop.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyTest {
+
+    @Test
+    void convertsDecimalColumnValuesExactly() {
+        assertThat(Money.of(new BigDecimal("49.99")).minorUnits()).isEqualTo(4_999);
+        assertThat(Money.of(new BigDecimal("29.5")).minorUnits()).isEqualTo(2_950);
+        assertThat(Money.of(new BigDecimal("7.000")).minorUnits()).isEqualTo(700);
+        assertThat(Money.ofMinor(4_999).toBigDecimal()).isEqualTo(new BigDecimal("49.99"));
+    }
+
+    @Test
+    void rejectsFractionsOfAKopeck() {
+        assertThatThrownBy(() -> Money.of("0.001")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void printsLikeTheDecimalColumn() {
+        assertThat(List.of(Money.ofMinor(123_450), Money.ofMinor(5), Money.ZERO, Money.ofMinor(-5), Money.ofMinor(-1_050)))
+                .extracting(Money::toString)
+                .containsExactly("1234.50", "0.05", "0.00", "-0.05", "-10.50");
+    }
+
+    @Test
+    void totalsCartLinesInKopecks() {
+        Item chair = new Item(1L, "Chair", "d", "/1", Money.of("49.99"), 0);
+        Item lamp = new Item(2L, "Lamp", "d", "/2", Money.of("29.50"), 0);
+        Cart cart = new Cart();
+        cart.setItems(List.of(new CartItem(null, 1L, null, 3, chair, null), new CartItem(null, 2L, null, 1, lamp, null)));
+
+        assertThat(cart.getTotal()).isEqualTo(Money.of("179.47"));
+        assertThat(new Cart().getTotal()).isEqualTo(Money.ZERO);
+    }
+}
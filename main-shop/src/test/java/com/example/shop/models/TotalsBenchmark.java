@@ -0,0 +1,85 @@
+package com.example.shop.models;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart and order totals with {@link Money} against the {@code BigDecimal} stream they replaced.
+ * Run with {@code mvn -pl main-shop test-compile} and then this class's {@code main} on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TotalsBenchmark {
+
+    @Param({"3", "20"})
+    int lines;
+
+    private Cart cart;
+    private Order order;
+    private List<DecimalLine> decimalLines;
+
+    @Setup
+    public void setUp() {
+        cart = new Cart();
+        order = new Order();
+        decimalLines = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            BigDecimal price = new BigDecimal("19.95").add(BigDecimal.valueOf(i, 2));
+            int count = 1 + i % 3;
+            Item item = new Item((long) i, "item " + i, "", "", Money.of(price), 0);
+            cart.getItems().add(new CartItem(null, item.getId(), null, count, item, null));
+            OrderItem orderItem = new OrderItem();
+            orderItem.setPrice(item.getPrice());
+            orderItem.setCount(count);
+            order.getItems().add(orderItem);
+            decimalLines.add(new DecimalLine(price, count));
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalTotal() {
+        // Cart.getTotal and Order.computeTotal before Money
+        return decimalLines.stream()
+                .map(line -> line.price().multiply(BigDecimal.valueOf(line.count())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Benchmark
+    public Money cartTotal() {
+        return cart.getTotal();
+    }
+
+    @Benchmark
+    public Money orderTotal() {
+        order.computeTotal();
+        return order.getTotal();
+    }
+
+    private record DecimalLine(BigDecimal price, int count) {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TotalsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.shop.repositories;
+
+import com.example.shop.models.Item;
+import com.example.shop.models.ItemSort;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.core.AutoConfigureCache;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@AutoConfigureCache
+@DataR2dbcTest(properties = "spring.r2dbc.url=r2dbc:h2:mem:///itemRepositoryTest?DB_CLOSE_DELAY=-1&MODE=PostgreSQL")
+class ItemRepositoryTest {
+
+    private static final int SEGMENT = 3;
+
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void addItemsWithoutTitleOrPrice() {
+        databaseClient.sql("DELETE FROM item WHERE id >= 100").then().block();
+        databaseClient.sql("""
+                INSERT INTO item (id, title, description, img_path, price) VALUES
+                    (100, 'Free Sample', 'd', 'images/100.png', NULL),
+                    (101, NULL, 'd', 'images/101.png', 5.00),
+                    (102, 'Another Sample', 'd', 'images/102.png', NULL),
+                    (103, NULL, 'd', 'images/103.png', NULL)
+                """).then().block();
+    }
+
+    @Test
+    void pricePages_crossNullPrices() {
+        assertSeekMatchesOffset(ItemSort.PRICE);
+    }
+
+    @Test
+    void titlePages_crossNullTitles() {
+        assertSeekMatchesOffset(ItemSort.ALPHA);
+    }
+
+    private void assertSeekMatchesOffset(ItemSort sort) {
+        List<Long> expected = ids(itemRepository.findAllBy(Pageable.unpaged(sort.toSort())).collectList().block());
+
+        List<Long> paged = new ArrayList<>();
+        Item last = null;
+        List<Item> segment;
+        do {
+            segment = itemRepository.findPageAfter(sort, last, SEGMENT).collectList().block();
+            paged.addAll(ids(segment));
+            last = segment.isEmpty() ? null : segment.get(segment.size() - 1);
+        } while (segment.size() == SEGMENT);
+
+        assertThat(expected).hasSize(9).endsWith(103L);
+        assertThat(paged).isEqualTo(expected);
+    }
+
+    private static List<Long> ids(List<Item> items) {
+        return items.stream().map(Item::getId).toList();
+    }
+}
@@ -3,12 +3,7 @@ package com.example.shop.services;
 import com.example.shop.models.Cart;
 import com.example.shop.models.CartItem;
 import com.example.shop.models.Item;
-import com.example.shop.models.User;
-import com.example.shop.repositories.CartItemRepository;
-import com.example.shop.repositories.CartRepository;
-import com.example.shop.repositories.ItemRepository;
-import com.example.shop.repositories.UserRepository;
-import org.junit.jupiter.api.BeforeEach;
+import com.example.shop.models.Money;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -16,30 +11,22 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.userdetails.UserDetails;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
-import java.math.BigDecimal;
 import java.util.List;
+import java.util.concurrent.TimeoutException;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyLong;
-import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class CartServiceTest {
 
+    private static final String EMAIL = "user@test.com";
+
     @Mock
-    private CartRepository cartRepo;
-    @Mock
-    private CartItemRepository cartItemRepo;
-    @Mock
-    private ItemRepository itemRepo;
-    @Mock
-    private UserRepository userRepo;
+    private CartStore cartStore;
     @Mock
     private PaymentServiceClient paymentClient;
     @Mock
@@ -48,64 +35,26 @@ class CartServiceTest {
     @InjectMocks
     private CartService service;
 
-    private User user;
-    private Cart cart;
-    private Item item1;
-
-    @BeforeEach
-    void setUp() {
-        user = new User();
-        user.setId(1L);
-        user.setEmail("user@test.com");
-
-        cart = new Cart();
-        cart.setId(10L);
-        cart.setUserId(user.getId());
-
-        item1 = new Item(101L, "Item 1", "Desc 1", "/img/1.png", BigDecimal.TEN, 0);
-    }
-
     @Test
-    void getOrCreateCart_forAnonymousUser_returnsEmptyNonPersistedCart() {
-        StepVerifier.create(service.getOrCreateCart(null))
+    void getCart_forAnonymousUser_returnsEmptyNonPersistedCart() {
+        StepVerifier.create(service.getCart(null))
                 .assertNext(result -> {
                     assertThat(result.getId()).isNull();
                     assertThat(result.getItems()).isEmpty();
                 })
                 .verifyComplete();
 
-        verifyNoInteractions(userRepo, cartRepo);
+        verifyNoInteractions(cartStore);
     }
 
     @Test
-    void getOrCreateCart_forNewUser_createsAndSavesCart() {
-        when(userDetails.getUsername()).thenReturn(user.getEmail());
-        when(userRepo.findByEmail(user.getEmail())).thenReturn(Mono.just(user));
-        when(cartRepo.findByUserId(user.getId())).thenReturn(Mono.empty());
-        when(cartRepo.save(any(Cart.class))).thenReturn(Mono.just(cart));
-        when(cartRepo.findById(cart.getId())).thenReturn(Mono.just(cart));
-        when(cartItemRepo.findByCartId(cart.getId())).thenReturn(Flux.empty());
-
-        StepVerifier.create(service.getOrCreateCart(userDetails))
-                .assertNext(result -> assertThat(result.getId()).isEqualTo(cart.getId()))
-                .verifyComplete();
-
-        verify(cartRepo).save(argThat(c -> c.getUserId().equals(user.getId())));
-    }
+    void getCart_unknownUser_returnsEmptyCart() {
+        when(userDetails.getUsername()).thenReturn(EMAIL);
+        when(cartStore.find(EMAIL)).thenReturn(Mono.empty());
 
-    @Test
-    void getOrCreateCart_forExistingUser_loadsCart() {
-        when(userDetails.getUsername()).thenReturn(user.getEmail());
-        when(userRepo.findByEmail(user.getEmail())).thenReturn(Mono.just(user));
-        when(cartRepo.findByUserId(user.getId())).thenReturn(Mono.just(cart));
-        when(cartRepo.findById(cart.getId())).thenReturn(Mono.just(cart));
-        when(cartItemRepo.findByCartId(cart.getId())).thenReturn(Flux.empty());
-
-        StepVerifier.create(service.getOrCreateCart(userDetails))
-                .assertNext(result -> assertThat(result.getId()).isEqualTo(cart.getId()))
+        StepVerifier.create(service.getCart(userDetails))
+                .assertNext(result -> assertThat(result.getItems()).isEmpty())
                 .verifyComplete();
-
-        verify(cartRepo, never()).save(any(Cart.class));
     }
 
     @Test
@@ -113,34 +62,72 @@ class CartServiceTest {
         StepVerifier.create(service.add(1L, null))
                 .expectError(AccessDeniedException.class)
                 .verify();
+
+        verifyNoInteractions(cartStore);
     }
 
     @Test
-    void add_newItem_createsCartItem() {
-
-        when(userDetails.getUsername()).thenReturn(user.getEmail());
-        when(userRepo.findByEmail(user.getEmail())).thenReturn(Mono.just(user));
-        when(cartRepo.findByUserId(user.getId())).thenReturn(Mono.just(cart));
-
-        when(cartRepo.findById(cart.getId())).thenReturn(Mono.just(cart));
+    void mutations_delegateToStoreByEmail() {
+        when(userDetails.getUsername()).thenReturn(EMAIL);
+        when(cartStore.increment(EMAIL, 1L)).thenReturn(Mono.empty());
+        when(cartStore.decrement(EMAIL, 2L)).thenReturn(Mono.empty());
+        when(cartStore.remove(EMAIL, 3L)).thenReturn(Mono.empty());
+        when(cartStore.clear(EMAIL)).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.add(1L, userDetails)
+                        .then(service.remove(2L, userDetails))
+                        .then(service.delete(3L, userDetails))
+                        .then(service.clear(userDetails)))
+                .verifyComplete();
 
-        when(itemRepo.findById(item1.getId())).thenReturn(Mono.just(item1));
+        verify(cartStore).increment(EMAIL, 1L);
+        verify(cartStore).decrement(EMAIL, 2L);
+        verify(cartStore).remove(EMAIL, 3L);
+        verify(cartStore).clear(EMAIL);
+    }
 
-        when(cartItemRepo.findByCartId(cart.getId())).thenReturn(Flux.empty());
+    @Test
+    void buildCartPageData_comparesBalanceWithTotal() {
+        Item item = new Item(101L, "Item 1", "Desc 1", "/img/1.png", Money.of("10"), 0);
+        Cart cart = new Cart();
+        cart.setItems(List.of(new CartItem(null, item.getId(), null, 2, item, null)));
+        when(userDetails.getUsername()).thenReturn(EMAIL);
+        when(cartStore.find(EMAIL)).thenReturn(Mono.just(cart));
+        when(paymentClient.getBalance()).thenReturn(Mono.just(Money.of("15")));
+
+        StepVerifier.create(service.buildCartPageData(userDetails))
+                .assertNext(data -> {
+                    assertThat(data.total()).isEqualTo(Money.of("20"));
+                    assertThat(data.items()).singleElement().extracting(Item::getCount).isEqualTo(2);
+                    assertThat(data.disableBuy()).isTrue();
+                })
+                .verifyComplete();
+    }
 
-        CartItem newCartItem = new CartItem();
-        newCartItem.setCartId(cart.getId());
-        newCartItem.setItemId(item1.getId());
-        newCartItem.setCount(1);
-        when(cartItemRepo.save(any(CartItem.class))).thenReturn(Mono.just(newCartItem));
+    @Test
+    void buildCartPageData_disablesBuyWhenPaymentsUnavailable() {
+        Item item = new Item(101L, "Item 1", "Desc 1", "/img/1.png", Money.of("10"), 0);
+        Cart cart = new Cart();
+        cart.setItems(List.of(new CartItem(null, item.getId(), null, 1, item, null)));
+        when(userDetails.getUsername()).thenReturn(EMAIL);
+        when(cartStore.find(EMAIL)).thenReturn(Mono.just(cart));
+        when(paymentClient.getBalance()).thenReturn(Mono.error(new TimeoutException()));
+
+        StepVerifier.create(service.buildCartPageData(userDetails))
+                .assertNext(data -> {
+                    assertThat(data.items()).hasSize(1);
+                    assertThat(data.balance()).isNull();
+                    assertThat(data.disableBuy()).isTrue();
+                })
+                .verifyComplete();
+    }
 
-        StepVerifier.create(service.add(item1.getId(), userDetails))
-                .assertNext(updatedCart -> assertThat(updatedCart.getId()).isEqualTo(cart.getId()))
+    @Test
+    void buildCartPageData_anonymousSkipsPayments() {
+        StepVerifier.create(service.buildCartPageData(null))
+                .assertNext(data -> assertThat(data.empty()).isTrue())
                 .verifyComplete();
 
-        verify(cartItemRepo).save(argThat(ci ->
-                ci.getItemId().equals(item1.getId()) && ci.getCount() == 1
-        ));
+        verifyNoInteractions(paymentClient, cartStore);
     }
-
 }
@@ -0,0 +1,56 @@
+package com.example.shop.services;
+
+import com.example.shop.events.ItemChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import reactor.core.publisher.Mono;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogCacheInvalidatorTest {
+
+    @Mock
+    private CacheManager cacheManager;
+    @Mock
+    private ItemPageCache itemPageCache;
+    @Mock
+    private Cache itemCard;
+
+    @InjectMocks
+    private CatalogCacheInvalidator invalidator;
+
+    @Test
+    void localChange_evictsTheCardAndClearsThePages() {
+        when(cacheManager.getCache("itemCard")).thenReturn(itemCard);
+        when(itemPageCache.clear()).thenReturn(Mono.empty());
+
+        invalidator.onItemChanged(new ItemChangedEvent(3L));
+
+        verify(itemCard).evict(3L);
+        verify(itemPageCache).clear();
+    }
+
+    @Test
+    void failedPageClear_doesNotEscapeTheListener() {
+        when(cacheManager.getCache("itemCard")).thenReturn(itemCard);
+        when(itemPageCache.clear()).thenReturn(Mono.error(new RedisConnectionFailureException("down")));
+
+        invalidator.onItemChanged(new ItemChangedEvent(3L));
+
+        verify(itemCard).evict(3L);
+    }
+
+    @Test
+    void remoteChange_isLeftToTheNodeThatMadeIt() {
+        invalidator.onItemChanged(new ItemChangedEvent(3L, true));
+
+        verifyNoInteractions(cacheManager, itemPageCache);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.shop.services;
+
+import com.example.shop.dtos.ItemListDto;
+import com.example.shop.models.ItemSort;
+import com.example.shop.models.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogSnapshotTest {
+
+    private CatalogSnapshot snapshot;
+
+    @BeforeEach
+    void setup() {
+        snapshot = CatalogSnapshot.of(0, List.of(
+                row(5L, "Cup", "3.50"),
+                row(2L, "Apple", "10.00"),
+                row(9L, "Bag", "3.50")
+        ));
+    }
+
+    @Test
+    void slice_returnsPagesInEachSortOrder() {
+        assertThat(ids(snapshot.slice(ItemSort.NO, 0, 10))).containsExactly(2L, 5L, 9L);
+        assertThat(ids(snapshot.slice(ItemSort.ALPHA, 0, 10))).containsExactly(2L, 9L, 5L);
+        assertThat(ids(snapshot.slice(ItemSort.PRICE, 0, 10))).containsExactly(5L, 9L, 2L);
+    }
+
+    @Test
+    void slice_appliesOffsetAndLimit() {
+        assertThat(ids(snapshot.slice(ItemSort.ALPHA, 1, 1))).containsExactly(9L);
+        assertThat(snapshot.slice(ItemSort.ALPHA, 5, 10)).isEmpty();
+    }
+
+    @Test
+    void upsert_existingItem_reordersWithoutChangingOriginal() {
+        CatalogSnapshot next = snapshot.upsert(row(2L, "Zebra", "1.00"));
+
+        assertThat(next.version()).isEqualTo(1);
+        assertThat(ids(next.slice(ItemSort.ALPHA, 0, 10))).containsExactly(9L, 5L, 2L);
+        assertThat(ids(next.slice(ItemSort.PRICE, 0, 10))).containsExactly(2L, 5L, 9L);
+        assertThat(ids(snapshot.slice(ItemSort.ALPHA, 0, 10))).containsExactly(2L, 9L, 5L);
+    }
+
+    @Test
+    void upsert_newItem_insertsIntoEveryOrder() {
+        CatalogSnapshot next = snapshot.upsert(row(7L, "Box", "5.00"));
+
+        assertThat(next.size()).isEqualTo(4);
+        assertThat(ids(next.slice(ItemSort.NO, 0, 10))).containsExactly(2L, 5L, 7L, 9L);
+        assertThat(ids(next.slice(ItemSort.ALPHA, 0, 10))).containsExactly(2L, 9L, 7L, 5L);
+        assertThat(ids(next.slice(ItemSort.PRICE, 0, 10))).containsExactly(5L, 9L, 7L, 2L);
+    }
+
+    @Test
+    void remove_dropsItemFromEveryOrder() {
+        CatalogSnapshot next = snapshot.remove(5L);
+
+        assertThat(next.size()).isEqualTo(2);
+        assertThat(ids(next.slice(ItemSort.NO, 0, 10))).containsExactly(2L, 9L);
+        assertThat(ids(next.slice(ItemSort.ALPHA, 0, 10))).containsExactly(2L, 9L);
+        assertThat(ids(next.slice(ItemSort.PRICE, 0, 10))).containsExactly(9L, 2L);
+        assertThat(snapshot.remove(42L)).isSameAs(snapshot);
+    }
+
+    private static ItemListDto row(long id, String title, String price) {
+        return new ItemListDto(id, title, "desc", Money.of(price), "/img" + id);
+    }
+
+    private static List<Long> ids(List<ItemListDto> rows) {
+        return rows.stream().map(ItemListDto::id).toList();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.shop.services;
+
+import com.example.shop.events.ItemChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ItemChangeBroadcasterTest {
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Captor
+    private ArgumentCaptor<Consumer<String>> remoteChanges;
+
+    private ItemChangeBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        broadcaster = new ItemChangeBroadcaster(invalidationBus, eventPublisher);
+        verify(invalidationBus).register(eq(ItemChangeBroadcaster.TOPIC), remoteChanges.capture());
+    }
+
+    @Test
+    void localChangeIsBroadcast() {
+        when(invalidationBus.publish(ItemChangeBroadcaster.TOPIC, "7")).thenReturn(Mono.empty());
+
+        broadcaster.onItemChanged(new ItemChangedEvent(7L));
+
+        verify(invalidationBus).publish(ItemChangeBroadcaster.TOPIC, "7");
+    }
+
+    @Test
+    void changeOnAnotherNodeIsRepublishedAsRemoteEvent() {
+        remoteChanges.getValue().accept("7");
+
+        verify(eventPublisher).publishEvent(new ItemChangedEvent(7L, true));
+    }
+
+    @Test
+    void remoteChangeIsNotBroadcastAgain() {
+        broadcaster.onItemChanged(new ItemChangedEvent(7L, true));
+
+        verify(invalidationBus, never()).publish(anyString(), anyString());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+}
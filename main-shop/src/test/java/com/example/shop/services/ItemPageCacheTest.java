@@ -0,0 +1,168 @@
+package com.example.shop.services;
+
+import com.example.shop.config.CatalogProperties;
+import com.example.shop.config.NearCacheProperties;
+import com.example.shop.dtos.ItemListDto;
+import com.example.shop.dtos.PageSegment;
+import com.example.shop.models.ItemSort;
+import com.example.shop.models.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.ReactiveRedisOperations;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.ReactiveZSetOperations;
+import org.springframework.data.redis.serializer.SerializationException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ItemPageCacheTest {
+
+    @Mock
+    private ReactiveRedisOperations<String, Object> catalogRedisTemplate;
+    @Mock
+    private ReactiveValueOperations<String, Object> valueOps;
+    @Mock
+    private ReactiveZSetOperations<String, Object> zSetOps;
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ItemPageCache itemPageCache;
+    private PageSegment segment;
+
+    @BeforeEach
+    void setUp() {
+        CatalogProperties catalogProperties = new CatalogProperties();
+        catalogProperties.getPageCache().setTtl(Duration.ofMinutes(5));
+        catalogProperties.getPageCache().setMaxSegments(2);
+        meterRegistry = new SimpleMeterRegistry();
+        itemPageCache = new ItemPageCache(
+                catalogRedisTemplate, catalogProperties, new NearCacheProperties(), invalidationBus, meterRegistry);
+        segment = new PageSegment(List.of(new ItemListDto(1L, "A", "a", Money.of("1"), "/a.png")), 1);
+    }
+
+    @Test
+    void get_readsSegmentByQuerySortAndIndex() {
+        when(catalogRedisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.get("itemListPages:v2::foo|PRICE|3")).thenReturn(Mono.just(segment));
+
+        StepVerifier.create(itemPageCache.get("foo", ItemSort.PRICE, 3))
+                .expectNext(segment)
+                .verifyComplete();
+    }
+
+    @Test
+    void put_withinBound_writesSegmentWithTtlAndDoesNotEvict() {
+        stubWrite(2L);
+
+        StepVerifier.create(itemPageCache.put("", ItemSort.NO, 0, segment))
+                .expectNext(segment)
+                .verifyComplete();
+
+        verify(valueOps).set("itemListPages:v2::|NO|0", segment, Duration.ofMinutes(5));
+        verify(zSetOps).add(eq("itemListPages:v2:index"), eq("itemListPages:v2::|NO|0"), anyDouble());
+        verify(zSetOps, never()).popMin(any(), anyLong());
+        verify(catalogRedisTemplate, never()).delete(any(String[].class));
+    }
+
+    @Test
+    void put_overBound_evictsOldestSegments() {
+        stubWrite(4L);
+        when(zSetOps.popMin("itemListPages:v2:index", 2L)).thenReturn(Flux.just(
+                new DefaultTypedTuple<>("itemListPages:v2::a|NO|0", 1d),
+                new DefaultTypedTuple<>("itemListPages:v2::b|NO|0", 2d)
+        ));
+        when(catalogRedisTemplate.delete(any(String[].class))).thenReturn(Mono.just(2L));
+
+        StepVerifier.create(itemPageCache.put("", ItemSort.NO, 0, segment))
+                .expectNext(segment)
+                .verifyComplete();
+
+        verify(catalogRedisTemplate).delete("itemListPages:v2::a|NO|0", "itemListPages:v2::b|NO|0");
+    }
+
+    private void stubWrite(long indexSize) {
+        when(catalogRedisTemplate.opsForValue()).thenReturn(valueOps);
+        when(catalogRedisTemplate.opsForZSet()).thenReturn(zSetOps);
+        when(valueOps.set(any(), any(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(zSetOps.add(any(), any(), anyDouble())).thenReturn(Mono.just(true));
+        when(zSetOps.removeRangeByScore(eq("itemListPages:v2:index"), any())).thenReturn(Mono.just(0L));
+        when(zSetOps.size("itemListPages:v2:index")).thenReturn(Mono.just(indexSize));
+    }
+
+    @Test
+    void get_afterRemoteHit_servesFromL1WithoutRedis() {
+        when(catalogRedisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.get("itemListPages:v2::|NO|0")).thenReturn(Mono.just(segment));
+
+        StepVerifier.create(itemPageCache.get("", ItemSort.NO, 0)).expectNext(segment).verifyComplete();
+        StepVerifier.create(itemPageCache.get("", ItemSort.NO, 0)).expectNext(segment).verifyComplete();
+
+        verify(valueOps, times(1)).get("itemListPages:v2::|NO|0");
+        assertThat(count("l1", "hit")).isEqualTo(1);
+        assertThat(count("l1", "miss")).isEqualTo(1);
+        assertThat(count("l2", "hit")).isEqualTo(1);
+    }
+
+    @Test
+    void get_remoteMiss_countsL2Miss() {
+        when(catalogRedisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.get("itemListPages:v2::|NO|0")).thenReturn(Mono.empty());
+
+        StepVerifier.create(itemPageCache.get("", ItemSort.NO, 0)).verifyComplete();
+
+        assertThat(count("l2", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    void get_unreadableEntry_isAMiss() {
+        when(catalogRedisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.get("itemListPages:v2::|NO|0"))
+                .thenReturn(Mono.error(new SerializationException("local class incompatible")));
+
+        StepVerifier.create(itemPageCache.get("", ItemSort.NO, 0)).verifyComplete();
+
+        assertThat(count("l2", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    void clear_deletesIndexedSegmentsDropsL1AndBroadcasts() {
+        stubWrite(1L);
+        when(zSetOps.range(eq("itemListPages:v2:index"), any()))
+                .thenReturn(Flux.just("itemListPages:v2::|NO|0"));
+        when(catalogRedisTemplate.delete(any(String[].class))).thenReturn(Mono.just(2L));
+        when(invalidationBus.publish("itemListPages", "*")).thenReturn(Mono.empty());
+        itemPageCache.put("", ItemSort.NO, 0, segment).block();
+
+        StepVerifier.create(itemPageCache.clear()).verifyComplete();
+
+        verify(catalogRedisTemplate).delete("itemListPages:v2::|NO|0", "itemListPages:v2:index");
+        verify(invalidationBus).publish("itemListPages", "*");
+
+        when(valueOps.get("itemListPages:v2::|NO|0")).thenReturn(Mono.empty());
+        StepVerifier.create(itemPageCache.get("", ItemSort.NO, 0)).verifyComplete();
+    }
+
+    private double count(String level, String result) {
+        return meterRegistry.get("shop.cache.near.gets")
+                .tag("cache", "itemListPages").tag("level", level).tag("result", result)
+                .counter().count();
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.shop.services;
+
+import com.example.shop.events.ItemChangedEvent;
+import com.example.shop.models.Item;
+import com.example.shop.models.ItemSort;
+import com.example.shop.models.Money;
+import com.example.shop.repositories.ItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ItemSearchIndexTest {
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @InjectMocks
+    private ItemSearchIndex index;
+
+    @BeforeEach
+    void setup() {
+        index.rebuild(List.of(
+                new Item(1L, "Red ball", "Rubber toy", "/img1", Money.of("30"), 0),
+                new Item(2L, "Ball", "Leather", "/img2", Money.of("10"), 0),
+                new Item(3L, "Kite", "Comes with a ball of string", "/img3", Money.of("20"), 0),
+                new Item(4L, "Bat", "Wooden", "/img4", Money.of("5"), 0)
+        ));
+    }
+
+    @Test
+    void search_matchesTitleAndDescriptionIgnoringCase() {
+        ItemSearchIndex.Result result = index.search("BALL", ItemSort.NO, 0, 10);
+
+        assertThat(result.ids()).containsExactly(1L, 2L, 3L);
+        assertThat(result.total()).isEqualTo(3);
+    }
+
+    @Test
+    void search_relevance_ranksExactThenPrefixThenTitleThenDescription() {
+        assertThat(index.search("ball", ItemSort.RELEVANCE, 0, 10).ids()).containsExactly(2L, 1L, 3L);
+    }
+
+    @Test
+    void search_sortsByPriceAndTitle() {
+        assertThat(index.search("ball", ItemSort.PRICE, 0, 10).ids()).containsExactly(2L, 3L, 1L);
+        assertThat(index.search("ball", ItemSort.ALPHA, 0, 10).ids()).containsExactly(2L, 3L, 1L);
+    }
+
+    @Test
+    void search_appliesOffsetAndLimitButReportsFullTotal() {
+        ItemSearchIndex.Result result = index.search("ball", ItemSort.NO, 1, 1);
+
+        assertThat(result.ids()).containsExactly(2L);
+        assertThat(result.total()).isEqualTo(3);
+    }
+
+    @Test
+    void search_shortQuery_scansAllDocuments() {
+        assertThat(index.search("ba", ItemSort.NO, 0, 10).ids()).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    void search_noMatchingTrigram_returnsEmpty() {
+        ItemSearchIndex.Result result = index.search("ballz", ItemSort.NO, 0, 10);
+
+        assertThat(result.ids()).isEmpty();
+        assertThat(result.total()).isZero();
+    }
+
+    @Test
+    void onItemChanged_reindexesUpdatedItem() {
+        when(itemRepository.findById(4L))
+                .thenReturn(Mono.just(new Item(4L, "Bat and ball", "Wooden", "/img4", Money.of("5"), 0)));
+
+        index.onItemChanged(new ItemChangedEvent(4L));
+
+        assertThat(index.search("ball", ItemSort.NO, 0, 10).ids()).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    void onItemChanged_removesDeletedItem() {
+        when(itemRepository.findById(2L)).thenReturn(Mono.empty());
+
+        index.onItemChanged(new ItemChangedEvent(2L));
+
+        assertThat(index.search("ball", ItemSort.NO, 0, 10).ids()).containsExactly(1L, 3L);
+    }
+}
@@ -2,9 +2,11 @@ package com.example.shop.services;
 
 import com.example.shop.dtos.ItemCardDto;
 import com.example.shop.dtos.ItemListDto;
-import com.example.shop.dtos.SimplePage;
+import com.example.shop.dtos.PageSegment;
+import com.example.shop.events.ItemChangedEvent;
 import com.example.shop.models.Item;
 import com.example.shop.models.ItemSort;
+import com.example.shop.models.Money;
 import com.example.shop.repositories.ItemRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,20 +15,19 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.NoSuchElementException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -37,10 +38,16 @@ class ItemServiceTest {
     private ItemRepository itemRepository;
 
     @Mock
-    private CacheManager cacheManager;
+    private ItemPageCache itemPageCache;
 
     @Mock
-    private Cache cache;
+    private ItemSearchIndex itemSearchIndex;
+
+    @Mock
+    private CatalogSnapshotHolder catalogSnapshotHolder;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private ItemService itemService;
@@ -49,14 +56,14 @@ class ItemServiceTest {
 
     @BeforeEach
     void setup() {
-        Item i1 = new Item(1L, "Title1", "Desc1", "/img1", BigDecimal.ONE, 0);
-        Item i2 = new Item(2L, "Title2", "Desc2", "/img2", BigDecimal.TEN, 0);
+        Item i1 = new Item(1L, "Title1", "Desc1", "/img1", Money.of("1"), 0);
+        Item i2 = new Item(2L, "Title2", "Desc2", "/img2", Money.of("10"), 0);
         content = List.of(i1, i2);
     }
 
     @Test
     void getItems_withBlankSearch_usesFindAll() {
-        Pageable expectedPageable = PageRequest.of(0, 3, Sort.unsorted());
+        Pageable expectedPageable = PageRequest.of(0, 3, Sort.by("id").ascending());
         when(itemRepository.count()).thenReturn(Mono.just((long) content.size()));
         when(itemRepository.findAll(expectedPageable)).thenReturn(Flux.fromIterable(content));
 
@@ -68,7 +75,7 @@ class ItemServiceTest {
 
     @Test
     void getItems_withSearch_usesFindByTitleOrDescription() {
-        Pageable expectedPageable = PageRequest.of(0, 10, Sort.unsorted());
+        Pageable expectedPageable = PageRequest.of(0, 10, Sort.by("id").ascending());
         when(itemRepository.countByTitleContainingIgnoreCaseOrDescriptionContainingIgnoreCase("foo", "foo"))
                 .thenReturn(Mono.just((long) content.size()));
         when(itemRepository.findByTitleContainingIgnoreCaseOrDescriptionContainingIgnoreCase("foo", "foo", expectedPageable))
@@ -89,7 +96,7 @@ class ItemServiceTest {
 
         ArgumentCaptor<Pageable> cap = ArgumentCaptor.forClass(Pageable.class);
         verify(itemRepository).findAll(cap.capture());
-        assertThat(cap.getValue().getSort()).isEqualTo(Sort.by("title").ascending());
+        assertThat(cap.getValue().getSort()).isEqualTo(Sort.by(Sort.Order.asc("title").nullsLast()).and(Sort.by("id").ascending()));
     }
 
     @Test
@@ -101,12 +108,41 @@ class ItemServiceTest {
 
         ArgumentCaptor<Pageable> cap = ArgumentCaptor.forClass(Pageable.class);
         verify(itemRepository).findAll(cap.capture());
-        assertThat(cap.getValue().getSort()).isEqualTo(Sort.by("price").ascending());
+        assertThat(cap.getValue().getSort()).isEqualTo(Sort.by(Sort.Order.asc("price").nullsLast()).and(Sort.by("id").ascending()));
+    }
+
+    @Test
+    void update_savesAndPublishesItemChangedEvent() {
+        Item item = content.get(0);
+        when(itemRepository.findById(1L)).thenReturn(Mono.just(item));
+        when(itemRepository.save(item)).thenReturn(Mono.just(item));
+
+        StepVerifier.create(itemService.update(1L, "New title", "New desc", Money.of("2.50")))
+                .assertNext(saved -> {
+                    assertThat(saved.getTitle()).isEqualTo("New title");
+                    assertThat(saved.getDescription()).isEqualTo("New desc");
+                    assertThat(saved.getPrice()).isEqualTo(Money.of("2.50"));
+                })
+                .verifyComplete();
+
+        verify(eventPublisher).publishEvent(new ItemChangedEvent(1L));
+    }
+
+    @Test
+    void update_nonExisting_failsWithoutEvent() {
+        when(itemRepository.findById(99L)).thenReturn(Mono.empty());
+
+        StepVerifier.create(itemService.update(99L, "t", "d", Money.ZERO))
+                .expectError(NoSuchElementException.class)
+                .verify();
+
+        verify(itemRepository, never()).save(any());
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
     void getById_existing_returnsItem() {
-        Item item = new Item(5L, "X", "Y", "/img", BigDecimal.ZERO, 0);
+        Item item = new Item(5L, "X", "Y", "/img", Money.ZERO, 0);
         when(itemRepository.findById(5L)).thenReturn(Mono.just(item));
 
         Item result = itemService.getById(5L).block();
@@ -143,38 +179,164 @@ class ItemServiceTest {
     }
 
     @Test
-    void getItemsPageSync_emptyCache_fetchesFromRepoAndCaches() {
-        when(cacheManager.getCache("itemListPages")).thenReturn(cache);
-        when(cache.get(anyString(), any(Class.class))).thenReturn(null);
+    void getItemsPage_segmentMiss_fetchesFromRepoAndCachesSegment() {
+        when(itemPageCache.segmentSize()).thenReturn(50);
+        when(itemPageCache.get("", ItemSort.NO, 0)).thenReturn(Mono.empty());
+        when(itemPageCache.put(eq(""), eq(ItemSort.NO), eq(0L), any(PageSegment.class)))
+                .thenAnswer(inv -> Mono.just(inv.getArgument(3)));
         when(itemRepository.count()).thenReturn(Mono.just(2L));
-        when(itemRepository.findAll(any(Pageable.class))).thenReturn(Flux.fromIterable(content));
-
-        SimplePage<ItemListDto> result = itemService.getItemsPageSync("", ItemSort.NO, 1, 10);
+        when(itemRepository.findPageAfter(ItemSort.NO, null, 50)).thenReturn(Flux.fromIterable(content));
 
-        assertThat(result.content()).hasSize(2);
-        assertThat(result.totalElements()).isEqualTo(2);
-        assertThat(result.content().get(0).title()).isEqualTo("Title1");
+        StepVerifier.create(itemService.getItemsPage("", ItemSort.NO, 1, 10))
+                .assertNext(result -> {
+                    assertThat(result.content()).hasSize(2);
+                    assertThat(result.totalElements()).isEqualTo(2);
+                    assertThat(result.content().get(0).title()).isEqualTo("Title1");
+                })
+                .verifyComplete();
 
         verify(itemRepository).count();
-        verify(itemRepository).findAll(any(Pageable.class));
-        verify(cache).put(eq("|NO"), any());
+        verify(itemPageCache).put(eq(""), eq(ItemSort.NO), eq(0L),
+                argThat(segment -> segment.items().size() == 2 && segment.total() == 2));
     }
 
     @Test
-    void getItemsPageSync_fullCacheHit_returnsFromCacheWithoutRepoInteraction() {
-        when(cacheManager.getCache("itemListPages")).thenReturn(cache);
-        var cachedItems = new ItemService.CachedItems();
-        cachedItems.total = 2;
-        cachedItems.items.add(new ItemListDto(1L, "Title1", "Desc1", BigDecimal.ONE, "/img1"));
-        cachedItems.items.add(new ItemListDto(2L, "Title2", "Desc2", BigDecimal.TEN, "/img2"));
-        when(cache.get(eq("|NO"), any(Class.class))).thenReturn(cachedItems);
+    void getItemsPage_segmentHit_returnsFromCacheWithoutRepoInteractionOrWrite() {
+        when(itemPageCache.segmentSize()).thenReturn(50);
+        when(itemPageCache.get("", ItemSort.NO, 0)).thenReturn(Mono.just(new PageSegment(List.of(
+                new ItemListDto(1L, "Title1", "Desc1", Money.of("1"), "/img1"),
+                new ItemListDto(2L, "Title2", "Desc2", Money.of("10"), "/img2")
+        ), 2)));
+
+        StepVerifier.create(itemService.getItemsPage("", ItemSort.NO, 1, 10))
+                .assertNext(result -> {
+                    assertThat(result.content()).hasSize(2);
+                    assertThat(result.totalElements()).isEqualTo(2);
+                })
+                .verifyComplete();
 
-        SimplePage<ItemListDto> result = itemService.getItemsPageSync("", ItemSort.NO, 1, 10);
+        verifyNoInteractions(itemRepository);
+        verify(itemPageCache, never()).put(any(), any(), anyLong(), any());
+    }
 
-        assertThat(result.content()).hasSize(2);
-        assertThat(result.totalElements()).isEqualTo(2);
+    @Test
+    void getItemsPage_pageSpanningSegments_combinesBothSegments() {
+        when(itemPageCache.segmentSize()).thenReturn(2);
+        when(itemPageCache.get("", ItemSort.NO, 0)).thenReturn(Mono.just(new PageSegment(List.of(
+                new ItemListDto(1L, "Title1", "Desc1", Money.of("1"), "/img1"),
+                new ItemListDto(2L, "Title2", "Desc2", Money.of("10"), "/img2")
+        ), 4)));
+        when(itemPageCache.get("", ItemSort.NO, 1)).thenReturn(Mono.just(new PageSegment(List.of(
+                new ItemListDto(3L, "Title3", "Desc3", Money.of("1"), "/img3"),
+                new ItemListDto(4L, "Title4", "Desc4", Money.of("10"), "/img4")
+        ), 4)));
+
+        StepVerifier.create(itemService.getItemsPage("", ItemSort.NO, 1, 3))
+                .assertNext(page -> {
+                    assertThat(page.content()).extracting(ItemListDto::id).containsExactly(1L, 2L, 3L);
+                    assertThat(page.totalElements()).isEqualTo(4);
+                })
+                .verifyComplete();
 
         verifyNoInteractions(itemRepository);
     }
-}
 
+    @Test
+    void getItemsPage_nextSegmentMiss_seeksAfterLastItemOfPreviousSegment() {
+        when(itemPageCache.segmentSize()).thenReturn(1);
+        when(itemPageCache.get("", ItemSort.ALPHA, 1)).thenReturn(Mono.empty());
+        when(itemPageCache.get("", ItemSort.ALPHA, 0)).thenReturn(Mono.just(new PageSegment(List.of(
+                new ItemListDto(1L, "Title1", "Desc1", Money.of("1"), "/img1")
+        ), 2)));
+        when(itemPageCache.put(eq(""), eq(ItemSort.ALPHA), eq(1L), any(PageSegment.class)))
+                .thenAnswer(inv -> Mono.just(inv.getArgument(3)));
+        when(itemRepository.count()).thenReturn(Mono.just(2L));
+        when(itemRepository.findPageAfter(eq(ItemSort.ALPHA), any(Item.class), eq(1)))
+                .thenReturn(Flux.just(content.get(1)));
+
+        StepVerifier.create(itemService.getItemsPage("", ItemSort.ALPHA, 2, 1))
+                .assertNext(page -> assertThat(page.content()).extracting(ItemListDto::id).containsExactly(2L))
+                .verifyComplete();
+
+        ArgumentCaptor<Item> last = ArgumentCaptor.forClass(Item.class);
+        verify(itemRepository).findPageAfter(eq(ItemSort.ALPHA), last.capture(), eq(1));
+        assertThat(last.getValue().getId()).isEqualTo(1L);
+        assertThat(last.getValue().getTitle()).isEqualTo("Title1");
+    }
+
+    @Test
+    void getItemsPage_withSearch_fetchesAlignedSegmentWithOffset() {
+        when(itemPageCache.segmentSize()).thenReturn(10);
+        when(itemPageCache.get("foo", ItemSort.PRICE, 1)).thenReturn(Mono.empty());
+        when(itemPageCache.put(eq("foo"), eq(ItemSort.PRICE), eq(1L), any(PageSegment.class)))
+                .thenAnswer(inv -> Mono.just(inv.getArgument(3)));
+        when(itemRepository.countByTitleContainingIgnoreCaseOrDescriptionContainingIgnoreCase("foo", "foo"))
+                .thenReturn(Mono.just(12L));
+        when(itemRepository.findByTitleContainingIgnoreCaseOrDescriptionContainingIgnoreCase(
+                "foo", "foo", PageRequest.of(1, 10, ItemSort.PRICE.toSort())))
+                .thenReturn(Flux.fromIterable(content));
+
+        StepVerifier.create(itemService.getItemsPage(" Foo ", ItemSort.PRICE, 3, 5))
+                .assertNext(page -> {
+                    assertThat(page.content()).extracting(ItemListDto::id).containsExactly(1L, 2L);
+                    assertThat(page.totalElements()).isEqualTo(12);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void getItemsPage_withSearchAndReadyIndex_loadsRowsByIdInIndexOrder() {
+        when(itemPageCache.segmentSize()).thenReturn(10);
+        when(itemPageCache.get("foo", ItemSort.RELEVANCE, 0)).thenReturn(Mono.empty());
+        when(itemPageCache.put(eq("foo"), eq(ItemSort.RELEVANCE), eq(0L), any(PageSegment.class)))
+                .thenAnswer(inv -> Mono.just(inv.getArgument(3)));
+        when(itemSearchIndex.isReady()).thenReturn(true);
+        when(itemSearchIndex.search("foo", ItemSort.RELEVANCE, 0, 10))
+                .thenReturn(new ItemSearchIndex.Result(List.of(2L, 1L), 2));
+        when(itemRepository.findAllById(List.of(2L, 1L))).thenReturn(Flux.fromIterable(content));
+
+        StepVerifier.create(itemService.getItemsPage("foo", ItemSort.RELEVANCE, 1, 10))
+                .assertNext(page -> {
+                    assertThat(page.content()).extracting(ItemListDto::id).containsExactly(2L, 1L);
+                    assertThat(page.totalElements()).isEqualTo(2);
+                })
+                .verifyComplete();
+
+        verify(itemRepository, never()).countByTitleContainingIgnoreCaseOrDescriptionContainingIgnoreCase(any(), any());
+    }
+
+    @Test
+    void getItemsPage_browseWithSnapshot_slicesSnapshotWithoutCacheOrRepo() {
+        when(itemPageCache.segmentSize()).thenReturn(50);
+        when(catalogSnapshotHolder.current()).thenReturn(CatalogSnapshot.of(0, List.of(
+                new ItemListDto(1L, "B", "d", Money.of("10"), "/1"),
+                new ItemListDto(2L, "A", "d", Money.of("1"), "/2"),
+                new ItemListDto(3L, "C", "d", Money.of("1"), "/3")
+        )));
+
+        StepVerifier.create(itemService.getItemsPage("", ItemSort.PRICE, 1, 2))
+                .assertNext(page -> {
+                    assertThat(page.content()).extracting(ItemListDto::id).containsExactly(2L, 3L);
+                    assertThat(page.totalElements()).isEqualTo(3);
+                })
+                .verifyComplete();
+
+        verifyNoInteractions(itemRepository);
+        verify(itemPageCache, never()).get(any(), any(), anyLong());
+    }
+
+    @Test
+    void getItemsPage_pastLastSegment_doesNotCacheEmptySegment() {
+        when(itemPageCache.segmentSize()).thenReturn(50);
+        when(itemPageCache.get("", ItemSort.NO, 3)).thenReturn(Mono.empty());
+        when(itemPageCache.get("", ItemSort.NO, 2)).thenReturn(Mono.empty());
+        when(itemRepository.count()).thenReturn(Mono.just(2L));
+        when(itemRepository.findAll(PageRequest.of(3, 50, ItemSort.NO.toSort()))).thenReturn(Flux.empty());
+
+        StepVerifier.create(itemService.getItemsPage("", ItemSort.NO, 16, 10))
+                .assertNext(page -> assertThat(page.content()).isEmpty())
+                .verifyComplete();
+
+        verify(itemPageCache, never()).put(any(), any(), anyLong(), any());
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.shop.services;
+
+import com.example.shop.dtos.CartLine;
+import com.example.shop.models.Cart;
+import com.example.shop.models.Item;
+import com.example.shop.models.Money;
+import com.example.shop.models.User;
+import com.example.shop.repositories.CartItemRepository;
+import com.example.shop.repositories.CartRepository;
+import com.example.shop.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JdbcCartStoreTest {
+
+    @Mock
+    private CartRepository cartRepo;
+    @Mock
+    private CartItemRepository cartItemRepo;
+    @Mock
+    private UserRepository userRepo;
+    @Mock
+    private DatabaseClient databaseClient;
+
+    @InjectMocks
+    private JdbcCartStore store;
+
+    private User user;
+    private Cart cart;
+    private Item item1;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setId(1L);
+        user.setEmail("user@test.com");
+
+        cart = new Cart();
+        cart.setId(10L);
+        cart.setUserId(user.getId());
+
+        item1 = new Item(101L, "Item 1", "Desc 1", "/img/1.png", Money.of("10"), 0);
+    }
+
+    @Test
+    void find_forUserWithoutCart_returnsEmptyCartWithoutCreatingOne() {
+        when(cartRepo.findCartLinesByEmail(user.getEmail())).thenReturn(Flux.just(
+                new CartLine(user.getId(), null, null, null, null, null, null, null, null)
+        ));
+
+        StepVerifier.create(store.find(user.getEmail()))
+                .assertNext(result -> {
+                    assertThat(result.getId()).isNull();
+                    assertThat(result.getUserId()).isEqualTo(user.getId());
+                    assertThat(result.getItems()).isEmpty();
+                })
+                .verifyComplete();
+
+        verify(cartRepo, never()).save(any(Cart.class));
+    }
+
+    @Test
+    void find_forExistingCart_hydratesLinesFromSingleQuery() {
+        when(cartRepo.findCartLinesByEmail(user.getEmail())).thenReturn(Flux.just(
+                new CartLine(user.getId(), cart.getId(), 1L, 2, item1.getId(), item1.getTitle(),
+                        item1.getDescription(), item1.getImgPath(), item1.getPrice())
+        ));
+
+        StepVerifier.create(store.find(user.getEmail()))
+                .assertNext(result -> {
+                    assertThat(result.getId()).isEqualTo(cart.getId());
+                    assertThat(result.getItems()).singleElement().satisfies(ci -> {
+                        assertThat(ci.getCount()).isEqualTo(2);
+                        assertThat(ci.getItem().getTitle()).isEqualTo(item1.getTitle());
+                    });
+                    assertThat(result.getTotal()).isEqualTo(Money.of("20"));
+                })
+                .verifyComplete();
+
+        verifyNoInteractions(cartItemRepo);
+    }
+
+    @Test
+    void increment_existingCart_incrementsWithSingleUpsert() {
+        when(cartRepo.findIdByUserEmail(user.getEmail())).thenReturn(Mono.just(cart.getId()));
+        when(cartItemRepo.increment(cart.getId(), item1.getId())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(store.increment(user.getEmail(), item1.getId()))
+                .verifyComplete();
+
+        verifyNoInteractions(userRepo);
+        verify(cartRepo, never()).findCartLinesByEmail(anyString());
+    }
+
+    @Test
+    void increment_unknownItem_throwsIllegalArgument() {
+        when(cartRepo.findIdByUserEmail(user.getEmail())).thenReturn(Mono.just(cart.getId()));
+        when(cartItemRepo.increment(cart.getId(), 999L))
+                .thenReturn(Mono.error(new DataIntegrityViolationException("fk_cart_item_item")));
+
+        StepVerifier.create(store.increment(user.getEmail(), 999L))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+
+    @Test
+    void increment_concurrentFirstInsert_retriesTheMerge() {
+        when(cartRepo.findIdByUserEmail(user.getEmail())).thenReturn(Mono.just(cart.getId()));
+        when(cartItemRepo.increment(cart.getId(), item1.getId()))
+                .thenReturn(Mono.error(new DuplicateKeyException("uq_cart_item")), Mono.just(1));
+
+        StepVerifier.create(store.increment(user.getEmail(), item1.getId()))
+                .verifyComplete();
+
+        verify(cartItemRepo, times(2)).increment(cart.getId(), item1.getId());
+    }
+
+    @Test
+    void increment_duplicateKeyTwice_isNotReportedAsUnknownItem() {
+        when(cartRepo.findIdByUserEmail(user.getEmail())).thenReturn(Mono.just(cart.getId()));
+        when(cartItemRepo.increment(cart.getId(), item1.getId()))
+                .thenReturn(Mono.error(new DuplicateKeyException("uq_cart_item")));
+
+        StepVerifier.create(store.increment(user.getEmail(), item1.getId()))
+                .expectError(DuplicateKeyException.class)
+                .verify();
+    }
+
+    @Test
+    void increment_forUserWithoutCart_createsCartOnFirstMutation() {
+        when(cartRepo.findIdByUserEmail(user.getEmail())).thenReturn(Mono.empty());
+        when(userRepo.findByEmail(user.getEmail())).thenReturn(Mono.just(user));
+        when(cartRepo.save(any(Cart.class))).thenReturn(Mono.just(cart));
+        when(cartItemRepo.increment(cart.getId(), item1.getId())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(store.increment(user.getEmail(), item1.getId()))
+                .verifyComplete();
+
+        verify(cartRepo).save(argThat(c -> c.getUserId().equals(user.getId())));
+    }
+
+    @Test
+    void decrement_countAboveOne_onlyDecrements() {
+        when(cartRepo.findIdByUserEmail(user.getEmail())).thenReturn(Mono.just(cart.getId()));
+        when(cartItemRepo.decrementAboveOne(cart.getId(), item1.getId())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(store.decrement(user.getEmail(), item1.getId()))
+                .verifyComplete();
+
+        verify(cartItemRepo, never()).deleteIfSingle(anyLong(), anyLong());
+    }
+
+    @Test
+    void decrement_lastUnit_deletesLine() {
+        when(cartRepo.findIdByUserEmail(user.getEmail())).thenReturn(Mono.just(cart.getId()));
+        when(cartItemRepo.decrementAboveOne(cart.getId(), item1.getId())).thenReturn(Mono.just(0));
+        when(cartItemRepo.deleteIfSingle(cart.getId(), item1.getId())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(store.decrement(user.getEmail(), item1.getId()))
+                .verifyComplete();
+
+        verify(cartItemRepo).deleteIfSingle(cart.getId(), item1.getId());
+        verify(cartItemRepo, never()).deleteByCartIdAndItemId(anyLong(), anyLong());
+    }
+
+    @Test
+    void decrement_forUserWithoutCart_doesNotCreateCart() {
+        when(cartRepo.findIdByUserEmail(user.getEmail())).thenReturn(Mono.empty());
+
+        StepVerifier.create(store.decrement(user.getEmail(), item1.getId()))
+                .verifyComplete();
+
+        verify(cartRepo, never()).save(any(Cart.class));
+        verifyNoInteractions(cartItemRepo);
+    }
+
+    @Test
+    void remove_removesLineWithSingleStatement() {
+        when(cartRepo.findIdByUserEmail(user.getEmail())).thenReturn(Mono.just(cart.getId()));
+        when(cartItemRepo.deleteByCartIdAndItemId(cart.getId(), item1.getId())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(store.remove(user.getEmail(), item1.getId()))
+                .verifyComplete();
+    }
+
+    @Test
+    void replace_emptyCounts_onlyDeletesExistingLines() {
+        when(cartRepo.findIdByUserEmail(user.getEmail())).thenReturn(Mono.just(cart.getId()));
+        when(cartRepo.advanceFlushedVersion(cart.getId(), 3L)).thenReturn(Mono.just(1));
+        when(cartItemRepo.deleteByCartId(cart.getId())).thenReturn(Mono.just(2));
+
+        StepVerifier.create(store.replace(user.getEmail(), Map.of(), 3L))
+                .verifyComplete();
+
+        verifyNoInteractions(databaseClient, userRepo);
+    }
+
+    @Test
+    void replace_staleVersion_leavesTheLinesAlone() {
+        when(cartRepo.findIdByUserEmail(user.getEmail())).thenReturn(Mono.just(cart.getId()));
+        when(cartRepo.advanceFlushedVersion(cart.getId(), 3L)).thenReturn(Mono.just(0));
+
+        StepVerifier.create(store.replace(user.getEmail(), Map.of(), 3L))
+                .verifyComplete();
+
+        verifyNoInteractions(cartItemRepo, databaseClient, userRepo);
+    }
+}
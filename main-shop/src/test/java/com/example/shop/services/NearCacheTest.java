@@ -0,0 +1,95 @@
+package com.example.shop.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NearCacheTest {
+
+    @Mock
+    private Cache l2;
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    private SimpleMeterRegistry meterRegistry;
+    private NearCache nearCache;
+
+    @BeforeEach
+    void setUp() {
+        when(l2.getName()).thenReturn("itemCard");
+        meterRegistry = new SimpleMeterRegistry();
+        nearCache = new NearCache(l2, Caffeine.newBuilder().maximumSize(100).build(), invalidationBus, meterRegistry);
+    }
+
+    @Test
+    void get_secondRead_isServedFromL1() {
+        when(l2.get(1L)).thenReturn(new SimpleValueWrapper("card"));
+
+        assertThat(nearCache.get(1L, String.class)).isEqualTo("card");
+        assertThat(nearCache.get(1L, String.class)).isEqualTo("card");
+
+        verify(l2, times(1)).get(1L);
+        assertThat(count("l1", "hit")).isEqualTo(1);
+        assertThat(count("l1", "miss")).isEqualTo(1);
+        assertThat(count("l2", "hit")).isEqualTo(1);
+    }
+
+    @Test
+    void get_missInBothLevels_countsMisses() {
+        when(l2.get(1L)).thenReturn(null);
+
+        assertThat(nearCache.get(1L)).isNull();
+
+        assertThat(count("l1", "miss")).isEqualTo(1);
+        assertThat(count("l2", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    void evict_dropsBothLevelsAndBroadcasts() {
+        when(invalidationBus.publish("itemCard", "1")).thenReturn(Mono.empty());
+        nearCache.put(1L, "card");
+
+        nearCache.evict(1L);
+
+        verify(l2).evict(1L);
+        verify(invalidationBus).publish("itemCard", "1");
+        when(l2.get(1L)).thenReturn(null);
+        assertThat(nearCache.get(1L)).isNull();
+    }
+
+    @Test
+    void remoteInvalidation_dropsOnlyL1() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<String>> invalidator = ArgumentCaptor.forClass(Consumer.class);
+        verify(invalidationBus).register(eq("itemCard"), invalidator.capture());
+        nearCache.put(1L, "card");
+
+        invalidator.getValue().accept("1");
+
+        when(l2.get(1L)).thenReturn(new SimpleValueWrapper("fresh"));
+        assertThat(nearCache.get(1L, String.class)).isEqualTo("fresh");
+        verify(l2, never()).evict(any());
+    }
+
+    private double count(String level, String result) {
+        return meterRegistry.get("shop.cache.near.gets")
+                .tag("cache", "itemCard").tag("level", level).tag("result", result)
+                .counter().count();
+    }
+}
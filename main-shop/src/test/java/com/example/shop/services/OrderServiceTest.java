@@ -1,7 +1,8 @@
 package com.example.shop.services;
 
+import com.example.shop.dtos.OrderLine;
+import com.example.shop.dtos.OrderSummary;
 import com.example.shop.models.*;
-import com.example.shop.repositories.CartItemRepository;
 import com.example.shop.repositories.OrderItemRepository;
 import com.example.shop.repositories.OrderRepository;
 import com.example.shop.repositories.UserRepository;
@@ -12,15 +13,18 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.NoSuchElementException;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,12 +37,12 @@ class OrderServiceTest {
     @Mock
     private CartService cartService;
     @Mock
-    private CartItemRepository cartItemRepo;
-    @Mock
     private UserRepository userRepo;
     @Mock
     private PaymentServiceClient paymentServiceClient;
     @Mock
+    private TransactionalOperator transactionalOperator;
+    @Mock
     private UserDetails userDetails;
 
     @InjectMocks
@@ -53,7 +57,7 @@ class OrderServiceTest {
         user.setId(1L);
         user.setEmail("user@test.com");
 
-        Item item = new Item(101L, "Test Item", "Desc", "/img", BigDecimal.TEN, 0);
+        Item item = new Item(101L, "Test Item", "Desc", "/img", Money.of("10"), 0);
         CartItem cartItem = new CartItem();
         cartItem.setItem(item);
         cartItem.setItemId(item.getId());
@@ -69,8 +73,8 @@ class OrderServiceTest {
     void buyCart_paymentDeclined_throwsException() {
         when(userDetails.getUsername()).thenReturn(user.getEmail());
         when(userRepo.findByEmail(user.getEmail())).thenReturn(Mono.just(user));
-        when(cartService.getOrCreateCart(userDetails)).thenReturn(Mono.just(cart));
-        when(paymentServiceClient.pay(any(BigDecimal.class))).thenReturn(Mono.error(new RuntimeException("Insufficient Funds")));
+        when(cartService.getCart(userDetails)).thenReturn(Mono.just(cart));
+        when(paymentServiceClient.pay(any(Money.class))).thenReturn(Mono.error(new RuntimeException("Insufficient Funds")));
 
         StepVerifier.create(orderService.buyCart(userDetails))
                 .expectError(IllegalStateException.class)
@@ -80,40 +84,88 @@ class OrderServiceTest {
     }
 
     @Test
-    void findAllForUser_returnsUserOrders() {
-        Order o1 = new Order();
-        o1.setId(1L);
+    void buyCart_paid_insertsLinesInBatchAndClearsCartInTransaction() {
+        Order saved = new Order();
+        saved.setId(5L);
         when(userDetails.getUsername()).thenReturn(user.getEmail());
         when(userRepo.findByEmail(user.getEmail())).thenReturn(Mono.just(user));
-        when(orderRepo.findByUserId(user.getId())).thenReturn(Flux.just(o1));
+        when(cartService.getCart(userDetails)).thenReturn(Mono.just(cart));
+        when(paymentServiceClient.pay(any(Money.class))).thenReturn(Mono.just("ok"));
+        when(orderRepo.save(any(Order.class))).thenReturn(Mono.just(saved));
+        when(orderItemRepo.insertAll(eq(5L), anyList())).thenReturn(Mono.empty());
+        when(cartService.clear(userDetails)).thenReturn(Mono.empty());
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(inv -> inv.getArgument(0));
 
-        StepVerifier.create(orderService.findAllForUser(userDetails))
-                .expectNext(o1)
+        StepVerifier.create(orderService.buyCart(userDetails))
+                .expectNext(saved)
                 .verifyComplete();
+
+        verify(paymentServiceClient).pay(argThat(total -> total.compareTo(Money.of("20")) == 0));
+        verify(orderItemRepo).insertAll(eq(5L), argThat(lines -> lines.size() == 1
+                && lines.get(0).getCount() == 2
+                && lines.get(0).getTitle().equals("Test Item")
+                && lines.get(0).getPrice().compareTo(Money.of("10")) == 0));
+        verify(orderItemRepo, never()).save(any(OrderItem.class));
     }
 
     @Test
-    void findByIdForUser_whenOwner_returnsOrder() {
-        Order order = new Order();
-        order.setId(10L);
-        order.setUserId(user.getId());
+    void findPageForUser_moreRowsThanSize_returnsWindowAndCursor() {
         when(userDetails.getUsername()).thenReturn(user.getEmail());
         when(userRepo.findByEmail(user.getEmail())).thenReturn(Mono.just(user));
-        when(orderRepo.findById(10L)).thenReturn(Mono.just(order));
+        when(orderRepo.findSummariesBefore(user.getId(), Long.MAX_VALUE, 3)).thenReturn(Flux.just(
+                new OrderSummary(30L, Money.of("10"), 2),
+                new OrderSummary(20L, Money.of("1"), 1),
+                new OrderSummary(10L, Money.of("1"), 1)
+        ));
+
+        StepVerifier.create(orderService.findPageForUser(userDetails, null, 2))
+                .assertNext(page -> {
+                    assertThat(page.orders()).extracting(OrderSummary::id).containsExactly(30L, 20L);
+                    assertThat(page.nextBefore()).isEqualTo(20L);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void findPageForUser_lastWindow_hasNoCursor() {
+        when(userDetails.getUsername()).thenReturn(user.getEmail());
+        when(userRepo.findByEmail(user.getEmail())).thenReturn(Mono.just(user));
+        when(orderRepo.findSummariesBefore(user.getId(), 20L, 3)).thenReturn(Flux.just(
+                new OrderSummary(10L, Money.of("1"), 1)
+        ));
+
+        StepVerifier.create(orderService.findPageForUser(userDetails, 20L, 2))
+                .assertNext(page -> {
+                    assertThat(page.orders()).extracting(OrderSummary::id).containsExactly(10L);
+                    assertThat(page.nextBefore()).isNull();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void findByIdForUser_whenOwner_returnsOrderWithSnapshotLines() {
+        when(userDetails.getUsername()).thenReturn(user.getEmail());
+        when(orderRepo.findLinesByIdAndUserEmail(10L, user.getEmail())).thenReturn(Flux.just(
+                new OrderLine(10L, user.getId(), Money.of("25"), 1L, 101L, 2, "Old title", Money.of("10"), "/img"),
+                new OrderLine(10L, user.getId(), Money.of("25"), 2L, 102L, 1, "Other", Money.of("5"), "/img2")
+        ));
 
         StepVerifier.create(orderService.findByIdForUser(10L, userDetails))
-                .expectNext(order)
+                .assertNext(order -> {
+                    assertThat(order.getId()).isEqualTo(10L);
+                    assertThat(order.getTotal()).isEqualTo(Money.of("25"));
+                    assertThat(order.getItems()).extracting(OrderItem::getTitle).containsExactly("Old title", "Other");
+                    assertThat(order.getItems().get(0).getPrice()).isEqualTo(Money.of("10"));
+                })
                 .verifyComplete();
+
+        verifyNoInteractions(userRepo);
     }
 
     @Test
     void findByIdForUser_whenNotOwner_throwsException() {
-        Order order = new Order();
-        order.setId(10L);
-        order.setUserId(999L); // Different user
         when(userDetails.getUsername()).thenReturn(user.getEmail());
-        when(userRepo.findByEmail(user.getEmail())).thenReturn(Mono.just(user));
-        when(orderRepo.findById(10L)).thenReturn(Mono.just(order));
+        when(orderRepo.findLinesByIdAndUserEmail(10L, user.getEmail())).thenReturn(Flux.empty());
 
         StepVerifier.create(orderService.findByIdForUser(10L, userDetails))
                 .expectError(NoSuchElementException.class)
@@ -0,0 +1,169 @@
+package com.example.shop.services;
+
+import com.example.shop.config.PaymentClientProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentAccessTokensTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T12:00:00Z");
+    private static final ClientRegistration REGISTRATION = ClientRegistration.withRegistrationId("main-shop-client")
+            .clientId("main-shop-client")
+            .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+            .tokenUri("http://auth-server/oauth2/token")
+            .build();
+
+    @Mock
+    private ReactiveOAuth2AuthorizedClientManager manager;
+    @Mock
+    private ReactiveOAuth2AuthorizedClientService clientService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PaymentAccessTokens tokens;
+
+    @BeforeEach
+    void setUp() {
+        PaymentClientProperties properties = new PaymentClientProperties();
+        properties.getToken().setRefreshAhead(Duration.ofMinutes(2));
+        tokens = new PaymentAccessTokens(manager, clientService, properties, meterRegistry,
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    private static OAuth2AuthorizedClient client(String value, Duration expiresIn) {
+        OAuth2AccessToken token = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, value,
+                NOW.minusSeconds(60), NOW.plus(expiresIn));
+        return new OAuth2AuthorizedClient(REGISTRATION, "main-shop-client", token);
+    }
+
+    @Test
+    void requestsReuseTheTokenFetchedInTheBackground() {
+        when(manager.authorize(any())).thenReturn(Mono.just(client("t1", Duration.ofMinutes(10))));
+
+        StepVerifier.create(tokens.refreshIfDue()).verifyComplete();
+        StepVerifier.create(tokens.token())
+                .assertNext(token -> assertThat(token.getTokenValue()).isEqualTo("t1"))
+                .verifyComplete();
+        StepVerifier.create(tokens.refreshIfDue()).verifyComplete();
+
+        verify(manager, times(1)).authorize(any());
+        assertThat(meterRegistry.get("shop.payments.client.token.refreshes")
+                .tag("trigger", "background").tag("outcome", "success").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void replacesATokenAboutToExpireWhileRequestsKeepUsingIt() {
+        when(manager.authorize(any())).thenReturn(
+                Mono.just(client("t1", Duration.ofMinutes(1))),
+                Mono.just(client("t2", Duration.ofMinutes(10))));
+        StepVerifier.create(tokens.refreshIfDue()).verifyComplete();
+
+        StepVerifier.create(tokens.token())
+                .assertNext(token -> assertThat(token.getTokenValue()).isEqualTo("t1"))
+                .verifyComplete();
+        verify(manager, times(1)).authorize(any());
+
+        StepVerifier.create(tokens.refreshIfDue()).verifyComplete();
+        StepVerifier.create(tokens.token())
+                .assertNext(token -> assertThat(token.getTokenValue()).isEqualTo("t2"))
+                .verifyComplete();
+        verify(manager, times(2)).authorize(any());
+    }
+
+    @Test
+    void concurrentRequestsWithoutATokenShareOneFetch() {
+        Sinks.One<OAuth2AuthorizedClient> response = Sinks.one();
+        when(manager.authorize(any())).thenReturn(response.asMono());
+
+        AtomicReference<String> first = new AtomicReference<>();
+        AtomicReference<String> second = new AtomicReference<>();
+        tokens.token().subscribe(token -> first.set(token.getTokenValue()));
+        tokens.token().subscribe(token -> second.set(token.getTokenValue()));
+        response.tryEmitValue(client("t1", Duration.ofMinutes(10)));
+
+        assertThat(first.get()).isEqualTo("t1");
+        assertThat(second.get()).isEqualTo("t1");
+        verify(manager, times(1)).authorize(any());
+    }
+
+    @Test
+    void authorizesTheShopItselfWhoeverIsLoggedIn() {
+        when(manager.authorize(any())).thenReturn(Mono.just(client("t1", Duration.ofMinutes(10))));
+
+        StepVerifier.create(tokens.refreshIfDue()).verifyComplete();
+
+        ArgumentCaptor<OAuth2AuthorizeRequest> request = ArgumentCaptor.forClass(OAuth2AuthorizeRequest.class);
+        verify(manager).authorize(request.capture());
+        assertThat(request.getValue().getClientRegistrationId()).isEqualTo("main-shop-client");
+        assertThat(request.getValue().getPrincipal().getName()).isEqualTo("main-shop-client");
+    }
+
+    @Test
+    void bearerSetsTheTokenAndDropsItWhenPaymentsRejectsIt() {
+        when(manager.authorize(any())).thenReturn(
+                Mono.just(client("t1", Duration.ofMinutes(10))),
+                Mono.just(client("t2", Duration.ofMinutes(10))));
+        when(clientService.removeAuthorizedClient("main-shop-client", "main-shop-client")).thenReturn(Mono.empty());
+        AtomicReference<String> sent = new AtomicReference<>();
+        ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("http://payments/payments/balance")).build();
+
+        StepVerifier.create(tokens.bearer().filter(request, req -> {
+                    sent.set(req.headers().getFirst(HttpHeaders.AUTHORIZATION));
+                    return Mono.just(ClientResponse.create(HttpStatus.UNAUTHORIZED).build());
+                }))
+                .assertNext(response -> assertThat(response.statusCode()).isEqualTo(HttpStatus.UNAUTHORIZED))
+                .verifyComplete();
+
+        assertThat(sent.get()).isEqualTo("Bearer t1");
+        verify(clientService).removeAuthorizedClient("main-shop-client", "main-shop-client");
+        StepVerifier.create(tokens.token())
+                .assertNext(token -> assertThat(token.getTokenValue()).isEqualTo("t2"))
+                .verifyComplete();
+    }
+
+    @Test
+    void failedFetchIsCountedAndRetriedOnTheNextCall() {
+        when(manager.authorize(any())).thenReturn(
+                Mono.error(new IllegalStateException("auth-server down")),
+                Mono.just(client("t1", Duration.ofMinutes(10))));
+
+        StepVerifier.create(tokens.refreshIfDue()).verifyError(IllegalStateException.class);
+        StepVerifier.create(tokens.token())
+                .assertNext(token -> assertThat(token.getTokenValue()).isEqualTo("t1"))
+                .verifyComplete();
+
+        assertThat(meterRegistry.get("shop.payments.client.token.refreshes")
+                .tag("trigger", "background").tag("outcome", "error").counter().count()).isEqualTo(1);
+    }
+}
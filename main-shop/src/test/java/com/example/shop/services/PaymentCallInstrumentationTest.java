@@ -0,0 +1,80 @@
+package com.example.shop.services;
+
+import com.example.shop.config.PaymentClientProperties;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentCallInstrumentationTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PaymentCallInstrumentation instrumentation =
+            new PaymentCallInstrumentation(meterRegistry, new PaymentClientProperties());
+
+    /** start() -> simulated token fetch -> record() -> transport, as wired in the payments WebClient. */
+    private ExchangeFunction chain(Duration tokenFetch, ExchangeFunction transport) {
+        ExchangeFunction recorded = instrumentation.record().apply(transport);
+        ExchangeFunction withToken = request -> Mono.delay(tokenFetch).then(recorded.exchange(request));
+        return instrumentation.start().apply(withToken);
+    }
+
+    private static ClientRequest request(HttpMethod method, String path) {
+        return ClientRequest.create(method, URI.create("http://payments" + path)).build();
+    }
+
+    @Test
+    void recordsLatencyPerOperationAndStatus() {
+        ExchangeFunction ok = request -> Mono.just(ClientResponse.create(HttpStatus.OK).build());
+        ExchangeFunction declined = request -> Mono.just(ClientResponse.create(HttpStatus.PAYMENT_REQUIRED).build());
+
+        StepVerifier.create(chain(Duration.ZERO, ok).exchange(request(HttpMethod.GET, "/payments/balance")))
+                .expectNextCount(1)
+                .verifyComplete();
+        StepVerifier.create(chain(Duration.ZERO, declined).exchange(request(HttpMethod.POST, "/payments/pay")))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertThat(timer("shop.payments.client.requests", "getBalance", "200").count()).isEqualTo(1);
+        assertThat(timer("shop.payments.client.requests", "processPayment", "402").count()).isEqualTo(1);
+    }
+
+    @Test
+    void recordsTransportErrors() {
+        ExchangeFunction failing = request -> Mono.error(new IOException("connection reset"));
+
+        StepVerifier.create(chain(Duration.ZERO, failing).exchange(request(HttpMethod.GET, "/payments/balance")))
+                .expectError(IOException.class)
+                .verify();
+
+        assertThat(timer("shop.payments.client.requests", "getBalance", "IO_ERROR").count()).isEqualTo(1);
+    }
+
+    @Test
+    void recordsTimeSpentBeforeTheRequestIsSent() {
+        ExchangeFunction ok = request -> Mono.just(ClientResponse.create(HttpStatus.OK).build());
+
+        chain(Duration.ofMillis(50), ok).exchange(request(HttpMethod.GET, "/payments/balance")).block();
+
+        Timer token = meterRegistry.get("shop.payments.client.token").tag("operation", "getBalance").timer();
+        assertThat(token.count()).isEqualTo(1);
+        assertThat(token.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(50);
+    }
+
+    private Timer timer(String name, String operation, String status) {
+        return meterRegistry.get(name).tag("operation", operation).tag("status", status).timer();
+    }
+}
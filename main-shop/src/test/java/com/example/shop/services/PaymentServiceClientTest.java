@@ -0,0 +1,167 @@
+package com.example.shop.services;
+
+import com.example.payments.client.api.PaymentsApi;
+import com.example.payments.client.model.Balance;
+import com.example.payments.client.model.PaymentRequest;
+import com.example.payments.client.model.PaymentResponse;
+import com.example.shop.config.PaymentClientProperties;
+import com.example.shop.models.Money;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentServiceClientTest {
+
+    @Mock
+    private PaymentsApi paymentsApi;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PaymentClientProperties properties = new PaymentClientProperties();
+    private CircuitBreaker circuitBreaker;
+    private Bulkhead bulkhead;
+    private PaymentServiceClient client;
+
+    @BeforeEach
+    void setUp() {
+        properties.setBalanceTimeout(Duration.ofMillis(50));
+        properties.getPayRetry().setBackoff(Duration.ofMillis(1));
+        circuitBreaker = CircuitBreaker.of("payments", CircuitBreakerConfig.custom()
+                .recordException(PaymentServiceClient::isTransient)
+                .build());
+        bulkhead = Bulkhead.of("payments", BulkheadConfig.custom().maxConcurrentCalls(1).build());
+        client = new PaymentServiceClient(paymentsApi, circuitBreaker, bulkhead, properties, meterRegistry);
+    }
+
+    private static Balance balance(long kopecks) {
+        return new Balance().amountMinor(kopecks);
+    }
+
+    @Test
+    void getBalance_failsWhenDeadlineExceeded() {
+        when(paymentsApi.getBalance()).thenReturn(Mono.never());
+
+        StepVerifier.create(client.getBalance())
+                .expectError(TimeoutException.class)
+                .verify(Duration.ofSeconds(2));
+
+        assertThat(meterRegistry.counter("shop.payments.client.timeouts", "operation", "balance").count()).isEqualTo(1);
+        assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void pay_retriesTransientFailureWithSameIdempotencyKey() {
+        when(paymentsApi.processPayment(any(PaymentRequest.class), any()))
+                .thenReturn(Mono.error(WebClientResponseException.create(503, "Unavailable", null, null, null)))
+                .thenReturn(Mono.just(new PaymentResponse().message("ok")));
+
+        StepVerifier.create(client.pay(Money.of("10")))
+                .expectNext("ok")
+                .verifyComplete();
+
+        ArgumentCaptor<String> keys = ArgumentCaptor.forClass(String.class);
+        verify(paymentsApi, times(2)).processPayment(any(PaymentRequest.class), keys.capture());
+        assertThat(keys.getAllValues()).hasSize(2).doesNotContainNull();
+        assertThat(keys.getAllValues().get(0)).isEqualTo(keys.getAllValues().get(1));
+        assertThat(meterRegistry.counter("shop.payments.client.retries", "operation", "pay").count()).isEqualTo(1);
+    }
+
+    @Test
+    void pay_doesNotRetryOrTripBreakerOnClientError() {
+        when(paymentsApi.processPayment(any(PaymentRequest.class), any()))
+                .thenReturn(Mono.error(WebClientResponseException.create(
+                        HttpStatus.BAD_REQUEST.value(), "Bad Request", null, null, null)));
+
+        StepVerifier.create(client.pay(Money.of("10")))
+                .expectError(WebClientResponseException.class)
+                .verify();
+
+        verify(paymentsApi, times(1)).processPayment(any(PaymentRequest.class), any());
+        assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isZero();
+    }
+
+    @Test
+    void failsFastWhenBreakerIsOpen() {
+        circuitBreaker.transitionToOpenState();
+
+        StepVerifier.create(client.getBalance())
+                .expectError(CallNotPermittedException.class)
+                .verify();
+        StepVerifier.create(client.pay(Money.of("10")))
+                .expectError(CallNotPermittedException.class)
+                .verify();
+
+        verifyNoInteractions(paymentsApi);
+    }
+
+    @Test
+    void rejectsCallsBeyondBulkheadLimit() {
+        when(paymentsApi.getBalance()).thenReturn(Mono.never());
+        var inFlight = client.getBalance().subscribe(b -> { }, e -> { });
+
+        StepVerifier.create(client.pay(Money.of("10")))
+                .expectError(BulkheadFullException.class)
+                .verify();
+
+        inFlight.dispose();
+        verify(paymentsApi, never()).processPayment(any(PaymentRequest.class), any());
+    }
+
+    @Test
+    void getBalance_coalescesConcurrentCallsAndCachesResult() {
+        when(paymentsApi.getBalance()).thenReturn(Mono.just(balance(1_000L)).delayElement(Duration.ofMillis(30)));
+
+        StepVerifier.create(Mono.zip(client.getBalance(), client.getBalance()))
+                .assertNext(both -> assertThat(both.getT1()).isEqualTo(both.getT2()).isEqualTo(Money.of("10")))
+                .verifyComplete();
+        StepVerifier.create(client.getBalance())
+                .expectNext(Money.of("10"))
+                .verifyComplete();
+
+        verify(paymentsApi, times(1)).getBalance();
+    }
+
+    @Test
+    void pay_invalidatesCachedBalance() {
+        when(paymentsApi.getBalance()).thenReturn(Mono.just(balance(1_000L)), Mono.just(balance(100L)));
+        when(paymentsApi.processPayment(any(PaymentRequest.class), any()))
+                .thenReturn(Mono.just(new PaymentResponse().message("ok")));
+
+        StepVerifier.create(client.getBalance()).expectNext(Money.of("10")).verifyComplete();
+        StepVerifier.create(client.pay(Money.of("9"))).expectNext("ok").verifyComplete();
+        StepVerifier.create(client.getBalance()).expectNext(Money.of("1")).verifyComplete();
+
+        verify(paymentsApi, times(2)).getBalance();
+    }
+
+    @Test
+    void getBalance_doesNotCacheFailures() {
+        when(paymentsApi.getBalance())
+                .thenReturn(Mono.error(WebClientResponseException.create(503, "Unavailable", null, null, null)))
+                .thenReturn(Mono.just(balance(1_000L)));
+
+        StepVerifier.create(client.getBalance()).expectError(WebClientResponseException.class).verify();
+        StepVerifier.create(client.getBalance()).expectNext(Money.of("10")).verifyComplete();
+    }
+}
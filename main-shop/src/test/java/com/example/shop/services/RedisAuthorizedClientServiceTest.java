@@ -0,0 +1,107 @@
+package com.example.shop.services;
+
+import com.example.shop.config.PaymentClientProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ReactiveHashOperations;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.InMemoryReactiveClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedisAuthorizedClientServiceTest {
+
+    private static final String KEY = "shop:oauth2:authorized-client:main-shop-client:main-shop-client";
+    private static final ClientRegistration REGISTRATION = ClientRegistration.withRegistrationId("main-shop-client")
+            .clientId("main-shop-client")
+            .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+            .tokenUri("http://auth-server/oauth2/token")
+            .build();
+
+    @Mock
+    private ReactiveStringRedisTemplate redisTemplate;
+    @Mock
+    private ReactiveHashOperations<String, Object, Object> hashOps;
+
+    private RedisAuthorizedClientService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new RedisAuthorizedClientService(redisTemplate,
+                new InMemoryReactiveClientRegistrationRepository(REGISTRATION), new PaymentClientProperties());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void savesTheTokenWithItsExpiry() {
+        Instant issuedAt = Instant.ofEpochMilli(1_000_000);
+        Instant expiresAt = Instant.ofEpochMilli(1_300_000);
+        OAuth2AccessToken token = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "jwt",
+                issuedAt, expiresAt, Set.of("payments.read"));
+        when(redisTemplate.execute(any(RedisScript.class), any(List.class), any(List.class))).thenReturn(Flux.just(1L));
+
+        StepVerifier.create(service.saveAuthorizedClient(new OAuth2AuthorizedClient(REGISTRATION, "main-shop-client", token),
+                        new TestingAuthenticationToken("main-shop-client", null)))
+                .verifyComplete();
+
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of(KEY)),
+                eq(List.of("jwt", "1000000", "1300000", "payments.read")));
+    }
+
+    @Test
+    void loadsATokenStoredByAnyNode() {
+        when(redisTemplate.opsForHash()).thenReturn(hashOps);
+        when(hashOps.entries(KEY)).thenReturn(Flux.just(
+                Map.entry("token", "jwt"),
+                Map.entry("issuedAt", "1000000"),
+                Map.entry("expiresAt", "1300000"),
+                Map.entry("scope", "payments.read payments.write")));
+
+        StepVerifier.create(service.<OAuth2AuthorizedClient>loadAuthorizedClient("main-shop-client", "main-shop-client"))
+                .assertNext(client -> {
+                    assertThat(client.getClientRegistration().getRegistrationId()).isEqualTo("main-shop-client");
+                    assertThat(client.getAccessToken().getTokenValue()).isEqualTo("jwt");
+                    assertThat(client.getAccessToken().getExpiresAt()).isEqualTo(Instant.ofEpochMilli(1_300_000));
+                    assertThat(client.getAccessToken().getScopes()).containsExactlyInAnyOrder("payments.read", "payments.write");
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void expiredOrMissingTokenLoadsNothing() {
+        when(redisTemplate.opsForHash()).thenReturn(hashOps);
+        when(hashOps.entries(KEY)).thenReturn(Flux.empty());
+
+        StepVerifier.create(service.loadAuthorizedClient("main-shop-client", "main-shop-client"))
+                .verifyComplete();
+    }
+
+    @Test
+    void removeDeletesTheKey() {
+        when(redisTemplate.delete(KEY)).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(service.removeAuthorizedClient("main-shop-client", "main-shop-client"))
+                .verifyComplete();
+    }
+}
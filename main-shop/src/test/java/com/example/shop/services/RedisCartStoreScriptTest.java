@@ -0,0 +1,122 @@
+package com.example.shop.services;
+
+import com.example.shop.dtos.CartLine;
+import com.example.shop.models.Money;
+import com.example.shop.repositories.CartRepository;
+import com.example.shop.repositories.ItemRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/** The mutation script run by a real redis-server. */
+class RedisCartStoreScriptTest {
+
+    private static final String EMAIL = "user@test.com";
+
+    private static RedisServer redis;
+    private static LettuceConnectionFactory connectionFactory;
+    private static ReactiveStringRedisTemplate redisTemplate;
+
+    private final ItemRepository itemRepository = mock(ItemRepository.class);
+    private final CartRepository cartRepository = mock(CartRepository.class);
+    private RedisCartStore store;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = new RedisServer(port);
+        redis.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new ReactiveStringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redis.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> connection.serverCommands().flushAll()).blockLast();
+        store = new RedisCartStore(redisTemplate, itemRepository, cartRepository);
+        when(cartRepository.findFlushedVersionByEmail(EMAIL)).thenReturn(Mono.just(7L));
+    }
+
+    @Test
+    void firstMutation_seedsTheCartFromTheDatabase() {
+        when(itemRepository.existsById(3L)).thenReturn(Mono.just(true));
+        when(cartRepository.findCartLinesByEmail(EMAIL)).thenReturn(Flux.just(line(3L, 4), line(5L, 1)));
+
+        StepVerifier.create(store.increment(EMAIL, 3L).then(store.counts(EMAIL)))
+                .assertNext(counts -> assertThat(counts).isEqualTo(Map.of(3L, 5, 5L, 1)))
+                .verifyComplete();
+        assertThat(redisTemplate.opsForSet().isMember(RedisCartStore.DIRTY_KEY, EMAIL).block()).isTrue();
+    }
+
+    @Test
+    void loadedCart_isMutatedWithoutTheDatabase() {
+        when(cartRepository.findCartLinesByEmail(EMAIL)).thenReturn(Flux.just(line(3L, 1)));
+
+        StepVerifier.create(store.clear(EMAIL)
+                        .then(store.decrement(EMAIL, 3L))
+                        .then(store.counts(EMAIL)))
+                .assertNext(counts -> assertThat(counts).isEmpty())
+                .verifyComplete();
+        verify(cartRepository, times(1)).findCartLinesByEmail(EMAIL);
+    }
+
+    @Test
+    void decrementToZero_dropsTheLine() {
+        when(cartRepository.findCartLinesByEmail(EMAIL)).thenReturn(Flux.just(line(3L, 1), line(5L, 2)));
+
+        StepVerifier.create(store.decrement(EMAIL, 3L).then(store.counts(EMAIL)))
+                .assertNext(counts -> assertThat(counts).isEqualTo(Map.of(5L, 2)))
+                .verifyComplete();
+    }
+
+    @Test
+    void mutations_advanceTheFlushedVersion_evenAcrossAClear() {
+        when(itemRepository.existsById(3L)).thenReturn(Mono.just(true));
+        when(cartRepository.findCartLinesByEmail(EMAIL)).thenReturn(Flux.just(line(3L, 1)));
+
+        StepVerifier.create(store.decrement(EMAIL, 3L)
+                        .then(store.increment(EMAIL, 3L))
+                        .then(store.clear(EMAIL))
+                        .then(store.snapshot(EMAIL)))
+                .expectNext(new RedisCartStore.Snapshot(10L, Map.of()))
+                .verifyComplete();
+    }
+
+    @Test
+    void load_doesNotMarkTheCartDirty() {
+        when(cartRepository.findCartLinesByEmail(EMAIL)).thenReturn(Flux.empty());
+
+        StepVerifier.create(store.find(EMAIL))
+                .assertNext(cart -> assertThat(cart.isEmpty()).isTrue())
+                .verifyComplete();
+        assertThat(redisTemplate.opsForSet().isMember(RedisCartStore.DIRTY_KEY, EMAIL).block()).isFalse();
+    }
+
+    private static CartLine line(Long itemId, int count) {
+        return new CartLine(1L, 10L, itemId * 100, count, itemId, "t", "d", "/i", Money.of("1"));
+    }
+}
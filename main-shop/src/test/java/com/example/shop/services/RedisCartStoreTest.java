@@ -0,0 +1,146 @@
+package com.example.shop.services;
+
+import com.example.shop.dtos.CartLine;
+import com.example.shop.models.Item;
+import com.example.shop.models.Money;
+import com.example.shop.repositories.CartRepository;
+import com.example.shop.repositories.ItemRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ReactiveHashOperations;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedisCartStoreTest {
+
+    private static final String EMAIL = "user@test.com";
+
+    @Mock
+    private ReactiveStringRedisTemplate redisTemplate;
+    @Mock
+    private ReactiveHashOperations<String, Object, Object> hashOps;
+    @Mock
+    private ItemRepository itemRepository;
+    @Mock
+    private CartRepository cartRepository;
+
+    @InjectMocks
+    private RedisCartStore store;
+
+    @Test
+    void find_hydratesHashCountsWithItems() {
+        when(redisTemplate.opsForHash()).thenReturn(hashOps);
+        when(hashOps.entries("cart:" + EMAIL)).thenReturn(Flux.just(
+                Map.entry("loaded", "1"), Map.entry("2", "3"), Map.entry("1", "1")));
+        when(itemRepository.findAllById(Set.of(1L, 2L))).thenReturn(Flux.just(
+                new Item(2L, "B", "d", "/2", Money.of("1"), 0),
+                new Item(1L, "A", "d", "/1", Money.of("10"), 0)
+        ));
+
+        StepVerifier.create(store.find(EMAIL))
+                .assertNext(cart -> {
+                    assertThat(cart.getItems()).extracting(ci -> ci.getItem().getId()).containsExactly(1L, 2L);
+                    assertThat(cart.getItems()).extracting(ci -> ci.getCount()).containsExactly(1, 3);
+                    assertThat(cart.getTotal()).isEqualTo(Money.of("13"));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void find_emptyLoadedCart_returnsEmptyCartWithoutDatabase() {
+        when(redisTemplate.opsForHash()).thenReturn(hashOps);
+        when(hashOps.entries("cart:" + EMAIL)).thenReturn(Flux.just(Map.entry("loaded", "1")));
+
+        StepVerifier.create(store.find(EMAIL))
+                .assertNext(cart -> assertThat(cart.isEmpty()).isTrue())
+                .verifyComplete();
+
+        verifyNoInteractions(itemRepository, cartRepository);
+    }
+
+    @Test
+    void find_cartMissingFromRedis_seedsItFromTheDatabase() {
+        when(redisTemplate.opsForHash()).thenReturn(hashOps);
+        when(hashOps.entries("cart:" + EMAIL)).thenReturn(
+                Flux.empty(),
+                Flux.just(Map.entry("loaded", "1"), Map.entry("1", "2")));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList())).thenReturn(Flux.just(-1L), Flux.just(1L));
+        when(cartRepository.findCartLinesByEmail(EMAIL)).thenReturn(Flux.just(line(1L, 2)));
+        when(cartRepository.findFlushedVersionByEmail(EMAIL)).thenReturn(Mono.just(6L));
+        when(itemRepository.findAllById(Set.of(1L))).thenReturn(Flux.just(new Item(1L, "A", "d", "/1", Money.of("10"), 0)));
+
+        StepVerifier.create(store.find(EMAIL))
+                .assertNext(cart -> assertThat(cart.getItems()).extracting(ci -> ci.getCount()).containsExactly(2))
+                .verifyComplete();
+
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("cart:" + EMAIL, "cart:dirty")),
+                eq(List.of("", EMAIL, "load", "1", "6", "1", "2")));
+    }
+
+    @Test
+    void decrement_runsMutationScriptAndMarksCartDirty() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList())).thenReturn(Flux.just(1L));
+
+        StepVerifier.create(store.decrement(EMAIL, 7L))
+                .verifyComplete();
+
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("cart:" + EMAIL, "cart:dirty")), eq(List.of("7", EMAIL, "-1", "0")));
+        verifyNoInteractions(cartRepository);
+    }
+
+    @Test
+    void mutation_ofACartMissingFromRedis_keepsTheDatabaseLines() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList())).thenReturn(Flux.just(-1L), Flux.just(1L));
+        when(cartRepository.findCartLinesByEmail(EMAIL)).thenReturn(Flux.just(line(3L, 4), line(5L, 1)));
+        when(cartRepository.findFlushedVersionByEmail(EMAIL)).thenReturn(Mono.empty());
+
+        StepVerifier.create(store.remove(EMAIL, 5L))
+                .verifyComplete();
+
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("cart:" + EMAIL, "cart:dirty")),
+                eq(List.of("5", EMAIL, "remove", "1", "0", "3", "4", "5", "1")));
+    }
+
+    @Test
+    void snapshot_separatesTheVersionFromTheCounts() {
+        when(redisTemplate.opsForHash()).thenReturn(hashOps);
+        when(hashOps.entries("cart:" + EMAIL)).thenReturn(Flux.just(
+                Map.entry("loaded", "1"), Map.entry("version", "4"), Map.entry("2", "3")));
+
+        StepVerifier.create(store.snapshot(EMAIL))
+                .expectNext(new RedisCartStore.Snapshot(4L, Map.of(2L, 3)))
+                .verifyComplete();
+    }
+
+    @Test
+    void increment_rejectsUnknownItems() {
+        when(itemRepository.existsById(99L)).thenReturn(Mono.just(false));
+
+        StepVerifier.create(store.increment(EMAIL, 99L))
+                .expectErrorMessage("No item 99")
+                .verify();
+
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), anyList());
+    }
+
+    private static CartLine line(Long itemId, int count) {
+        return new CartLine(1L, 10L, itemId * 100, count, itemId, "t", "d", "/i", Money.of("1"));
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.payments.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "payment.idempotency")
+public class IdempotencyProperties {
+    private Duration ttl = Duration.ofHours(1);
+    /** Keys are shared through Redis under this prefix when the ledger is redis. */
+    private String redisKeyPrefix = "payments:idempotency:";
+    /** How long a retry waits for the payment another instance is still making with the same key. */
+    private Duration inFlightTimeout = Duration.ofSeconds(10);
+}
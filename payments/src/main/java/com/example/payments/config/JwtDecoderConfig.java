@@ -0,0 +1,30 @@
+package com.example.payments.config;
+
+import com.example.payments.services.CachingJwtDecoder;
+import com.example.payments.services.JwkSetCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.OAuth2ResourceServerProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+
+@Configuration
+public class JwtDecoderConfig {
+
+    /**
+     * Replaces the decoder Boot builds from {@code spring.security.oauth2.resourceserver.jwt.*}: keys come from
+     * the prefetched {@link JwkSetCache} and verified tokens are cached until they expire.
+     */
+    @Bean
+    ReactiveJwtDecoder jwtDecoder(JwkSetCache jwkSetCache,
+                                  OAuth2ResourceServerProperties resourceServerProperties,
+                                  JwtVerificationProperties properties,
+                                  MeterRegistry meterRegistry) {
+        NimbusReactiveJwtDecoder verifier = NimbusReactiveJwtDecoder.withJwkSource(jwkSetCache::select).build();
+        String issuer = resourceServerProperties.getJwt().getIssuerUri();
+        verifier.setJwtValidator(issuer == null ? JwtValidators.createDefault() : JwtValidators.createDefaultWithIssuer(issuer));
+        return new CachingJwtDecoder(verifier, properties.getCacheMaximumSize(), meterRegistry);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.payments.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "payment.security.jwt")
+public class JwtVerificationProperties {
+    /** Verified tokens remembered until their {@code exp}; callers reuse one token for many requests. */
+    private long cacheMaximumSize = 10_000;
+    private boolean prewarmJwks = true;
+    /** A token signed with an unknown key refetches the JWKS at most this often. */
+    private Duration jwksMinRefreshInterval = Duration.ofSeconds(30);
+    private Duration jwksFetchTimeout = Duration.ofSeconds(5);
+}
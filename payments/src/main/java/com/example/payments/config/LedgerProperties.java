@@ -0,0 +1,50 @@
+package com.example.payments.config;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties(prefix = "payment.ledger")
+public class LedgerProperties {
+
+    private Engine engine = Engine.MAP;
+
+    @Valid
+    private Sharded sharded = new Sharded();
+
+    private Redis redis = new Redis();
+
+    public enum Engine {
+        /** Concurrent map of per-account counters, updated by the calling thread. */
+        MAP,
+        /** Accounts partitioned across single-writer shards. */
+        SHARDED,
+        /** Balances kept in Redis and debited by a server-side script, shared by every payments instance. */
+        REDIS
+    }
+
+    @Getter
+    @Setter
+    public static class Sharded {
+        /** One single-writer thread per shard; defaults to one per core. */
+        @Min(1)
+        private int shards = Runtime.getRuntime().availableProcessors();
+        /** Commands a shard applies before it waits for the journal once for all of them. */
+        @Min(1)
+        private int batchSize = 256;
+    }
+
+    @Getter
+    @Setter
+    public static class Redis {
+        private String keyPrefix = "payments:balance:";
+    }
+}
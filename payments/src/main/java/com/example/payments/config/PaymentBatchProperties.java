@@ -0,0 +1,14 @@
+package com.example.payments.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "payment.batch")
+public class PaymentBatchProperties {
+    private int maxCharges = 1000;
+}
@@ -0,0 +1,32 @@
+package com.example.payments.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "payment.journal")
+public class PaymentJournalProperties {
+
+    private boolean enabled = false;
+
+    private Path directory = Path.of("data", "payments-journal");
+
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    /** How often appended events are forced to disk; every payment in between shares one fsync. */
+    private Duration syncInterval = Duration.ofMillis(2);
+
+    /** Complete a payment only once its journal entry is on disk. */
+    private boolean awaitSync = true;
+
+    /** Replay after a restart never has to read more than this much journal. */
+    private Duration snapshotInterval = Duration.ofMinutes(1);
+}
@@ -0,0 +1,25 @@
+package com.example.payments.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+
+/**
+ * Reports Redis in {@code /actuator/health} only when the ledger keeps its balances there: the Redis
+ * starter is always on the classpath, and a map or sharded ledger without a Redis server is still UP.
+ * An explicit {@code management.health.redis.enabled} wins.
+ */
+public class RedisHealthDefaults implements EnvironmentPostProcessor {
+
+    static final String PROPERTY = "management.health.redis.enabled";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        boolean redisLedger = LedgerProperties.Engine.REDIS.name()
+                .equalsIgnoreCase(environment.getProperty("payment.ledger.engine", LedgerProperties.Engine.MAP.name()));
+        environment.getPropertySources().addLast(new MapPropertySource("paymentsRedisHealth", Map.of(PROPERTY, redisLedger)));
+    }
+}
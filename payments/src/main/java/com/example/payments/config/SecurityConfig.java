@@ -15,7 +15,7 @@ public class SecurityConfig {
         http
                 .authorizeExchange(ex -> ex
                         .pathMatchers(HttpMethod.GET,  "/payments/balance").hasAuthority("SCOPE_payments.read")
-                        .pathMatchers(HttpMethod.POST, "/payments/pay").hasAuthority("SCOPE_payments.write")
+                        .pathMatchers(HttpMethod.POST, "/payments/pay", "/payments/pay/batch").hasAuthority("SCOPE_payments.write")
                         .anyExchange().authenticated()
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2.jwt(Customizer.withDefaults()));
@@ -1,44 +1,72 @@
 package com.example.payments.controllers;
 
+import com.example.payments.api.model.Balance;
+import com.example.payments.api.model.PaymentBatchRequest;
+import com.example.payments.api.model.PaymentChargeResult;
 import com.example.payments.api.model.PaymentRequest;
 import com.example.payments.api.model.PaymentResponse;
-import com.example.payments.services.PaymentService;
+import com.example.payments.services.BatchPaymentService;
+import com.example.payments.services.IdempotencyRegistry;
+import com.example.payments.services.LedgerEngine;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.math.BigDecimal;
-
 @RestController
 @RequiredArgsConstructor
 public class PaymentController  {
 
-    private final PaymentService paymentService;
+    private final LedgerEngine ledger;
+    private final IdempotencyRegistry idempotencyRegistry;
+    private final BatchPaymentService batchPaymentService;
 
     @GetMapping("/payments/balance")
-    public Mono<ResponseEntity<BigDecimal>> getBalance(
+    public Mono<ResponseEntity<Balance>> getBalance(
             @AuthenticationPrincipal Jwt jwt
     ) {
         String clientId = jwt.getSubject();
-        return paymentService.getBalance(clientId).map(ResponseEntity::ok);
+        return ledger.getBalance(clientId).map(balance -> ResponseEntity.ok(new Balance().amountMinor(balance)));
     }
 
     @PostMapping("/payments/pay")
     public Mono<ResponseEntity<PaymentResponse>> processPayment(
             @AuthenticationPrincipal Jwt jwt,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestBody Mono<PaymentRequest> paymentRequest
     ) {
         String clientId = jwt.getSubject();
         return paymentRequest
-                .flatMap(req -> paymentService.processPayment(clientId, req.getAmount()))
-                .map(result -> ResponseEntity.ok(new PaymentResponse().message(result)));
+                .flatMap(req -> req.getAmountMinor() == null
+                        ? Mono.just(ResponseEntity.badRequest().body(new PaymentResponse().message("Payment amount is required.")))
+                        : idempotencyRegistry.execute(clientId, idempotencyKey, req.getAmountMinor(),
+                                        () -> ledger.processPayment(clientId, req.getAmountMinor()))
+                                .map(result -> ResponseEntity.ok(new PaymentResponse().message(result))))
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(
+                        ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED).body(new PaymentResponse().message(e.getMessage()))))
+                .onErrorResume(IllegalStateException.class, e -> Mono.just(
+                        ResponseEntity.status(HttpStatus.CONFLICT).body(new PaymentResponse().message(e.getMessage()))));
+    }
+
+    @PostMapping(value = "/payments/pay/batch", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<PaymentChargeResult> processPaymentBatch(
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestBody Mono<PaymentBatchRequest> batchRequest
+    ) {
+        String clientId = jwt.getSubject();
+        return batchRequest
+                .flatMapMany(batch -> batchPaymentService.process(clientId, batch))
+                .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,98 @@
+package com.example.payments.services;
+
+import com.example.payments.api.model.PaymentBatchRequest;
+import com.example.payments.api.model.PaymentCharge;
+import com.example.payments.api.model.PaymentChargeResult;
+import com.example.payments.config.PaymentBatchProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Settles many charges against one account. Independent batches apply each charge in order and report it
+ * as soon as it is settled; atomic batches are debited as a single sum, so either every charge succeeds
+ * or none does, also across a crash.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BatchPaymentService {
+
+    private final LedgerEngine ledger;
+    private final PaymentBatchProperties properties;
+
+    /**
+     * @throws IllegalArgumentException (as an error signal) when the batch is empty or too large
+     */
+    public Flux<PaymentChargeResult> process(String account, PaymentBatchRequest batch) {
+        List<PaymentCharge> charges = batch.getCharges() == null ? List.of() : batch.getCharges();
+        if (charges.isEmpty() || charges.size() > properties.getMaxCharges()) {
+            return Flux.error(new IllegalArgumentException(
+                    "A batch must contain between 1 and " + properties.getMaxCharges() + " charges"));
+        }
+        return Boolean.TRUE.equals(batch.getAtomic())
+                ? processAtomically(account, charges)
+                : Flux.fromIterable(charges).concatMap(charge -> processOne(account, charge));
+    }
+
+    private Mono<PaymentChargeResult> processOne(String account, PaymentCharge charge) {
+        if (charge.getAmountMinor() == null) {
+            return Mono.just(declined(charge, "Payment amount is required."));
+        }
+        return ledger.processPayment(account, charge.getAmountMinor())
+                .map(message -> succeeded(charge, message))
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(declined(charge, e.getMessage())))
+                // one failing charge must not cut off the results of the charges after it
+                .onErrorResume(e -> {
+                    log.error("Charge {} of {} failed", charge.getId(), account, e);
+                    return Mono.just(failed(charge));
+                });
+    }
+
+    private Flux<PaymentChargeResult> processAtomically(String account, List<PaymentCharge> charges) {
+        long total = 0;
+        for (PaymentCharge charge : charges) {
+            if (charge.getAmountMinor() == null || charge.getAmountMinor() <= 0) {
+                String reason = "Batch rejected: charge " + charge.getId() + " has no positive amount.";
+                return Flux.fromIterable(charges).map(c -> declined(c, reason));
+            }
+            total = Math.addExact(total, charge.getAmountMinor());
+        }
+        long sum = total;
+        return ledger.processPayment(account, sum)
+                .flatMapMany(message -> Flux.fromIterable(charges)
+                        .map(c -> succeeded(c, "Settled in a batch of " + charges.size() + " totalling "
+                                + MinorUnits.toAmount(sum) + ". " + message)))
+                .onErrorResume(IllegalArgumentException.class, e -> Flux.fromIterable(charges)
+                        .map(c -> declined(c, e.getMessage())))
+                .onErrorResume(e -> {
+                    log.error("Atomic batch of {} charges for {} failed", charges.size(), account, e);
+                    return Flux.fromIterable(charges).map(BatchPaymentService::failed);
+                });
+    }
+
+    private static PaymentChargeResult succeeded(PaymentCharge charge, String message) {
+        return new PaymentChargeResult()
+                .id(charge.getId())
+                .status(PaymentChargeResult.StatusEnum.SUCCESS)
+                .message(message);
+    }
+
+    private static PaymentChargeResult declined(PaymentCharge charge, String message) {
+        return new PaymentChargeResult()
+                .id(charge.getId())
+                .status(PaymentChargeResult.StatusEnum.DECLINED)
+                .message(message);
+    }
+
+    private static PaymentChargeResult failed(PaymentCharge charge) {
+        return new PaymentChargeResult()
+                .id(charge.getId())
+                .status(PaymentChargeResult.StatusEnum.ERROR)
+                .message("Payment could not be processed.");
+    }
+}
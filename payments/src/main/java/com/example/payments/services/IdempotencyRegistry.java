@@ -0,0 +1,19 @@
+package com.example.payments.services;
+
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+
+/**
+ * Remembers the outcome of a payment per client and idempotency key for {@code payment.idempotency.ttl}.
+ * A retry with the same key replays the first outcome (success or decline) instead of charging again.
+ */
+public interface IdempotencyRegistry {
+
+    /**
+     * @param key the client's idempotency key; without one the payment simply runs
+     * @return the outcome of the first payment made with {@code key}, or an {@link IllegalStateException}
+     * when the key was already used for a different amount
+     */
+    Mono<String> execute(String clientId, String key, long amount, Supplier<Mono<String>> payment);
+}
@@ -0,0 +1,140 @@
+package com.example.payments.services;
+
+import com.example.payments.config.JwtVerificationProperties;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.OAuth2ResourceServerProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keys of the authorization server, fetched when the application starts instead of on the first request.
+ * A token signed with a key that is not in the set (the server rotated its keys) triggers one refetch,
+ * shared by concurrent requests and rate limited by {@code jwks-min-refresh-interval}.
+ */
+@Slf4j
+@Component
+public class JwkSetCache {
+
+    private final WebClient webClient;
+    private final String jwkSetUri;
+    private final JwtVerificationProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicReference<JWKSet> current = new AtomicReference<>(new JWKSet());
+    private Mono<JWKSet> refreshing;
+    private long lastRefreshNanos;
+    private Disposable prewarm;
+
+    public JwkSetCache(WebClient.Builder webClientBuilder,
+                       OAuth2ResourceServerProperties resourceServerProperties,
+                       JwtVerificationProperties properties,
+                       MeterRegistry meterRegistry) {
+        this.webClient = webClientBuilder.build();
+        this.jwkSetUri = resourceServerProperties.getJwt().getJwkSetUri();
+        if (jwkSetUri == null) {
+            throw new IllegalStateException("spring.security.oauth2.resourceserver.jwt.jwk-set-uri must be set");
+        }
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.lastRefreshNanos = System.nanoTime() - properties.getJwksMinRefreshInterval().toNanos();
+    }
+
+    @PostConstruct
+    public void prewarm() {
+        if (!properties.isPrewarmJwks()) {
+            return;
+        }
+        // the authorization server may still be starting, keep trying in the background
+        prewarm = fetch("startup")
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe(keys -> log.info("Prefetched {} signing keys from {}", keys.size(), jwkSetUri));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (prewarm != null) {
+            prewarm.dispose();
+        }
+    }
+
+    /**
+     * Source of verification keys for {@code NimbusReactiveJwtDecoder.withJwkSource}.
+     */
+    public Flux<JWK> select(SignedJWT jwt) {
+        JWKSelector selector = new JWKSelector(JWKMatcher.forJWSHeader(jwt.getHeader()));
+        List<JWK> keys = selector.select(current.get());
+        if (!keys.isEmpty()) {
+            return Flux.fromIterable(keys);
+        }
+        return refresh().flatMapIterable(selector::select);
+    }
+
+    private synchronized Mono<JWKSet> refresh() {
+        if (refreshing == null) {
+            if (System.nanoTime() - lastRefreshNanos < properties.getJwksMinRefreshInterval().toNanos()) {
+                return Mono.just(current.get());
+            }
+            lastRefreshNanos = System.nanoTime();
+            refreshing = fetch("unknown-key")
+                    .onErrorResume(e -> {
+                        log.warn("Failed to refresh signing keys from {}", jwkSetUri, e);
+                        return Mono.just(current.get());
+                    })
+                    .doFinally(signal -> refreshed())
+                    .cache();
+        }
+        return refreshing;
+    }
+
+    private synchronized void refreshed() {
+        refreshing = null;
+    }
+
+    private Mono<JWKSet> fetch(String trigger) {
+        return webClient.get()
+                .uri(jwkSetUri)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(properties.getJwksFetchTimeout())
+                .map(JwkSetCache::parse)
+                .doOnNext(current::set)
+                .doOnEach(signal -> {
+                    if (signal.isOnNext() || signal.isOnError()) {
+                        fetches(trigger, signal.isOnNext() ? "success" : "error").increment();
+                    }
+                });
+    }
+
+    private Counter fetches(String trigger, String outcome) {
+        return Counter.builder("payments.jwt.jwks.fetches")
+                .tag("trigger", trigger)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static JWKSet parse(String json) {
+        try {
+            return JWKSet.parse(json);
+        } catch (ParseException e) {
+            throw new IllegalStateException("Malformed JWK set", e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.payments.services;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps account balances and applies payments against them; amounts and balances are in kopecks.
+ * Declined payments fail with {@link IllegalArgumentException}.
+ */
+public interface LedgerEngine {
+
+    Mono<Long> getBalance(String account);
+
+    Mono<String> processPayment(String account, long amount);
+}
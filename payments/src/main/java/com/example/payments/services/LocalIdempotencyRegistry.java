@@ -0,0 +1,80 @@
+package com.example.payments.services;
+
+import com.example.payments.config.IdempotencyProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency keys of this instance only, for the map and sharded ledgers that are not shared either.
+ * Concurrent retries share the one in-flight execution. A success or a decline is replayed; after any other
+ * error the key is forgotten so the client can retry it, which is safe since these ledgers credit back a
+ * payment that failed (unlike {@link RedisIdempotencyRegistry}, whose ledger may have applied it).
+ */
+@Component
+public class LocalIdempotencyRegistry implements IdempotencyRegistry {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final Clock clock;
+    private volatile long nextPurge;
+
+    @Autowired
+    public LocalIdempotencyRegistry(IdempotencyProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    LocalIdempotencyRegistry(IdempotencyProperties properties, Clock clock) {
+        this.ttlMillis = properties.getTtl().toMillis();
+        this.clock = clock;
+    }
+
+    @Override
+    public Mono<String> execute(String clientId, String key, long amount, Supplier<Mono<String>> payment) {
+        if (key == null || key.isBlank()) {
+            return payment.get();
+        }
+        long now = clock.millis();
+        purgeExpired(now);
+
+        Entry entry = entries.compute(clientId + ":" + key, (k, existing) ->
+                existing != null && existing.expiresAt() > now
+                        ? existing
+                        : newEntry(k, amount, payment, now));
+
+        if (entry.amount() != amount) {
+            return Mono.error(new IllegalStateException("Idempotency key " + key + " was already used for a different amount"));
+        }
+        return entry.result();
+    }
+
+    private Entry newEntry(String entryKey, long amount, Supplier<Mono<String>> payment, long now) {
+        AtomicReference<Entry> self = new AtomicReference<>();
+        Mono<String> result = Mono.defer(payment)
+                .doOnError(e -> !(e instanceof IllegalArgumentException), e -> entries.remove(entryKey, self.get()))
+                .cache();
+        self.set(new Entry(amount, result, now + ttlMillis));
+        return self.get();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void purgeExpired(long now) {
+        if (now < nextPurge) {
+            return;
+        }
+        nextPurge = now + ttlMillis;
+        entries.values().removeIf(entry -> entry.expiresAt() <= now);
+    }
+
+    private record Entry(long amount, Mono<String> result, long expiresAt) {
+    }
+}
@@ -0,0 +1,412 @@
+package com.example.payments.services;
+
+import com.example.payments.config.PaymentJournalProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Journal in preallocated, memory-mapped segment files. An append is a copy into the mapping;
+ * a sync thread forces the mapping every {@code sync-interval} and releases all payments appended
+ * up to that point at once (group commit). Released payments continue on the parallel scheduler, so the sync
+ * thread only forces and signals and the interval is not stretched by the work downstream of each payment.
+ * <p>
+ * Records are {@code [length][crc32][seq, type, amount, account]}; replay stops at the first record that is
+ * incomplete, fails its checksum or breaks the sequence, which is where appending resumes. A snapshot thread
+ * periodically folds the durable part of the journal into {@code snapshot.bin} and deletes the segments
+ * it covers, so replay only reads what was written since the last snapshot.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "payment.journal.enabled", havingValue = "true")
+public class MappedPaymentJournal implements PaymentJournal {
+
+    private static final int HEADER = Integer.BYTES * 2;
+    private static final int FIXED_PAYLOAD = Long.BYTES + Byte.BYTES + Long.BYTES + Short.BYTES;
+    private static final int SNAPSHOT_MAGIC = 0x50534e31;
+    private static final String SNAPSHOT = "snapshot.bin";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Duration syncInterval;
+    private final Duration snapshotInterval;
+    private final boolean awaitSync;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private long segment;
+    private volatile FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long lastSeq;
+
+    private volatile long syncedSeq;
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    // owned by the snapshot thread once recovered
+    private Map<String, Long> snapshotBalances;
+    private Position snapshotPosition;
+
+    private ScheduledExecutorService syncExecutor;
+    private ScheduledExecutorService snapshotExecutor;
+
+    public MappedPaymentJournal(PaymentJournalProperties properties) {
+        this.directory = properties.getDirectory();
+        this.segmentSize = Math.toIntExact(properties.getSegmentSize().toBytes());
+        this.syncInterval = properties.getSyncInterval();
+        this.snapshotInterval = properties.getSnapshotInterval();
+        this.awaitSync = properties.isAwaitSync();
+    }
+
+    @Override
+    public synchronized Map<String, Long> recover() {
+        if (channel != null) {
+            throw new IllegalStateException("Journal already recovered");
+        }
+        Map<String, Long> balances;
+        try {
+            Files.createDirectories(directory);
+            snapshotBalances = new HashMap<>();
+            snapshotPosition = readSnapshot(snapshotBalances);
+
+            balances = new HashMap<>(snapshotBalances);
+            long started = System.nanoTime();
+            Position tail = replay(balances, snapshotPosition, Long.MAX_VALUE);
+            openSegment(tail.segment(), tail.offset(), false);
+            lastSeq = tail.seq();
+            syncedSeq = tail.seq();
+            log.info("Payment journal recovered {} accounts up to seq {} ({} events replayed) in {} ms",
+                    balances.size(), tail.seq(), tail.seq() - snapshotPosition.seq(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to recover payment journal in " + directory, e);
+        }
+
+        syncExecutor = Executors.newSingleThreadScheduledExecutor(daemon("payment-journal-sync"));
+        syncExecutor.scheduleWithFixedDelay(this::sync,
+                syncInterval.toNanos(), syncInterval.toNanos(), TimeUnit.NANOSECONDS);
+        snapshotExecutor = Executors.newSingleThreadScheduledExecutor(daemon("payment-journal-snapshot"));
+        snapshotExecutor.scheduleWithFixedDelay(this::snapshotQuietly,
+                snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+        return balances;
+    }
+
+    @Override
+    public long append(EventType type, String account, long amount) {
+        byte[] name = account.getBytes(StandardCharsets.UTF_8);
+        int payload = FIXED_PAYLOAD + name.length;
+        if (name.length > Short.MAX_VALUE || HEADER + payload > segmentSize) {
+            throw new IllegalArgumentException("Account name too long for the journal: " + account);
+        }
+
+        appendLock.lock();
+        try {
+            if (buffer.remaining() < HEADER + payload) {
+                openSegment(segment + 1, 0, true);
+            }
+            long seq = lastSeq + 1;
+            int start = buffer.position();
+            buffer.position(start + HEADER);
+            buffer.putLong(seq)
+                    .put((byte) type.ordinal())
+                    .putLong(amount)
+                    .putShort((short) name.length)
+                    .put(name);
+            buffer.putInt(start + Integer.BYTES, checksum(buffer, start + HEADER, payload));
+            // the length goes last: until it is set, replay sees the end of the journal here
+            buffer.putInt(start, payload);
+            lastSeq = seq;
+            return seq;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to payment journal", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public Mono<Void> durable(long seq) {
+        if (!awaitSync || seq <= syncedSeq) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> {
+            Waiter waiter = new Waiter(seq, new CompletableFuture<>());
+            waiters.add(waiter);
+            // the sync may have passed seq between the check above and registering
+            if (seq <= syncedSeq) {
+                waiter.future().complete(null);
+            }
+            return Mono.fromFuture(waiter.future());
+        }).publishOn(Schedulers.parallel());
+    }
+
+    @PreDestroy
+    public void close() {
+        if (channel == null) {
+            return;
+        }
+        syncExecutor.shutdown();
+        snapshotExecutor.shutdown();
+        try {
+            syncExecutor.awaitTermination(5, TimeUnit.SECONDS);
+            snapshotExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sync();
+        snapshotQuietly();
+        appendLock.lock();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close payment journal segment", e);
+        } finally {
+            channel = null;
+            appendLock.unlock();
+        }
+    }
+
+    void sync() {
+        long target;
+        MappedByteBuffer current;
+        appendLock.lock();
+        try {
+            target = lastSeq;
+            current = buffer;
+        } finally {
+            appendLock.unlock();
+        }
+
+        if (target > syncedSeq) {
+            try {
+                // earlier segments were forced when the journal moved past them
+                current.force();
+                syncedSeq = target;
+            } catch (RuntimeException e) {
+                log.error("Failed to sync payment journal", e);
+                failWaiters(target, e);
+                return;
+            }
+        }
+        long synced = syncedSeq;
+        for (Iterator<Waiter> it = waiters.iterator(); it.hasNext(); ) {
+            Waiter waiter = it.next();
+            if (waiter.seq() <= synced) {
+                waiter.future().complete(null);
+                it.remove();
+            }
+        }
+    }
+
+    synchronized void snapshot() throws IOException {
+        long until = syncedSeq;
+        if (until <= snapshotPosition.seq()) {
+            return;
+        }
+        Map<String, Long> balances = new HashMap<>(snapshotBalances);
+        Position at = replay(balances, snapshotPosition, until);
+        writeSnapshot(balances, at);
+        snapshotBalances = balances;
+        snapshotPosition = at;
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Long index = segmentIndex(file);
+                if (index != null && index < at.segment()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        log.debug("Payment journal snapshot at seq {} ({} accounts)", at.seq(), balances.size());
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write payment journal snapshot", e);
+        }
+    }
+
+    private void failWaiters(long upTo, Throwable cause) {
+        for (Iterator<Waiter> it = waiters.iterator(); it.hasNext(); ) {
+            Waiter waiter = it.next();
+            if (waiter.seq() <= upTo) {
+                waiter.future().completeExceptionally(cause);
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Applies events after {@code from} with sequence numbers up to {@code untilSeq} to {@code balances}.
+     *
+     * @return the position right after the last applied event
+     */
+    private Position replay(Map<String, Long> balances, Position from, long untilSeq) throws IOException {
+        Position at = from;
+        long index = from.segment();
+        int offset = from.offset();
+
+        while (Files.exists(segmentPath(index))) {
+            ByteBuffer in;
+            try (FileChannel ch = FileChannel.open(segmentPath(index), StandardOpenOption.READ)) {
+                in = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            }
+            in.position(offset);
+            while (true) {
+                if (in.remaining() < HEADER || in.getInt(in.position()) == 0) {
+                    break;
+                }
+                int start = in.position();
+                int payload = in.getInt(start);
+                if (payload < FIXED_PAYLOAD || payload > in.remaining() - HEADER
+                        || in.getInt(start + Integer.BYTES) != checksum(in, start + HEADER, payload)) {
+                    return at;
+                }
+                in.position(start + HEADER);
+                long seq = in.getLong();
+                if (seq != at.seq() + 1 || seq > untilSeq) {
+                    return at;
+                }
+                EventType type = EventType.values()[in.get()];
+                long amount = in.getLong();
+                byte[] name = new byte[in.getShort()];
+                in.get(name);
+
+                long delta = type == EventType.CREDIT ? amount : -amount;
+                balances.merge(new String(name, StandardCharsets.UTF_8), delta, Long::sum);
+                at = new Position(index, in.position(), seq);
+            }
+            index++;
+            offset = 0;
+        }
+        return at;
+    }
+
+    private void openSegment(long index, int offset, boolean fresh) throws IOException {
+        if (buffer != null) {
+            buffer.force();
+            channel.close();
+        }
+        Path path = segmentPath(index);
+        if (fresh) {
+            // a stale segment may be left over from beyond a torn tail
+            Files.deleteIfExists(path);
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, channel.size()));
+        buffer.position(offset);
+        segment = index;
+    }
+
+    private Position readSnapshot(Map<String, Long> balances) throws IOException {
+        Path path = directory.resolve(SNAPSHOT);
+        if (!Files.exists(path)) {
+            return new Position(0, 0, 0);
+        }
+        try (CheckedInputStream checked = new CheckedInputStream(Files.newInputStream(path), new CRC32());
+             DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IllegalStateException("Not a payment journal snapshot: " + path);
+            }
+            Position position = new Position(in.readLong(), in.readInt(), in.readLong());
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                balances.put(in.readUTF(), in.readLong());
+            }
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IllegalStateException("Corrupt payment journal snapshot: " + path);
+            }
+            return position;
+        }
+    }
+
+    private void writeSnapshot(Map<String, Long> balances, Position position) throws IOException {
+        Path tmp = directory.resolve(SNAPSHOT + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream checked = new CheckedOutputStream(Channels.newOutputStream(ch), new CRC32());
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checked));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(position.segment());
+            out.writeInt(position.offset());
+            out.writeLong(position.seq());
+            out.writeInt(balances.size());
+            for (Map.Entry<String, Long> entry : balances.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+            out.flush();
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            ch.force(true);
+        }
+        Files.move(tmp, directory.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("journal-%020d.log", index));
+    }
+
+    private static Long segmentIndex(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith("journal-") || !name.endsWith(".log")) {
+            return null;
+        }
+        return Long.parseLong(name.substring("journal-".length(), name.length() - ".log".length()));
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private record Position(long segment, int offset, long seq) {
+    }
+
+    private record Waiter(long seq, CompletableFuture<Void> future) {
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.payments.services;
+
+import java.math.BigDecimal;
+
+/**
+ * Conversion between amounts and the kopecks the ledgers count in.
+ */
+final class MinorUnits {
+
+    private static final int SCALE = 2;
+
+    private MinorUnits() {
+    }
+
+    static long of(BigDecimal amount) {
+        try {
+            return amount.movePointRight(SCALE).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Payment amount must have at most " + SCALE + " decimal places.");
+        }
+    }
+
+    static long positive(long amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Payment amount must be positive.");
+        }
+        return amount;
+    }
+
+    static BigDecimal toAmount(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+}
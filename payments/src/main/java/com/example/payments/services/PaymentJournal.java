@@ -0,0 +1,32 @@
+package com.example.payments.services;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Append-only log of balance changes, in minor units, that {@link PaymentService} rebuilds its balances from.
+ */
+public interface PaymentJournal {
+
+    enum EventType {
+        CREDIT, DEBIT
+    }
+
+    /**
+     * Reads back the state left by the previous run and opens the journal for appending.
+     *
+     * @return balance per account, in minor units
+     */
+    Map<String, Long> recover();
+
+    /**
+     * @return the sequence number of the appended event
+     */
+    long append(EventType type, String account, long amount);
+
+    /**
+     * Completes once the event with the given sequence number, and all before it, are durable.
+     */
+    Mono<Void> durable(long seq);
+}
@@ -1,41 +1,96 @@
 package com.example.payments.services;
 
 import com.example.payments.config.PaymentAccountProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
-import java.math.BigDecimal;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Balances are kept per account in minor units (kopecks). A debit is a compare-and-set loop on the
+ * account's counter, so concurrent payments can neither overdraw the account nor lose an update,
+ * and payments for different accounts never contend.
+ * <p>
+ * Every change is appended to the {@link PaymentJournal} (opening an account credits the initial balance);
+ * balances are rebuilt from it on startup, and a payment completes once its debit is durable. If the journal
+ * fails to make it durable, the debit is credited back, in memory and with a compensating CREDIT event, and the
+ * payment fails, so the caller may safely retry it.
+ */
+@Slf4j
 @Service
-public class PaymentService {
+@ConditionalOnProperty(name = "payment.ledger.engine", havingValue = "map", matchIfMissing = true)
+public class PaymentService implements LedgerEngine {
 
-    private final Map<String, BigDecimal> userBalances = new ConcurrentHashMap<>();
-    private final BigDecimal initialBalance;
+    private final Map<String, AtomicLong> userBalances = new ConcurrentHashMap<>();
+    private final long initialBalance;
+    private final PaymentJournal journal;
 
     public PaymentService(PaymentAccountProperties properties) {
-        this.initialBalance = properties.getInitialBalance();
+        this(properties, new NoopPaymentJournal());
     }
 
-    public Mono<BigDecimal> getBalance(String username) {
-        BigDecimal balance = userBalances.computeIfAbsent(username, key -> initialBalance);
-        return Mono.just(balance);
+    @Autowired
+    public PaymentService(PaymentAccountProperties properties, PaymentJournal journal) {
+        this.initialBalance = MinorUnits.of(properties.getInitialBalance());
+        this.journal = journal;
+        journal.recover().forEach((account, balance) -> userBalances.put(account, new AtomicLong(balance)));
     }
 
-    public Mono<String> processPayment(String username, BigDecimal amount) {
-        BigDecimal currentBalance = userBalances.computeIfAbsent(username, key -> initialBalance);
+    @Override
+    public Mono<Long> getBalance(String username) {
+        return Mono.fromSupplier(() -> account(username).get());
+    }
 
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            return Mono.error(new IllegalArgumentException("Payment amount must be positive."));
-        }
+    @Override
+    public Mono<String> processPayment(String username, long amount) {
+        return Mono.defer(() -> {
+            long debit = MinorUnits.positive(amount);
+            AtomicLong balance = account(username);
 
-        if (currentBalance.compareTo(amount) >= 0) {
-            BigDecimal newBalance = currentBalance.subtract(amount);
-            userBalances.put(username, newBalance);
-            return Mono.just("Payment successful! Remaining balance: " + newBalance);
-        } else {
-            return Mono.error(new IllegalArgumentException("Insufficient funds"));
+            long current;
+            long remaining;
+            do {
+                current = balance.get();
+                if (current < debit) {
+                    throw new IllegalArgumentException("Insufficient funds");
+                }
+                remaining = current - debit;
+            } while (!balance.compareAndSet(current, remaining));
+
+            long seq;
+            try {
+                seq = journal.append(PaymentJournal.EventType.DEBIT, username, debit);
+            } catch (RuntimeException e) {
+                balance.addAndGet(debit);
+                throw e;
+            }
+            return journal.durable(seq)
+                    .onErrorResume(e -> {
+                        refund(username, balance, debit);
+                        return Mono.error(e);
+                    })
+                    .thenReturn("Payment successful! Remaining balance: " + MinorUnits.toAmount(remaining));
+        });
+    }
+
+    private void refund(String username, AtomicLong balance, long debit) {
+        balance.addAndGet(debit);
+        try {
+            journal.append(PaymentJournal.EventType.CREDIT, username, debit);
+        } catch (RuntimeException e) {
+            log.error("Failed to journal the refund of {} to {}, a restart may replay the debit", debit, username, e);
         }
     }
-}
\ No newline at end of file
+
+    private AtomicLong account(String username) {
+        return userBalances.computeIfAbsent(username, key -> {
+            journal.append(PaymentJournal.EventType.CREDIT, key, initialBalance);
+            return new AtomicLong(initialBalance);
+        });
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.payments.services;
+
+import com.example.payments.config.IdempotencyProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency keys shared by every payments instance through Redis, so a retry that lands on another
+ * instance is not charged again. The first request claims the key with {@code SET key amount NX PX ttl}
+ * and replaces the claim with {@code amount|outcome|message} once the payment is settled; a retry that finds
+ * only the claim polls until the outcome is there or {@code in-flight-timeout} has passed.
+ * <p>
+ * Declines are replayed as declines. Any other failure is replayed as an {@link IllegalStateException}: the
+ * debit may have been applied before it, so the key is not released for another attempt.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "payment.ledger.engine", havingValue = "redis")
+public class RedisIdempotencyRegistry implements IdempotencyRegistry {
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(50);
+
+    static final String SUCCEEDED = "ok";
+    static final String DECLINED = "declined";
+    static final String FAILED = "failed";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final Duration ttl;
+    private final String keyPrefix;
+    private final long polls;
+
+    public RedisIdempotencyRegistry(ReactiveStringRedisTemplate redisTemplate, IdempotencyProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = properties.getTtl();
+        this.keyPrefix = properties.getRedisKeyPrefix();
+        this.polls = Math.max(1, properties.getInFlightTimeout().toMillis() / POLL_INTERVAL.toMillis());
+    }
+
+    @Override
+    public Mono<String> execute(String clientId, String key, long amount, Supplier<Mono<String>> payment) {
+        if (key == null || key.isBlank()) {
+            return payment.get();
+        }
+        String redisKey = keyPrefix + clientId + ":" + key;
+        String claim = Long.toString(amount);
+        // empty while another request holds the claim; a claim that expired is taken over on the next attempt
+        return redisTemplate.opsForValue().setIfAbsent(redisKey, claim, ttl)
+                .flatMap(claimed -> claimed ? charge(redisKey, claim, payment) : replay(redisKey, key, amount))
+                .repeatWhenEmpty(attempts -> attempts.take(polls).delayElements(POLL_INTERVAL))
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException(
+                        "A payment with idempotency key " + key + " is still in progress")));
+    }
+
+    private Mono<String> charge(String redisKey, String claim, Supplier<Mono<String>> payment) {
+        return Mono.defer(payment)
+                .onErrorResume(e -> settle(redisKey, claim, e instanceof IllegalArgumentException ? DECLINED : FAILED,
+                        String.valueOf(e.getMessage())).then(Mono.error(e)))
+                .flatMap(message -> settle(redisKey, claim, SUCCEEDED, message).thenReturn(message));
+    }
+
+    private Mono<Boolean> settle(String redisKey, String claim, String outcome, String message) {
+        return redisTemplate.opsForValue().set(redisKey, claim + "|" + outcome + "|" + message, ttl);
+    }
+
+    private Mono<String> replay(String redisKey, String key, long amount) {
+        return redisTemplate.opsForValue().get(redisKey)
+                .flatMap(stored -> {
+                    String[] fields = stored.split("\\|", 3);
+                    if (Long.parseLong(fields[0]) != amount) {
+                        return Mono.error(new IllegalStateException(
+                                "Idempotency key " + key + " was already used for a different amount"));
+                    }
+                    if (fields.length < 3) {
+                        return Mono.empty();
+                    }
+                    return switch (fields[1]) {
+                        case SUCCEEDED -> Mono.just(fields[2]);
+                        case DECLINED -> Mono.error(new IllegalArgumentException(fields[2]));
+                        default -> Mono.error(new IllegalStateException(
+                                "The payment with idempotency key " + key + " failed: " + fields[2]));
+                    };
+                });
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.payments.services;
+
+import com.example.payments.config.LedgerProperties;
+import com.example.payments.config.PaymentAccountProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Balances live in Redis as kopeck counters, one key per account, so any number of payments instances can
+ * serve the same accounts. Opening an account, the funds check and the debit run in one script, which Redis
+ * executes atomically; the journal is not used, durability is Redis' own (AOF in docker-compose).
+ */
+@Service
+@ConditionalOnProperty(name = "payment.ledger.engine", havingValue = "redis")
+public class RedisLedgerEngine implements LedgerEngine {
+
+    static final RedisScript<Long> DEBIT = RedisScript.of("""
+            local balance = redis.call('GET', KEYS[1])
+            if not balance then
+                balance = ARGV[2]
+                redis.call('SET', KEYS[1], balance)
+            end
+            local amount = tonumber(ARGV[1])
+            if tonumber(balance) < amount then
+                return -1
+            end
+            return redis.call('DECRBY', KEYS[1], amount)
+            """, Long.class);
+
+    static final RedisScript<Long> BALANCE = RedisScript.of("""
+            redis.call('SET', KEYS[1], ARGV[1], 'NX')
+            return tonumber(redis.call('GET', KEYS[1]))
+            """, Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final String keyPrefix;
+    private final String initialBalance;
+
+    public RedisLedgerEngine(ReactiveStringRedisTemplate redisTemplate,
+                             PaymentAccountProperties accountProperties,
+                             LedgerProperties ledgerProperties) {
+        this.redisTemplate = redisTemplate;
+        this.keyPrefix = ledgerProperties.getRedis().getKeyPrefix();
+        this.initialBalance = Long.toString(MinorUnits.of(accountProperties.getInitialBalance()));
+    }
+
+    @Override
+    public Mono<Long> getBalance(String account) {
+        return redisTemplate.execute(BALANCE, List.of(keyPrefix + account), List.of(initialBalance))
+                .next();
+    }
+
+    @Override
+    public Mono<String> processPayment(String account, long amount) {
+        return Mono.defer(() -> redisTemplate.execute(DEBIT, List.of(keyPrefix + account),
+                                List.of(Long.toString(MinorUnits.positive(amount)), initialBalance))
+                        .next())
+                .map(balance -> {
+                    if (balance < 0) {
+                        throw new IllegalArgumentException("Insufficient funds");
+                    }
+                    return "Payment successful! Remaining balance: " + MinorUnits.toAmount(balance);
+                });
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.payments.services;
+
+import com.example.payments.config.LedgerProperties;
+import com.example.payments.config.PaymentAccountProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Accounts are partitioned across shards by account hash. Each shard owns its balances outright and is the
+ * only thread that touches them: callers enqueue commands on the shard's lock-free queue and get the outcome
+ * asynchronously. A shard drains up to {@code batch-size} commands at a time, applies them in order and then
+ * waits for the journal once for the whole batch, so hot accounts cost no CAS retries and one fsync wait
+ * covers many payments. If the journal fails to make a batch durable, its debits are credited back on the shard
+ * before the payments fail, as in {@link PaymentService}.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "payment.ledger.engine", havingValue = "sharded")
+public class ShardedLedgerEngine implements LedgerEngine {
+
+    private final Shard[] shards;
+    private final long initialBalance;
+    private final PaymentJournal journal;
+    private final int batchSize;
+
+    public ShardedLedgerEngine(PaymentAccountProperties accountProperties,
+                               LedgerProperties ledgerProperties,
+                               PaymentJournal journal) {
+        this.initialBalance = MinorUnits.of(accountProperties.getInitialBalance());
+        this.journal = journal;
+        this.batchSize = ledgerProperties.getSharded().getBatchSize();
+        this.shards = new Shard[ledgerProperties.getSharded().getShards()];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(i);
+        }
+        journal.recover().forEach((account, balance) -> shardOf(account).balances.put(account, balance));
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+        log.info("Sharded ledger started with {} shards", shards.length);
+    }
+
+    @Override
+    public Mono<Long> getBalance(String account) {
+        return Mono.defer(() -> submit(new Command(account, 0, new CompletableFuture<>())))
+                .map(Result::balance);
+    }
+
+    @Override
+    public Mono<String> processPayment(String account, long amount) {
+        return Mono.defer(() -> submit(new Command(account, MinorUnits.positive(amount), new CompletableFuture<>())))
+                .map(result -> "Payment successful! Remaining balance: " + MinorUnits.toAmount(result.balance()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Shard shard : shards) {
+            shard.running = false;
+            LockSupport.unpark(shard.thread);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Mono<Result> submit(Command command) {
+        Shard shard = shardOf(command.account());
+        if (!shard.running) {
+            return Mono.error(new IllegalStateException("Ledger is shutting down"));
+        }
+        shard.queue.offer(command);
+        if (shard.idle) {
+            LockSupport.unpark(shard.thread);
+        }
+        return Mono.fromFuture(command.result());
+    }
+
+    private Shard shardOf(String account) {
+        return shards[Math.floorMod(account.hashCode(), shards.length)];
+    }
+
+    /** {@code debit == 0} is a balance read, a negative debit credits a failed payment back. */
+    private record Command(String account, long debit, CompletableFuture<Result> result) {
+    }
+
+    private record Result(long balance) {
+    }
+
+    private final class Shard implements Runnable {
+
+        private final Queue<Command> queue = new ConcurrentLinkedQueue<>();
+        private final Map<String, Long> balances = new HashMap<>();
+        private final Thread thread;
+        private volatile boolean running = true;
+        private volatile boolean idle;
+
+        Shard(int index) {
+            this.thread = new Thread(this, "ledger-shard-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                List<Command> applied = new ArrayList<>();
+                List<Result> results = new ArrayList<>();
+                long lastSeq = 0;
+                Command command;
+                while (applied.size() < batchSize && (command = queue.poll()) != null) {
+                    try {
+                        long seq = apply(command, results);
+                        lastSeq = Math.max(lastSeq, seq);
+                        applied.add(command);
+                    } catch (RuntimeException e) {
+                        command.result().completeExceptionally(e);
+                    }
+                }
+                if (applied.isEmpty()) {
+                    idle = true;
+                    // a command enqueued after the drain above either is seen here or unparks us
+                    if (queue.isEmpty() && running) {
+                        LockSupport.park(this);
+                    }
+                    idle = false;
+                    continue;
+                }
+                release(applied, results, lastSeq);
+            }
+
+            Command pending;
+            while ((pending = queue.poll()) != null) {
+                pending.result().completeExceptionally(new IllegalStateException("Ledger is shutting down"));
+            }
+        }
+
+        /**
+         * @return the journal sequence number the outcome depends on
+         */
+        private long apply(Command command, List<Result> results) {
+            long seq = 0;
+            Long balance = balances.get(command.account());
+            if (balance == null) {
+                seq = journal.append(PaymentJournal.EventType.CREDIT, command.account(), initialBalance);
+                balance = initialBalance;
+                balances.put(command.account(), balance);
+            }
+            if (command.debit() < 0) {
+                seq = journal.append(PaymentJournal.EventType.CREDIT, command.account(), -command.debit());
+                balance -= command.debit();
+                balances.put(command.account(), balance);
+            } else if (command.debit() > 0) {
+                if (balance < command.debit()) {
+                    throw new IllegalArgumentException("Insufficient funds");
+                }
+                seq = journal.append(PaymentJournal.EventType.DEBIT, command.account(), command.debit());
+                balance -= command.debit();
+                balances.put(command.account(), balance);
+            }
+            results.add(new Result(balance));
+            return seq;
+        }
+
+        private void release(List<Command> commands, List<Result> outcomes, long lastSeq) {
+            journal.durable(lastSeq).subscribe(
+                    null,
+                    e -> commands.forEach(c -> fail(c, e)),
+                    () -> {
+                        for (int i = 0; i < commands.size(); i++) {
+                            commands.get(i).result().complete(outcomes.get(i));
+                        }
+                    });
+        }
+
+        private void fail(Command command, Throwable cause) {
+            if (command.debit() <= 0) {
+                command.result().completeExceptionally(cause);
+                return;
+            }
+            Command refund = new Command(command.account(), -command.debit(), new CompletableFuture<>());
+            refund.result().whenComplete((result, e) -> {
+                if (e != null) {
+                    log.error("Failed to refund {} to {}, a restart may replay the debit",
+                            command.debit(), command.account(), e);
+                }
+                command.result().completeExceptionally(cause);
+            });
+            queue.offer(refund);
+            LockSupport.unpark(thread);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.payments.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LedgerPropertiesTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(ValidationAutoConfiguration.class))
+            .withUserConfiguration(Config.class);
+
+    @Test
+    void defaultsToOneShardPerCore() {
+        contextRunner.run(context -> assertThat(context.getBean(LedgerProperties.class).getSharded().getShards())
+                .isEqualTo(Runtime.getRuntime().availableProcessors()));
+    }
+
+    @Test
+    void rejectsZeroShards() {
+        contextRunner.withPropertyValues("payment.ledger.sharded.shards=0")
+                .run(context -> assertThat(context.getStartupFailure())
+                        .hasStackTraceContaining("payment.ledger.sharded.shards"));
+    }
+
+    @Test
+    void rejectsZeroBatchSize() {
+        contextRunner.withPropertyValues("payment.ledger.sharded.batch-size=0")
+                .run(context -> assertThat(context.getStartupFailure())
+                        .hasStackTraceContaining("payment.ledger.sharded.batchSize"));
+    }
+
+    @Configuration
+    @EnableConfigurationProperties(LedgerProperties.class)
+    static class Config {
+    }
+}
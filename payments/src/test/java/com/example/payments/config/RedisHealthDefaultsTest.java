@@ -0,0 +1,36 @@
+package com.example.payments.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisHealthDefaultsTest {
+
+    private static MockEnvironment postProcess(MockEnvironment environment) {
+        new RedisHealthDefaults().postProcessEnvironment(environment, new SpringApplication());
+        return environment;
+    }
+
+    @Test
+    void redisHealthIsOffForLedgersWithoutRedis() {
+        assertThat(postProcess(new MockEnvironment()).getProperty(RedisHealthDefaults.PROPERTY)).isEqualTo("false");
+        assertThat(postProcess(new MockEnvironment().withProperty("payment.ledger.engine", "sharded"))
+                .getProperty(RedisHealthDefaults.PROPERTY)).isEqualTo("false");
+    }
+
+    @Test
+    void redisHealthIsOnForTheRedisLedger() {
+        assertThat(postProcess(new MockEnvironment().withProperty("payment.ledger.engine", "redis"))
+                .getProperty(RedisHealthDefaults.PROPERTY)).isEqualTo("true");
+    }
+
+    @Test
+    void explicitSettingWins() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty(RedisHealthDefaults.PROPERTY, "true");
+
+        assertThat(postProcess(environment).getProperty(RedisHealthDefaults.PROPERTY)).isEqualTo("true");
+    }
+}
@@ -1,9 +1,17 @@
 package com.example.payments.controllers;
 
+import com.example.payments.api.model.Balance;
+import com.example.payments.api.model.PaymentBatchRequest;
+import com.example.payments.api.model.PaymentCharge;
+import com.example.payments.api.model.PaymentChargeResult;
 import com.example.payments.api.model.PaymentRequest;
 import com.example.payments.api.model.PaymentResponse;
+import com.example.payments.config.IdempotencyProperties;
+import com.example.payments.config.PaymentBatchProperties;
 import com.example.payments.config.SecurityConfig;
-import com.example.payments.services.PaymentService;
+import com.example.payments.services.BatchPaymentService;
+import com.example.payments.services.LocalIdempotencyRegistry;
+import com.example.payments.services.LedgerEngine;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
@@ -13,29 +21,34 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Mono;
 
-import java.math.BigDecimal;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers.csrf;
 import static org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers.mockJwt;
 
 @WebFluxTest(controllers = PaymentController.class)
-@Import(SecurityConfig.class)
+@Import({SecurityConfig.class, LocalIdempotencyRegistry.class, IdempotencyProperties.class,
+        BatchPaymentService.class, PaymentBatchProperties.class})
 class PaymentControllerTest {
 
     @Autowired
     private WebTestClient webTestClient;
 
     @MockitoBean
-    private PaymentService paymentService;
+    private LedgerEngine ledger;
 
     @Test
     void getBalance_returnsOkWithAmount() {
         String clientId = "main-shop-client";
-        BigDecimal balance = new BigDecimal("123.45");
-
-        when(paymentService.getBalance(eq(clientId))).thenReturn(Mono.just(balance));
+        when(ledger.getBalance(eq(clientId))).thenReturn(Mono.just(12_345L));
 
         webTestClient
                 .mutateWith(mockJwt().jwt(jwt -> jwt.subject(clientId).claim("scope", "payments.read")))
@@ -44,8 +57,8 @@ class PaymentControllerTest {
                 .exchange()
                 .expectStatus().isOk()
                 .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
-                .expectBody(BigDecimal.class)
-                .isEqualTo(balance);
+                .expectBody(Balance.class)
+                .isEqualTo(new Balance().amountMinor(12_345L));
     }
 
     @Test
@@ -57,4 +70,152 @@ class PaymentControllerTest {
                 .exchange()
                 .expectStatus().isForbidden();
     }
-}
\ No newline at end of file
+
+    @Test
+    void processPayment_replaysOutcomeForSameIdempotencyKey() {
+        String clientId = "main-shop-client";
+        when(ledger.processPayment(eq(clientId), eq(1_000L))).thenReturn(Mono.just("paid"));
+
+        for (int i = 0; i < 2; i++) {
+            webTestClient
+                    .mutateWith(mockJwt().jwt(jwt -> jwt.subject(clientId).claim("scope", "payments.write")))
+                    .mutateWith(csrf())
+                    .post()
+                    .uri("/payments/pay")
+                    .header("Idempotency-Key", "key-1")
+                    .bodyValue(new PaymentRequest().amountMinor(1_000L))
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(PaymentResponse.class)
+                    .value(response -> assertEquals("paid", response.getMessage()));
+        }
+
+        verify(ledger, times(1)).processPayment(clientId, 1_000L);
+    }
+
+    @Test
+    void processPayment_returnsPaymentRequiredWhenDeclined() {
+        String clientId = "main-shop-client";
+        when(ledger.processPayment(eq(clientId), eq(1_000L)))
+                .thenReturn(Mono.error(new IllegalArgumentException("Insufficient funds")));
+
+        webTestClient
+                .mutateWith(mockJwt().jwt(jwt -> jwt.subject(clientId).claim("scope", "payments.write")))
+                .mutateWith(csrf())
+                .post()
+                .uri("/payments/pay")
+                .bodyValue(new PaymentRequest().amountMinor(1_000L))
+                .exchange()
+                .expectStatus().isEqualTo(402)
+                .expectBody(PaymentResponse.class)
+                .value(response -> assertEquals("Insufficient funds", response.getMessage()));
+    }
+
+    @Test
+    void processPayment_rejectsMissingAmountAsBadRequest() {
+        webTestClient
+                .mutateWith(mockJwt().jwt(jwt -> jwt.subject("main-shop-client").claim("scope", "payments.write")))
+                .mutateWith(csrf())
+                .post()
+                .uri("/payments/pay")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(PaymentResponse.class)
+                .value(response -> assertEquals("Payment amount is required.", response.getMessage()));
+
+        verify(ledger, never()).processPayment(any(), anyLong());
+    }
+
+    private WebTestClient.ResponseSpec postBatch(PaymentBatchRequest batch, MediaType accept) {
+        return webTestClient
+                .mutateWith(mockJwt().jwt(jwt -> jwt.subject("main-shop-client").claim("scope", "payments.write")))
+                .mutateWith(csrf())
+                .post()
+                .uri("/payments/pay/batch")
+                .accept(accept)
+                .bodyValue(batch)
+                .exchange();
+    }
+
+    @Test
+    void processPaymentBatch_settlesChargesIndependently() {
+        when(ledger.processPayment(eq("main-shop-client"), eq(100L))).thenReturn(Mono.just("paid"));
+        when(ledger.processPayment(eq("main-shop-client"), eq(1_000L)))
+                .thenReturn(Mono.error(new IllegalArgumentException("Insufficient funds")));
+
+        List<PaymentChargeResult> results = postBatch(new PaymentBatchRequest().charges(List.of(
+                        new PaymentCharge().id("a").amountMinor(100L),
+                        new PaymentCharge().id("b").amountMinor(1_000L))), MediaType.APPLICATION_JSON)
+                .expectStatus().isOk()
+                .expectBodyList(PaymentChargeResult.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertEquals(List.of(
+                new PaymentChargeResult().id("a").status(PaymentChargeResult.StatusEnum.SUCCESS).message("paid"),
+                new PaymentChargeResult().id("b").status(PaymentChargeResult.StatusEnum.DECLINED).message("Insufficient funds")
+        ), results);
+    }
+
+    @Test
+    void processPaymentBatch_reportsAFailedChargeAndSettlesTheRest() {
+        when(ledger.processPayment(eq("main-shop-client"), eq(100L)))
+                .thenReturn(Mono.error(new IllegalStateException("Journal is closed")));
+        when(ledger.processPayment(eq("main-shop-client"), eq(1_000L))).thenReturn(Mono.just("paid"));
+
+        List<PaymentChargeResult> results = postBatch(new PaymentBatchRequest().charges(List.of(
+                        new PaymentCharge().id("a").amountMinor(100L),
+                        new PaymentCharge().id("b").amountMinor(1_000L))), MediaType.APPLICATION_JSON)
+                .expectStatus().isOk()
+                .expectBodyList(PaymentChargeResult.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertEquals(List.of(
+                new PaymentChargeResult().id("a").status(PaymentChargeResult.StatusEnum.ERROR).message("Payment could not be processed."),
+                new PaymentChargeResult().id("b").status(PaymentChargeResult.StatusEnum.SUCCESS).message("paid")
+        ), results);
+    }
+
+    @Test
+    void processPaymentBatch_atomicBatchIsDebitedOnceAndStreamed() {
+        when(ledger.processPayment(eq("main-shop-client"), eq(1_100L))).thenReturn(Mono.just("paid"));
+
+        List<PaymentChargeResult> results = postBatch(new PaymentBatchRequest().atomic(true).charges(List.of(
+                        new PaymentCharge().id("a").amountMinor(100L),
+                        new PaymentCharge().id("b").amountMinor(1_000L))), MediaType.APPLICATION_NDJSON)
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(PaymentChargeResult.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertEquals(2, results.size());
+        results.forEach(r -> assertEquals(PaymentChargeResult.StatusEnum.SUCCESS, r.getStatus()));
+        verify(ledger, times(1)).processPayment(any(), anyLong());
+    }
+
+    @Test
+    void processPaymentBatch_atomicBatchDeclinesEveryChargeWhenOneIsInvalid() {
+        List<PaymentChargeResult> results = postBatch(new PaymentBatchRequest().atomic(true).charges(List.of(
+                        new PaymentCharge().id("a").amountMinor(100L),
+                        new PaymentCharge().id("b").amountMinor(0L))), MediaType.APPLICATION_JSON)
+                .expectStatus().isOk()
+                .expectBodyList(PaymentChargeResult.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertEquals(2, results.size());
+        results.forEach(r -> assertEquals(PaymentChargeResult.StatusEnum.DECLINED, r.getStatus()));
+        verify(ledger, never()).processPayment(any(), anyLong());
+    }
+
+    @Test
+    void processPaymentBatch_rejectsEmptyBatch() {
+        postBatch(new PaymentBatchRequest().charges(List.of()), MediaType.APPLICATION_JSON)
+                .expectStatus().isBadRequest();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.payments.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingJwtDecoderTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final ReactiveJwtDecoder delegate = mock(ReactiveJwtDecoder.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Clock clock = Clock.fixed(NOW, ZoneOffset.UTC);
+
+    private static Jwt jwt(Instant expiresAt) {
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("main-shop-client")
+                .issuedAt(NOW.minusSeconds(10))
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    @Test
+    void verifiesATokenOnceUntilItExpires() {
+        Jwt jwt = jwt(NOW.plusSeconds(300));
+        when(delegate.decode("token")).thenReturn(Mono.just(jwt));
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 100, meterRegistry, clock);
+
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(decoder.decode("token")).expectNext(jwt).verifyComplete();
+        }
+
+        verify(delegate, times(1)).decode("token");
+        assertEquals(1, meterRegistry.get("payments.jwt.verification").tag("outcome", "accepted").timer().count());
+    }
+
+    @Test
+    void verifiesAgainOnceTheTokenHasExpired() {
+        Jwt jwt = jwt(NOW.plusSeconds(300));
+        when(delegate.decode("token")).thenReturn(Mono.just(jwt));
+        MutableClock mutableClock = new MutableClock(NOW);
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 100, meterRegistry, mutableClock);
+
+        StepVerifier.create(decoder.decode("token")).expectNext(jwt).verifyComplete();
+        mutableClock.now = NOW.plusSeconds(301);
+        when(delegate.decode("token")).thenReturn(Mono.error(new BadJwtException("expired")));
+
+        StepVerifier.create(decoder.decode("token")).expectError(BadJwtException.class).verify();
+        verify(delegate, times(2)).decode("token");
+    }
+
+    @Test
+    void doesNotCacheRejectedTokens() {
+        when(delegate.decode("token")).thenReturn(Mono.error(new BadJwtException("bad signature")));
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 100, meterRegistry, clock);
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(decoder.decode("token")).expectError(BadJwtException.class).verify();
+        }
+
+        verify(delegate, times(2)).decode("token");
+        assertEquals(2, meterRegistry.get("payments.jwt.verification").tag("outcome", "rejected").timer().count());
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
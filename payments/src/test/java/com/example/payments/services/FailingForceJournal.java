@@ -0,0 +1,46 @@
+package com.example.payments.services;
+
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records appended events in memory and fails the first durable wait the way a failed force does, so
+ * events appended after that failure are durable again.
+ */
+final class FailingForceJournal implements PaymentJournal {
+
+    record Event(EventType type, String account, long amount) {
+    }
+
+    private final List<Event> events = new CopyOnWriteArrayList<>();
+    private volatile boolean failed;
+
+    List<Event> events() {
+        return events;
+    }
+
+    @Override
+    public Map<String, Long> recover() {
+        return Map.of();
+    }
+
+    @Override
+    public long append(EventType type, String account, long amount) {
+        events.add(new Event(type, account, amount));
+        return events.size();
+    }
+
+    @Override
+    public Mono<Void> durable(long seq) {
+        if (failed) {
+            return Mono.empty();
+        }
+        failed = true;
+        return Mono.error(new UncheckedIOException(new IOException("force failed")));
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.payments.services;
+
+import com.example.payments.config.JwtVerificationProperties;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.OAuth2ResourceServerProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JwkSetCacheTest {
+
+    private final AtomicReference<JWKSet> published = new AtomicReference<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JwkSetCache cache;
+
+    @AfterEach
+    void stop() {
+        cache.stop();
+    }
+
+    private JwkSetCache cache(boolean prewarm) {
+        WebClient.Builder webClient = WebClient.builder().exchangeFunction(request -> {
+            requests.incrementAndGet();
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(published.get().toString())
+                    .build());
+        });
+        OAuth2ResourceServerProperties resourceServer = new OAuth2ResourceServerProperties();
+        resourceServer.getJwt().setJwkSetUri("http://auth-server/oauth2/jwks");
+        JwtVerificationProperties properties = new JwtVerificationProperties();
+        properties.setPrewarmJwks(prewarm);
+        properties.setJwksMinRefreshInterval(Duration.ofHours(1));
+        cache = new JwkSetCache(webClient, resourceServer, properties, meterRegistry);
+        cache.prewarm();
+        return cache;
+    }
+
+    private static RSAKey key(String kid) throws JOSEException {
+        return new RSAKeyGenerator(2048).keyID(kid).generate();
+    }
+
+    private static SignedJWT token(RSAKey key) throws JOSEException {
+        SignedJWT jwt = new SignedJWT(
+                new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(),
+                new JWTClaimsSet.Builder()
+                        .subject("main-shop-client")
+                        .issueTime(new Date())
+                        .expirationTime(Date.from(Instant.now().plusSeconds(300)))
+                        .build());
+        jwt.sign(new RSASSASigner(key));
+        return jwt;
+    }
+
+    @Test
+    void fetchesKeysAtStartupSoTheFirstTokenNeedsNoRoundTrip() throws JOSEException {
+        RSAKey key = key("k1");
+        published.set(new JWKSet(key.toPublicJWK()));
+        JwkSetCache cache = cache(true);
+        assertEquals(1, requests.get());
+
+        NimbusReactiveJwtDecoder decoder = NimbusReactiveJwtDecoder.withJwkSource(cache::select).build();
+        StepVerifier.create(decoder.decode(token(key).serialize()))
+                .assertNext(jwt -> assertEquals("main-shop-client", jwt.getSubject()))
+                .verifyComplete();
+
+        assertEquals(1, requests.get());
+        assertEquals(1, meterRegistry.get("payments.jwt.jwks.fetches").tag("trigger", "startup").counter().count());
+    }
+
+    @Test
+    void refetchesOnceWhenATokenNamesAnUnknownKey() throws JOSEException {
+        published.set(new JWKSet(key("k1").toPublicJWK()));
+        JwkSetCache cache = cache(true);
+
+        RSAKey rotated = key("k2");
+        published.set(new JWKSet(rotated.toPublicJWK()));
+        StepVerifier.create(cache.select(token(rotated)))
+                .expectNextMatches(jwk -> jwk.getKeyID().equals("k2"))
+                .verifyComplete();
+
+        // a key the server does not publish either must not hammer it
+        SignedJWT forged = token(key("k3"));
+        StepVerifier.create(cache.select(forged)).verifyComplete();
+        StepVerifier.create(cache.select(forged)).verifyComplete();
+
+        assertEquals(2, requests.get());
+        assertEquals(1, meterRegistry.get("payments.jwt.jwks.fetches").tag("trigger", "unknown-key").counter().count());
+    }
+
+    @Test
+    void fetchesLazilyWhenPrewarmIsDisabled() throws JOSEException {
+        RSAKey key = key("k1");
+        published.set(new JWKSet(key.toPublicJWK()));
+        JwkSetCache cache = cache(false);
+        assertEquals(0, requests.get());
+
+        StepVerifier.create(cache.select(token(key)))
+                .expectNextCount(1)
+                .verifyComplete();
+        assertEquals(1, requests.get());
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.payments.services;
+
+import com.example.payments.config.LedgerProperties;
+import com.example.payments.config.PaymentAccountProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the ledger engines under the same load: bursts of concurrent one-kopeck payments over a few
+ * hot accounts. The redis engine runs against a redis-server started from the embedded-redis binary, or
+ * against {@code -Dledger.benchmark.redis=host:port}, e.g. the docker-compose one.
+ * Run with {@code mvn -pl payments test-compile} and then this class's {@code main} on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LedgerBenchmark {
+
+    private static final int ACCOUNTS = 16;
+    private static final int CONCURRENCY = 256;
+
+    @Param({"map", "sharded", "redis"})
+    String engine;
+
+    private final List<AutoCloseable> resources = new ArrayList<>();
+    private LedgerEngine ledger;
+    private int burst;
+
+    @Setup
+    public void setUp() throws IOException {
+        PaymentAccountProperties account = new PaymentAccountProperties();
+        // never runs out during a run, declines are not what is measured here
+        account.setInitialBalance(new BigDecimal("1000000000.00"));
+        LedgerProperties properties = new LedgerProperties();
+        properties.getSharded().setShards(4);
+        properties.getRedis().setKeyPrefix("benchmark:" + UUID.randomUUID() + ":");
+
+        ledger = switch (engine) {
+            case "map" -> new PaymentService(account);
+            case "sharded" -> {
+                ShardedLedgerEngine sharded = new ShardedLedgerEngine(account, properties, new NoopPaymentJournal());
+                resources.add(sharded::shutdown);
+                yield sharded;
+            }
+            case "redis" -> new RedisLedgerEngine(redisTemplate(), account, properties);
+            default -> throw new IllegalArgumentException("Unknown engine " + engine);
+        };
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        for (AutoCloseable resource : resources) {
+            resource.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENCY)
+    public Long payments() {
+        int first = burst++ * CONCURRENCY;
+        return Flux.range(first, CONCURRENCY)
+                .flatMap(i -> ledger.processPayment("account-" + i % ACCOUNTS, 1L)
+                        .subscribeOn(Schedulers.parallel()), CONCURRENCY)
+                .count()
+                .block();
+    }
+
+    private ReactiveStringRedisTemplate redisTemplate() throws IOException {
+        String address = System.getProperty("ledger.benchmark.redis");
+        if (address == null) {
+            LocalRedis redis = LocalRedis.start();
+            resources.add(redis);
+            return redis.template();
+        }
+        String[] hostAndPort = address.split(":");
+        LettuceConnectionFactory connectionFactory =
+                new LettuceConnectionFactory(hostAndPort[0], Integer.parseInt(hostAndPort[1]));
+        connectionFactory.afterPropertiesSet();
+        resources.add(connectionFactory::destroy);
+        return new ReactiveStringRedisTemplate(connectionFactory);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LedgerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
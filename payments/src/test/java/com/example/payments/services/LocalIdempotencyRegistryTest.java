@@ -0,0 +1,137 @@
+package com.example.payments.services;
+
+import com.example.payments.config.IdempotencyProperties;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LocalIdempotencyRegistryTest {
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private Mono<String> charge() {
+        return Mono.fromSupplier(() -> "payment " + executions.incrementAndGet());
+    }
+
+    private static LocalIdempotencyRegistry registry(Clock clock) {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setTtl(Duration.ofMinutes(1));
+        return new LocalIdempotencyRegistry(properties, clock);
+    }
+
+    @Test
+    void sameKeyReplaysFirstOutcome() {
+        LocalIdempotencyRegistry registry = registry(Clock.systemUTC());
+
+        StepVerifier.create(registry.execute("client", "k1", 1_000L, this::charge))
+                .expectNext("payment 1")
+                .verifyComplete();
+        StepVerifier.create(registry.execute("client", "k1", 1_000L, this::charge))
+                .expectNext("payment 1")
+                .verifyComplete();
+
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void keysAreScopedPerClientAndMissingKeyIsNotRemembered() {
+        LocalIdempotencyRegistry registry = registry(Clock.systemUTC());
+
+        registry.execute("a", "k1", 1_000L, this::charge).block();
+        registry.execute("b", "k1", 1_000L, this::charge).block();
+        registry.execute("a", null, 1_000L, this::charge).block();
+        registry.execute("a", null, 1_000L, this::charge).block();
+
+        assertEquals(4, executions.get());
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    void declineIsReplayedToo() {
+        LocalIdempotencyRegistry registry = registry(Clock.systemUTC());
+        AtomicInteger attempts = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(registry.execute("client", "k1", 1_000L, () -> {
+                        attempts.incrementAndGet();
+                        return Mono.error(new IllegalArgumentException("Insufficient funds"));
+                    }))
+                    .expectError(IllegalArgumentException.class)
+                    .verify();
+        }
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void failureIsForgottenSoTheKeyCanBeRetried() {
+        LocalIdempotencyRegistry registry = registry(Clock.systemUTC());
+
+        StepVerifier.create(registry.execute("client", "k1", 1_000L, () -> Mono.error(new RuntimeException("timeout"))))
+                .expectErrorMessage("timeout")
+                .verify();
+        assertEquals(0, registry.size());
+
+        StepVerifier.create(registry.execute("client", "k1", 1_000L, this::charge))
+                .expectNext("payment 1")
+                .verifyComplete();
+        StepVerifier.create(registry.execute("client", "k1", 1_000L, this::charge))
+                .expectNext("payment 1")
+                .verifyComplete();
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void rejectsReuseWithDifferentAmount() {
+        LocalIdempotencyRegistry registry = registry(Clock.systemUTC());
+        registry.execute("client", "k1", 1_000L, this::charge).block();
+
+        StepVerifier.create(registry.execute("client", "k1", 100L, this::charge))
+                .expectError(IllegalStateException.class)
+                .verify();
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void expiredKeyExecutesAgain() {
+        MutableClock clock = new MutableClock();
+        LocalIdempotencyRegistry registry = registry(clock);
+
+        registry.execute("client", "k1", 1_000L, this::charge).block();
+        clock.advance(Duration.ofMinutes(2));
+        StepVerifier.create(registry.execute("client", "k1", 1_000L, this::charge))
+                .expectNext("payment 2")
+                .verifyComplete();
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.payments.services;
+
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+/**
+ * A redis-server from the embedded-redis binary on a free port, so scripts are executed by Redis itself.
+ */
+final class LocalRedis implements AutoCloseable {
+
+    private final RedisServer server;
+    private final LettuceConnectionFactory connectionFactory;
+    private final ReactiveStringRedisTemplate template;
+
+    private LocalRedis(RedisServer server, LettuceConnectionFactory connectionFactory) {
+        this.server = server;
+        this.connectionFactory = connectionFactory;
+        this.template = new ReactiveStringRedisTemplate(connectionFactory);
+    }
+
+    static LocalRedis start() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        RedisServer server = new RedisServer(port);
+        server.start();
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        return new LocalRedis(server, connectionFactory);
+    }
+
+    ReactiveStringRedisTemplate template() {
+        return template;
+    }
+
+    void flushAll() {
+        template.execute(connection -> connection.serverCommands().flushAll()).blockLast();
+    }
+
+    @Override
+    public void close() throws IOException {
+        connectionFactory.destroy();
+        server.stop();
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.payments.services;
+
+import com.example.payments.config.PaymentAccountProperties;
+import com.example.payments.config.PaymentJournalProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static com.example.payments.services.PaymentJournal.EventType.CREDIT;
+import static com.example.payments.services.PaymentJournal.EventType.DEBIT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedPaymentJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<MappedPaymentJournal> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeAll() {
+        opened.forEach(MappedPaymentJournal::close);
+    }
+
+    private MappedPaymentJournal journal(DataSize segmentSize, Duration snapshotInterval) {
+        PaymentJournalProperties properties = new PaymentJournalProperties();
+        properties.setDirectory(dir);
+        properties.setSegmentSize(segmentSize);
+        properties.setSyncInterval(Duration.ofMillis(1));
+        properties.setSnapshotInterval(snapshotInterval);
+        MappedPaymentJournal journal = new MappedPaymentJournal(properties);
+        opened.add(journal);
+        return journal;
+    }
+
+    private MappedPaymentJournal journal() {
+        return journal(DataSize.ofKilobytes(64), Duration.ofHours(1));
+    }
+
+    /** Leaves the journal as a killed process would: synced, but without the final snapshot of a clean close. */
+    private void crash(MappedPaymentJournal journal) {
+        journal.sync();
+        opened.remove(journal);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().startsWith("journal-")).sorted().toList();
+        }
+    }
+
+    @Test
+    void recoversBalancesAfterCrash() {
+        MappedPaymentJournal first = journal();
+        first.recover();
+        first.append(CREDIT, "a", 10_000);
+        first.append(DEBIT, "a", 1);
+        crash(first);
+
+        assertEquals(Map.of("a", 9_999L), journal().recover());
+    }
+
+    @Test
+    void recoversBalancesAfterRestart() {
+        MappedPaymentJournal first = journal();
+        assertTrue(first.recover().isEmpty());
+        first.append(CREDIT, "a", 10_000);
+        first.append(CREDIT, "b", 10_000);
+        first.append(DEBIT, "a", 2_550);
+        first.close();
+
+        Map<String, Long> balances = journal().recover();
+
+        assertEquals(Map.of("a", 7_450L, "b", 10_000L), balances);
+    }
+
+    @Test
+    void durableCompletesAfterGroupSync() {
+        MappedPaymentJournal journal = journal();
+        journal.recover();
+        long seq = journal.append(CREDIT, "a", 100);
+
+        StepVerifier.create(journal.durable(seq))
+                .expectComplete()
+                .verify(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void durableReleasesPaymentsOffTheSyncThread() {
+        MappedPaymentJournal journal = journal();
+        journal.recover();
+        long seq = journal.append(CREDIT, "a", 100);
+
+        StepVerifier.create(journal.durable(seq).then(Mono.fromCallable(() -> Thread.currentThread().getName())))
+                .assertNext(thread -> assertNotEquals("payment-journal-sync", thread))
+                .verifyComplete();
+    }
+
+    @Test
+    void stopsReplayAtTornTailAndAppendsFromThere() throws IOException {
+        MappedPaymentJournal first = journal();
+        first.recover();
+        first.append(CREDIT, "a", 10_000);
+        first.append(DEBIT, "a", 1_000);
+        crash(first);
+
+        // corrupt a byte in the payload of the second record
+        Path segment = segments().get(0);
+        int firstRecord = 8 + 8 + 1 + 8 + 2 + 1;
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(firstRecord + 8 + 9);
+            file.write(0x7f);
+        }
+
+        MappedPaymentJournal second = journal();
+        assertEquals(Map.of("a", 10_000L), second.recover());
+        second.append(DEBIT, "a", 500);
+        crash(second);
+
+        assertEquals(Map.of("a", 9_500L), journal().recover());
+    }
+
+    @Test
+    void rollsOverSegments() throws IOException {
+        MappedPaymentJournal first = journal(DataSize.ofBytes(128), Duration.ofHours(1));
+        first.recover();
+        first.append(CREDIT, "account", 1_000_000);
+        for (int i = 0; i < 50; i++) {
+            first.append(DEBIT, "account", 1);
+        }
+        crash(first);
+
+        assertTrue(segments().size() > 1);
+        assertEquals(Map.of("account", 999_950L), journal(DataSize.ofBytes(128), Duration.ofHours(1)).recover());
+    }
+
+    @Test
+    void snapshotCompactsCoveredSegments() throws Exception {
+        MappedPaymentJournal first = journal(DataSize.ofBytes(128), Duration.ofHours(1));
+        first.recover();
+        first.append(CREDIT, "account", 1_000_000);
+        for (int i = 0; i < 50; i++) {
+            first.append(DEBIT, "account", 1);
+        }
+        first.sync();
+        int before = segments().size();
+        first.snapshot();
+
+        assertTrue(Files.exists(dir.resolve("snapshot.bin")));
+        assertTrue(segments().size() < before);
+
+        first.append(DEBIT, "account", 50);
+        first.close();
+        assertEquals(Map.of("account", 999_900L), journal(DataSize.ofBytes(128), Duration.ofHours(1)).recover());
+    }
+
+    @Test
+    void paymentServiceKeepsBalancesAcrossRestarts() {
+        PaymentAccountProperties account = new PaymentAccountProperties();
+        account.setInitialBalance(new BigDecimal("100.00"));
+
+        PaymentService first = new PaymentService(account, journal());
+        StepVerifier.create(first.processPayment("shop", 1_234L))
+                .expectNext("Payment successful! Remaining balance: 87.66")
+                .verifyComplete();
+        opened.get(0).close();
+
+        PaymentService second = new PaymentService(account, journal());
+        StepVerifier.create(second.getBalance("shop"))
+                .expectNext(8_766L)
+                .verifyComplete();
+    }
+}
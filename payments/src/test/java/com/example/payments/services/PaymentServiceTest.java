@@ -6,6 +6,15 @@ import org.junit.jupiter.api.Test;
 import reactor.test.StepVerifier;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class PaymentServiceTest {
 
@@ -23,56 +32,56 @@ class PaymentServiceTest {
     @Test
     void getBalance_returnsInitialBalanceForNewUser() {
         StepVerifier.create(paymentService.getBalance(TEST_USERNAME))
-                .expectNext(new BigDecimal("100.00"))
+                .expectNext(10_000L)
                 .verifyComplete();
     }
 
     @Test
     void processPayment_successful() {
-        StepVerifier.create(paymentService.processPayment(TEST_USERNAME, new BigDecimal("40.00")))
+        StepVerifier.create(paymentService.processPayment(TEST_USERNAME, 4_000L))
                 .expectNext("Payment successful! Remaining balance: 60.00")
                 .verifyComplete();
 
         StepVerifier.create(paymentService.getBalance(TEST_USERNAME))
-                .expectNext(new BigDecimal("60.00"))
+                .expectNext(6_000L)
                 .verifyComplete();
     }
 
     @Test
     void processPayment_insufficientFunds() {
-        StepVerifier.create(paymentService.processPayment(TEST_USERNAME, new BigDecimal("150.00")))
+        StepVerifier.create(paymentService.processPayment(TEST_USERNAME, 15_000L))
                 .expectErrorMatches(throwable ->
                         throwable instanceof IllegalArgumentException &&
                                 throwable.getMessage().equals("Insufficient funds"))
                 .verify();
 
         StepVerifier.create(paymentService.getBalance(TEST_USERNAME))
-                .expectNext(new BigDecimal("100.00"))
+                .expectNext(10_000L)
                 .verifyComplete();
     }
 
     @Test
     void processPayment_handlesMultipleUsersIndependently() {
-        StepVerifier.create(paymentService.processPayment(TEST_USERNAME, new BigDecimal("20.00")))
+        StepVerifier.create(paymentService.processPayment(TEST_USERNAME, 2_000L))
                 .expectNext("Payment successful! Remaining balance: 80.00")
                 .verifyComplete();
 
-        StepVerifier.create(paymentService.processPayment(ANOTHER_USERNAME, new BigDecimal("50.00")))
+        StepVerifier.create(paymentService.processPayment(ANOTHER_USERNAME, 5_000L))
                 .expectNext("Payment successful! Remaining balance: 50.00")
                 .verifyComplete();
 
         StepVerifier.create(paymentService.getBalance(TEST_USERNAME))
-                .expectNext(new BigDecimal("80.00"))
+                .expectNext(8_000L)
                 .verifyComplete();
 
         StepVerifier.create(paymentService.getBalance(ANOTHER_USERNAME))
-                .expectNext(new BigDecimal("50.00"))
+                .expectNext(5_000L)
                 .verifyComplete();
     }
 
     @Test
     void processPayment_withZeroAmount() {
-        StepVerifier.create(paymentService.processPayment(TEST_USERNAME, BigDecimal.ZERO))
+        StepVerifier.create(paymentService.processPayment(TEST_USERNAME, 0L))
                 .expectErrorMatches(throwable ->
                         throwable instanceof IllegalArgumentException &&
                                 throwable.getMessage().equals("Payment amount must be positive."))
@@ -81,10 +90,108 @@ class PaymentServiceTest {
 
     @Test
     void processPayment_withNegativeAmount() {
-        StepVerifier.create(paymentService.processPayment(TEST_USERNAME, new BigDecimal("-10.00")))
+        StepVerifier.create(paymentService.processPayment(TEST_USERNAME, -1_000L))
                 .expectErrorMatches(throwable ->
                         throwable instanceof IllegalArgumentException &&
                                 throwable.getMessage().equals("Payment amount must be positive."))
                 .verify();
     }
+
+    @Test
+    void processPayment_concurrentDebitsNeverOverdrawOrGetLost() throws Exception {
+        int threads = 64;
+        int paymentsPerThread = 500;
+        long amount = 1;
+        // 100.00 covers exactly 10 000 of the 32 000 payments
+        long affordable = 10_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                int succeeded = 0;
+                for (int i = 0; i < paymentsPerThread; i++) {
+                    boolean paid = paymentService.processPayment(TEST_USERNAME, amount)
+                            .map(message -> true)
+                            .onErrorReturn(IllegalArgumentException.class, false)
+                            .block();
+                    if (paid) {
+                        succeeded++;
+                    }
+                }
+                return succeeded;
+            }));
+        }
+        start.countDown();
+
+        long succeeded = 0;
+        for (Future<Integer> result : results) {
+            succeeded += result.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(affordable, succeeded);
+        StepVerifier.create(paymentService.getBalance(TEST_USERNAME))
+                .expectNext(0L)
+                .verifyComplete();
+    }
+
+    @Test
+    void processPayment_concurrentDebitsAreAllApplied() throws Exception {
+        PaymentAccountProperties props = new PaymentAccountProperties();
+        props.setInitialBalance(new BigDecimal("1000000.00"));
+        PaymentService richService = new PaymentService(props);
+
+        int threads = 32;
+        int paymentsPerThread = 1_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < paymentsPerThread; i++) {
+                    richService.processPayment(TEST_USERNAME, 123L).block();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // 1 000 000.00 - 32 000 * 1.23
+        StepVerifier.create(richService.getBalance(TEST_USERNAME))
+                .expectNext(96_064_000L)
+                .verifyComplete();
+    }
+
+    @Test
+    void processPayment_failedForceCreditsTheDebitBack() {
+        PaymentAccountProperties props = new PaymentAccountProperties();
+        props.setInitialBalance(new BigDecimal("100.00"));
+        FailingForceJournal journal = new FailingForceJournal();
+        PaymentService service = new PaymentService(props, journal);
+
+        StepVerifier.create(service.processPayment(TEST_USERNAME, 4_000L))
+                .expectErrorMessage("java.io.IOException: force failed")
+                .verify();
+
+        StepVerifier.create(service.getBalance(TEST_USERNAME))
+                .expectNext(10_000L)
+                .verifyComplete();
+        assertEquals(List.of(
+                new FailingForceJournal.Event(PaymentJournal.EventType.CREDIT, TEST_USERNAME, 10_000L),
+                new FailingForceJournal.Event(PaymentJournal.EventType.DEBIT, TEST_USERNAME, 4_000L),
+                new FailingForceJournal.Event(PaymentJournal.EventType.CREDIT, TEST_USERNAME, 4_000L)
+        ), journal.events());
+
+        StepVerifier.create(service.processPayment(TEST_USERNAME, 4_000L))
+                .expectNext("Payment successful! Remaining balance: 60.00")
+                .verifyComplete();
+    }
 }
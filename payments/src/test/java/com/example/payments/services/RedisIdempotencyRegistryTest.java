@@ -0,0 +1,149 @@
+package com.example.payments.services;
+
+import com.example.payments.config.IdempotencyProperties;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RedisIdempotencyRegistryTest {
+
+    private static LocalRedis redis;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redis = LocalRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        redis.close();
+    }
+
+    @BeforeEach
+    void flush() {
+        redis.flushAll();
+    }
+
+    private Mono<String> charge() {
+        return Mono.fromSupplier(() -> "payment " + executions.incrementAndGet());
+    }
+
+    private static RedisIdempotencyRegistry registry(Duration inFlightTimeout) {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setTtl(Duration.ofMinutes(1));
+        properties.setInFlightTimeout(inFlightTimeout);
+        return new RedisIdempotencyRegistry(redis.template(), properties);
+    }
+
+    @Test
+    void retryOnAnotherInstanceReplaysFirstOutcome() {
+        RedisIdempotencyRegistry first = registry(Duration.ofSeconds(5));
+        RedisIdempotencyRegistry second = registry(Duration.ofSeconds(5));
+
+        StepVerifier.create(first.execute("client", "k1", 1_000L, this::charge))
+                .expectNext("payment 1")
+                .verifyComplete();
+        StepVerifier.create(second.execute("client", "k1", 1_000L, this::charge))
+                .expectNext("payment 1")
+                .verifyComplete();
+
+        assertEquals(1, executions.get());
+        assertEquals("1000|ok|payment 1", redis.template().opsForValue().get("payments:idempotency:client:k1").block());
+    }
+
+    @Test
+    void concurrentRetriesAcrossInstancesChargeOnce() {
+        List<RedisIdempotencyRegistry> instances = List.of(registry(Duration.ofSeconds(5)), registry(Duration.ofSeconds(5)));
+        Supplier<Mono<String>> slowCharge = () -> charge().delayElement(Duration.ofMillis(200));
+
+        List<String> outcomes = Flux.range(0, 8)
+                .flatMap(i -> instances.get(i % 2).execute("client", "k1", 1_000L, slowCharge)
+                        .subscribeOn(Schedulers.parallel()))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(1, executions.get());
+        assertEquals(8, outcomes.stream().filter("payment 1"::equals).count());
+    }
+
+    @Test
+    void declineIsReplayedToo() {
+        RedisIdempotencyRegistry registry = registry(Duration.ofSeconds(5));
+        AtomicInteger attempts = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(registry.execute("client", "k1", 1_000L, () -> {
+                        attempts.incrementAndGet();
+                        return Mono.error(new IllegalArgumentException("Insufficient funds"));
+                    }))
+                    .expectErrorSatisfies(e -> {
+                        assertEquals(IllegalArgumentException.class, e.getClass());
+                        assertEquals("Insufficient funds", e.getMessage());
+                    })
+                    .verify();
+        }
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void failureIsNotChargedAgain() {
+        RedisIdempotencyRegistry registry = registry(Duration.ofSeconds(5));
+
+        StepVerifier.create(registry.execute("client", "k1", 1_000L, () -> Mono.error(new RuntimeException("timeout"))))
+                .expectErrorMessage("timeout")
+                .verify();
+        StepVerifier.create(registry.execute("client", "k1", 1_000L, this::charge))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void rejectsReuseWithDifferentAmount() {
+        RedisIdempotencyRegistry registry = registry(Duration.ofSeconds(5));
+        registry.execute("client", "k1", 1_000L, this::charge).block();
+
+        StepVerifier.create(registry.execute("client", "k1", 100L, this::charge))
+                .expectErrorMessage("Idempotency key k1 was already used for a different amount")
+                .verify();
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void claimWithoutOutcomeTimesOut() {
+        redis.template().opsForValue().set("payments:idempotency:client:k1", "1000").block();
+
+        StepVerifier.create(registry(Duration.ofMillis(200)).execute("client", "k1", 1_000L, this::charge))
+                .expectErrorMessage("A payment with idempotency key k1 is still in progress")
+                .verify();
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void missingKeyIsNotRemembered() {
+        RedisIdempotencyRegistry registry = registry(Duration.ofSeconds(5));
+
+        registry.execute("client", null, 1_000L, this::charge).block();
+        registry.execute("client", " ", 1_000L, this::charge).block();
+
+        assertEquals(2, executions.get());
+        assertEquals(0L, redis.template().keys("payments:idempotency:*").count().block());
+    }
+}
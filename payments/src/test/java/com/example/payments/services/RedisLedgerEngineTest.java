@@ -0,0 +1,121 @@
+package com.example.payments.services;
+
+import com.example.payments.config.LedgerProperties;
+import com.example.payments.config.PaymentAccountProperties;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RedisLedgerEngineTest {
+
+    private static LocalRedis redis;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redis = LocalRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        redis.close();
+    }
+
+    @BeforeEach
+    void flush() {
+        redis.flushAll();
+    }
+
+    private static RedisLedgerEngine engine(ReactiveStringRedisTemplate template) {
+        PaymentAccountProperties account = new PaymentAccountProperties();
+        account.setInitialBalance(new BigDecimal("100.00"));
+        return new RedisLedgerEngine(template, account, new LedgerProperties());
+    }
+
+    @Test
+    void passesKopecksAndInitialBalanceToTheScript() {
+        ReactiveStringRedisTemplate template = mock(ReactiveStringRedisTemplate.class);
+        when(template.execute(eq(RedisLedgerEngine.DEBIT), anyList(), anyList())).thenReturn(Flux.just(8_766L));
+
+        StepVerifier.create(engine(template).processPayment("shop", 1_234L))
+                .expectNext("Payment successful! Remaining balance: 87.66")
+                .verifyComplete();
+        verify(template).execute(RedisLedgerEngine.DEBIT, List.of("payments:balance:shop"), List.of("1234", "10000"));
+    }
+
+    @Test
+    void rejectsNonPositiveAmountsWithoutCallingRedis() {
+        ReactiveStringRedisTemplate template = mock(ReactiveStringRedisTemplate.class);
+
+        StepVerifier.create(engine(template).processPayment("shop", -100L))
+                .expectErrorMessage("Payment amount must be positive.")
+                .verify();
+        StepVerifier.create(engine(template).processPayment("shop", 0L))
+                .expectErrorMessage("Payment amount must be positive.")
+                .verify();
+        verify(template, never()).execute(any(), anyList(), anyList());
+    }
+
+    @Test
+    void declinesLikeTheOtherLedgers() {
+        RedisLedgerEngine engine = engine(redis.template());
+
+        StepVerifier.create(engine.processPayment("shop", 15_000L))
+                .expectErrorMessage("Insufficient funds")
+                .verify();
+        StepVerifier.create(engine.processPayment("shop", 4_000L))
+                .expectNext("Payment successful! Remaining balance: 60.00")
+                .verifyComplete();
+        StepVerifier.create(engine.getBalance("shop"))
+                .expectNext(6_000L)
+                .verifyComplete();
+    }
+
+    @Test
+    void balanceOpensTheAccountOnce() {
+        RedisLedgerEngine engine = engine(redis.template());
+
+        StepVerifier.create(engine.getBalance("shop"))
+                .expectNext(10_000L)
+                .verifyComplete();
+        StepVerifier.create(engine.processPayment("shop", 1_000L).then(engine.getBalance("shop")))
+                .expectNext(9_000L)
+                .verifyComplete();
+    }
+
+    @Test
+    void instancesSharingRedisNeverOverdraw() {
+        ReactiveStringRedisTemplate template = redis.template();
+        List<RedisLedgerEngine> instances = List.of(engine(template), engine(template), engine(template));
+
+        // 100.00 covers 10 000 one-kopeck payments; 15 000 are attempted across three instances
+        Long succeeded = Flux.range(0, 15_000)
+                .flatMap(i -> instances.get(i % instances.size()).processPayment("shop", 1L)
+                        .map(message -> 1L)
+                        .onErrorReturn(IllegalArgumentException.class, 0L), 256)
+                .reduce(0L, Long::sum)
+                .block(Duration.ofSeconds(30));
+
+        assertEquals(10_000L, succeeded);
+        StepVerifier.create(instances.get(0).getBalance("shop"))
+                .expectNext(0L)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.payments.services;
+
+import com.example.payments.config.LedgerProperties;
+import com.example.payments.config.PaymentAccountProperties;
+import com.example.payments.config.PaymentJournalProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ShardedLedgerEngineTest {
+
+    private static final BigDecimal INITIAL = new BigDecimal("100.00");
+
+    private final List<ShardedLedgerEngine> engines = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        engines.forEach(ShardedLedgerEngine::shutdown);
+    }
+
+    private ShardedLedgerEngine engine(int shards, PaymentJournal journal) {
+        PaymentAccountProperties account = new PaymentAccountProperties();
+        account.setInitialBalance(INITIAL);
+        LedgerProperties ledger = new LedgerProperties();
+        ledger.getSharded().setShards(shards);
+        ledger.getSharded().setBatchSize(64);
+        ShardedLedgerEngine engine = new ShardedLedgerEngine(account, ledger, journal);
+        engines.add(engine);
+        return engine;
+    }
+
+    @Test
+    void appliesPaymentsAndReportsBalance() {
+        ShardedLedgerEngine engine = engine(4, new NoopPaymentJournal());
+
+        StepVerifier.create(engine.processPayment("shop", 4_000L))
+                .expectNext("Payment successful! Remaining balance: 60.00")
+                .verifyComplete();
+        StepVerifier.create(engine.getBalance("shop"))
+                .expectNext(6_000L)
+                .verifyComplete();
+        StepVerifier.create(engine.getBalance("other"))
+                .expectNext(10_000L)
+                .verifyComplete();
+    }
+
+    @Test
+    void declinesLikeTheMapLedger() {
+        ShardedLedgerEngine engine = engine(2, new NoopPaymentJournal());
+
+        StepVerifier.create(engine.processPayment("shop", 15_000L))
+                .expectErrorMessage("Insufficient funds")
+                .verify();
+        StepVerifier.create(engine.processPayment("shop", 0L))
+                .expectErrorMessage("Payment amount must be positive.")
+                .verify();
+        StepVerifier.create(engine.getBalance("shop"))
+                .expectNext(10_000L)
+                .verifyComplete();
+    }
+
+    @Test
+    void concurrentPaymentsOnHotAccountsNeverOverdraw() {
+        ShardedLedgerEngine engine = engine(4, new NoopPaymentJournal());
+        List<String> accounts = List.of("a", "b", "c");
+
+        // 100.00 covers 10 000 one-kopeck payments per account; 16 000 are attempted per account
+        Long succeeded = Flux.range(0, 48_000)
+                .flatMap(i -> engine.processPayment(accounts.get(i % accounts.size()), 1L)
+                        .subscribeOn(Schedulers.parallel())
+                        .map(message -> 1L)
+                        .onErrorReturn(IllegalArgumentException.class, 0L), 256)
+                .reduce(0L, Long::sum)
+                .block(Duration.ofSeconds(30));
+
+        assertEquals(30_000L, succeeded);
+        for (String account : accounts) {
+            StepVerifier.create(engine.getBalance(account))
+                    .expectNext(0L)
+                    .verifyComplete();
+        }
+    }
+
+    @Test
+    void recoversFromTheJournalOfEitherEngine(@TempDir Path dir) {
+        PaymentJournalProperties properties = new PaymentJournalProperties();
+        properties.setDirectory(dir);
+        properties.setSyncInterval(Duration.ofMillis(1));
+
+        MappedPaymentJournal first = new MappedPaymentJournal(properties);
+        ShardedLedgerEngine engine = engine(3, first);
+        Flux.range(0, 10)
+                .flatMap(i -> engine.processPayment("shop", 150L))
+                .then()
+                .block(Duration.ofSeconds(5));
+        engine.shutdown();
+        first.close();
+
+        MappedPaymentJournal second = new MappedPaymentJournal(properties);
+        PaymentAccountProperties account = new PaymentAccountProperties();
+        account.setInitialBalance(INITIAL);
+        PaymentService mapLedger = new PaymentService(account, second);
+        StepVerifier.create(mapLedger.getBalance("shop"))
+                .expectNext(8_500L)
+                .verifyComplete();
+        second.close();
+    }
+
+    @Test
+    void failedForceCreditsTheBatchBack() {
+        FailingForceJournal journal = new FailingForceJournal();
+        ShardedLedgerEngine engine = engine(1, journal);
+
+        StepVerifier.create(engine.processPayment("shop", 4_000L))
+                .expectErrorMessage("java.io.IOException: force failed")
+                .verify(Duration.ofSeconds(5));
+
+        StepVerifier.create(engine.getBalance("shop"))
+                .expectNext(10_000L)
+                .verifyComplete();
+        assertEquals(List.of(
+                new FailingForceJournal.Event(PaymentJournal.EventType.CREDIT, "shop", 10_000L),
+                new FailingForceJournal.Event(PaymentJournal.EventType.DEBIT, "shop", 4_000L),
+                new FailingForceJournal.Event(PaymentJournal.EventType.CREDIT, "shop", 4_000L)
+        ), journal.events());
+    }
+
+    @Test
+    void failsCommandsAfterShutdown() {
+        ShardedLedgerEngine engine = engine(1, new NoopPaymentJournal());
+        engine.shutdown();
+
+        StepVerifier.create(Mono.defer(() -> engine.getBalance("shop")))
+                .expectError(IllegalStateException.class)
+                .verify();
+    }
+}